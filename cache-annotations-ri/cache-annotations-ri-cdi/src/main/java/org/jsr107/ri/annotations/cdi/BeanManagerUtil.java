@@ -16,19 +16,48 @@
  */
 package org.jsr107.ri.annotations.cdi;
 
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.Any;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.util.AnnotationLiteral;
 import javax.inject.Inject;
 import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Resolves and caches CDI bean references by type and qualifiers.
+ * <p>
+ * References are resolved once and reused for the lifetime of the application. The {@link CreationalContext}s of
+ * {@link javax.enterprise.context.Dependent} instances are retained and released when this bean is destroyed.
+ * </p>
+ *
  * @author Rick Hightower
  * @since 1.0
  */
+@ApplicationScoped
 public class BeanManagerUtil {
+  /**
+   * Marker stored for type/qualifier combinations with no matching bean
+   */
+  private static final Object NO_BEAN = new Object();
+
+  /**
+   * Qualifier matching every bean
+   */
+  private static final Annotation ANY = new AnyLiteral();
 
+  private final ConcurrentMap<BeanKey, Object> references = new ConcurrentHashMap<BeanKey, Object>();
+  private final ConcurrentMap<Class<?>, Object> applicationScopedReferences = new ConcurrentHashMap<Class<?>, Object>();
+  private final Queue<CreationalContext<?>> dependentContexts = new ConcurrentLinkedQueue<CreationalContext<?>>();
 
   @Inject
   private BeanManager beanManager;
@@ -41,8 +70,15 @@ public class BeanManagerUtil {
       throw new IllegalArgumentException("CDI Bean type cannot be null");
     }
 
+    final BeanKey beanKey = new BeanKey(type, qualifiers);
+    final Object cached = this.references.get(beanKey);
+    if (cached != null) {
+      return cached == NO_BEAN ? null : type.cast(cached);
+    }
+
     Set<Bean<?>> beans = beanManager.getBeans(type, qualifiers);
     if (beans.isEmpty()) {
+      this.references.putIfAbsent(beanKey, NO_BEAN);
       return null;
     }
     Bean<?> bean = beanManager.resolve(beans);
@@ -51,8 +87,107 @@ public class BeanManagerUtil {
     @SuppressWarnings("unchecked")
     T result = (T) beanManager.getReference(bean, bean.getBeanClass(),
         context);
+
+    //Handle concurrent resolution and only keep "the one true reference"
+    final Object existing = this.references.putIfAbsent(beanKey, result);
+    if (existing != null) {
+      context.release();
+      return existing == NO_BEAN ? null : type.cast(existing);
+    }
+
+    //Normal scoped references are client proxies, only dependent instances need to be released later
+    if (!beanManager.isNormalScope(bean.getScope())) {
+      this.dependentContexts.add(context);
+    }
     return result;
   }
 
+  /**
+   * Get the client proxy of the {@link ApplicationScoped} bean an instance belongs to. Calls through it are
+   * intercepted and may be made from any thread.
+   *
+   * @param instance A bean instance, or the container's subclass of one
+   * @return The client proxy, null if the instance does not belong to an application scoped bean
+   */
+  public Object getApplicationScopedReference(Object instance) {
+    final Class<?> instanceClass = instance.getClass();
+    final Object cached = this.applicationScopedReferences.get(instanceClass);
+    if (cached != null) {
+      return cached == NO_BEAN ? null : cached;
+    }
+
+    //Walk up from container generated subclasses to the class the bean was declared with
+    Object reference = NO_BEAN;
+    for (Class<?> type = instanceClass; type != null && type != Object.class; type = type.getSuperclass()) {
+      Bean<?> declared = null;
+      for (final Bean<?> bean : this.beanManager.getBeans(type, ANY)) {
+        if (bean.getBeanClass() == type) {
+          declared = bean;
+        }
+      }
+      if (declared != null) {
+        if (ApplicationScoped.class.equals(declared.getScope())) {
+          reference = this.beanManager.getReference(declared, type, this.beanManager.createCreationalContext(declared));
+        }
+        break;
+      }
+    }
+
+    final Object existing = this.applicationScopedReferences.putIfAbsent(instanceClass, reference);
+    final Object result = existing != null ? existing : reference;
+    return result == NO_BEAN ? null : result;
+  }
 
+  /**
+   * Release all dependent instances created by {@link #getBeanByType(Class, Annotation...)}
+   */
+  @PreDestroy
+  void releaseDependentInstances() {
+    this.references.clear();
+    this.applicationScopedReferences.clear();
+    CreationalContext<?> context;
+    while ((context = this.dependentContexts.poll()) != null) {
+      context.release();
+    }
+  }
+
+  /**
+   * Literal of the {@link Any} qualifier
+   */
+  @SuppressWarnings("all")
+  private static final class AnyLiteral extends AnnotationLiteral<Any> implements Any {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Defines a cache key based on the combination of a bean type and its qualifiers.
+   */
+  private static final class BeanKey {
+    private final Class<?> type;
+    private final Set<Annotation> qualifiers;
+    private final int hashCode;
+
+    private BeanKey(Class<?> type, Annotation[] qualifiers) {
+      this.type = type;
+      this.qualifiers = new HashSet<Annotation>(Arrays.asList(qualifiers));
+      this.hashCode = this.type.hashCode() * 29 + this.qualifiers.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof BeanKey)) {
+        return false;
+      }
+      final BeanKey other = (BeanKey) obj;
+      return this.type.equals(other.type) && this.qualifiers.equals(other.qualifiers);
+    }
+  }
 }
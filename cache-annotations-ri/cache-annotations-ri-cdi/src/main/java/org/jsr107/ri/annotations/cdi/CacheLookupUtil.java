@@ -17,32 +17,130 @@
 package org.jsr107.ri.annotations.cdi;
 
 import org.jsr107.ri.annotations.AbstractCacheLookupUtil;
+import org.jsr107.ri.annotations.CacheAnnotationsConfig;
+import org.jsr107.ri.annotations.CacheTransactionSupport;
 import org.jsr107.ri.annotations.DefaultCacheKeyGenerator;
-import org.jsr107.ri.annotations.DefaultCacheResolverFactory;
+import org.jsr107.ri.annotations.DeferredCacheOperations;
+import org.jsr107.ri.annotations.DeferredCacheResolverFactory;
 import org.jsr107.ri.annotations.InternalCacheInvocationContext;
 import org.jsr107.ri.annotations.InternalCacheKeyInvocationContext;
+import org.jsr107.ri.annotations.JtaCacheTransactionSupport;
+import org.jsr107.ri.annotations.LocalCacheTransactionSupport;
+import org.jsr107.ri.annotations.RequestCacheMemo;
 import org.jsr107.ri.annotations.StaticCacheInvocationContext;
 import org.jsr107.ri.annotations.StaticCacheKeyInvocationContext;
 
 import javax.cache.annotation.CacheKeyGenerator;
 import javax.cache.annotation.CacheResolverFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.ContextNotActiveException;
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 import javax.interceptor.InvocationContext;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Utility used by all annotations to lookup the {@link javax.cache.annotation.CacheResolver} and {@link CacheKeyGenerator} for a given method.
+ * <p>
+ * Application scoped so that the resolved method details, and the key generators and resolver factories they
+ * reference, are shared by every interceptor instance. The default CacheManager is acquired lazily in the
+ * background by a {@link DeferredCacheResolverFactory} so creating this bean never waits on the cache.
+ * </p>
  *
  * @author Rick Hightower
  * @since 1.0
  */
+@ApplicationScoped
 public class CacheLookupUtil extends AbstractCacheLookupUtil<InvocationContext> {
+  private final Logger logger = Logger.getLogger(this.getClass().getName());
+
   @Inject
   private BeanManagerUtil beanManagerUtil;
 
+  @Inject
+  private BeanManager beanManager;
+
+  @Inject
+  private RequestScopedCacheMemo requestCacheMemo;
+
   private CacheKeyGenerator defaultCacheKeyGenerator = new DefaultCacheKeyGenerator();
-  private CacheResolverFactory defaultCacheResolverFactory = new DefaultCacheResolverFactory();
+  private DeferredCacheResolverFactory defaultCacheResolverFactory = new DeferredCacheResolverFactory();
+  private boolean requestCacheMemoEnabled = CacheAnnotationsConfig.getBoolean("requestMemo.enabled", false);
+  private CacheTransactionSupport transactionSupport =
+      this.createTransactionSupport(CacheAnnotationsConfig.getString("transactions.mode", "none"));
+
+  /**
+   * Start acquiring the default CacheManager in the background, called by {@link InterceptorExtension} once the
+   * deployment has been validated so it is usually ready before the first cached call
+   */
+  public void initialize() {
+    this.defaultCacheResolverFactory.initialize();
+  }
+
+  /**
+   * Get the memo of the active CDI request, if the <code>requestMemo.enabled</code> setting is true
+   *
+   * @return The memo for the current request, null if disabled or no request is active
+   */
+  public RequestCacheMemo getRequestCacheMemo() {
+    if (!this.requestCacheMemoEnabled) {
+      return null;
+    }
+    try {
+      return this.beanManager.getContext(RequestScoped.class).isActive() ? this.requestCacheMemo : null;
+    } catch (ContextNotActiveException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the reference a background refresh of a {@link org.jsr107.ri.annotations.CacheRefreshAhead} method is
+   * invoked through
+   *
+   * @param target The bean instance the method was intercepted on
+   * @return The client proxy of the bean, null if it is not application scoped and cannot be called from a
+   *         refresh thread
+   */
+  public Object getRefreshTarget(Object target) {
+    return target == null ? null : this.beanManagerUtil.getApplicationScopedReference(target);
+  }
+
+  /**
+   * Get the cache operations buffered for the current transaction, if the <code>transactions.mode</code>
+   * setting is <code>jta</code> or <code>local</code>
+   *
+   * @return The operations of the current transaction, null if disabled or no transaction is active
+   */
+  public DeferredCacheOperations getDeferredCacheOperations() {
+    return this.transactionSupport == null ? null : this.transactionSupport.getDeferredCacheOperations();
+  }
+
+  /**
+   * @param mode <code>jta</code>, <code>local</code> or <code>none</code>
+   * @return The transaction support for the mode, null if none
+   */
+  private CacheTransactionSupport createTransactionSupport(String mode) {
+    if ("local".equalsIgnoreCase(mode)) {
+      return new LocalCacheTransactionSupport();
+    }
+    if ("jta".equalsIgnoreCase(mode)) {
+      try {
+        return new JtaCacheTransactionSupport();
+      } catch (RuntimeException e) {
+        logger.log(Level.WARNING, "JTA is not available, cache operations are applied immediately", e);
+        return null;
+      } catch (LinkageError e) {
+        //javax.transaction is an optional dependency
+        logger.log(Level.WARNING, "JTA is not available, cache operations are applied immediately", e);
+        return null;
+      }
+    }
+    return null;
+  }
 
 
   /*
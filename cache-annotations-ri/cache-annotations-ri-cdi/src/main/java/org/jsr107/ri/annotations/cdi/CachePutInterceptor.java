@@ -18,6 +18,9 @@ package org.jsr107.ri.annotations.cdi;
 
 
 import org.jsr107.ri.annotations.AbstractCachePutInterceptor;
+import org.jsr107.ri.annotations.DeferredCacheOperations;
+import org.jsr107.ri.annotations.RequestCacheMemo;
+
 import javax.annotation.Priority;
 import javax.cache.annotation.CachePut;
 import javax.inject.Inject;
@@ -59,4 +62,20 @@ public class CachePutInterceptor extends AbstractCachePutInterceptor<InvocationC
   protected Object proceed(InvocationContext invocation) throws Exception {
     return invocation.proceed();
   }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.AbstractCacheInterceptor#getRequestCacheMemo()
+   */
+  @Override
+  protected RequestCacheMemo getRequestCacheMemo() {
+    return this.lookup.getRequestCacheMemo();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.AbstractCacheInterceptor#getDeferredCacheOperations()
+   */
+  @Override
+  protected DeferredCacheOperations getDeferredCacheOperations() {
+    return this.lookup.getDeferredCacheOperations();
+  }
 }
@@ -18,6 +18,8 @@ package org.jsr107.ri.annotations.cdi;
 
 
 import org.jsr107.ri.annotations.AbstractCacheResultInterceptor;
+import org.jsr107.ri.annotations.InternalCacheKeyInvocationContext;
+import org.jsr107.ri.annotations.RequestCacheMemo;
 
 import javax.annotation.Priority;
 import javax.cache.annotation.CacheResult;
@@ -25,6 +27,7 @@ import javax.inject.Inject;
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
+import java.lang.annotation.Annotation;
 
 
 /**
@@ -59,4 +62,20 @@ public class CacheResultInterceptor extends AbstractCacheResultInterceptor<Invoc
   protected Object proceed(InvocationContext invocation) throws Exception {
     return invocation.proceed();
   }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.AbstractCacheInterceptor#getRequestCacheMemo()
+   */
+  @Override
+  protected RequestCacheMemo getRequestCacheMemo() {
+    return this.lookup.getRequestCacheMemo();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.AbstractCacheResultInterceptor#getRefreshTarget(org.jsr107.ri.annotations.InternalCacheKeyInvocationContext)
+   */
+  @Override
+  protected Object getRefreshTarget(InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext) {
+    return this.lookup.getRefreshTarget(cacheKeyInvocationContext.getTarget());
+  }
 }
@@ -16,11 +16,20 @@
  */
 package org.jsr107.ri.annotations.cdi;
 
+import org.jsr107.ri.annotations.BulkCachePut;
+import org.jsr107.ri.annotations.BulkCacheRemove;
+import org.jsr107.ri.annotations.BulkCacheResult;
+import org.jsr107.ri.annotations.CacheInvoke;
+import org.jsr107.ri.annotations.CacheRemoveByTag;
+
 import javax.cache.annotation.CachePut;
 import javax.cache.annotation.CacheRemove;
 import javax.cache.annotation.CacheRemoveAll;
 import javax.cache.annotation.CacheResult;
 import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.BeforeBeanDiscovery;
 import javax.enterprise.inject.spi.Extension;
 
@@ -42,6 +51,26 @@ public class InterceptorExtension implements Extension {
     beforeBeanDiscoveryEvent.addInterceptorBinding(CacheResult.class);
     beforeBeanDiscoveryEvent.addInterceptorBinding(CacheRemove.class);
     beforeBeanDiscoveryEvent.addInterceptorBinding(CacheRemoveAll.class);
+    beforeBeanDiscoveryEvent.addInterceptorBinding(BulkCacheResult.class);
+    beforeBeanDiscoveryEvent.addInterceptorBinding(BulkCachePut.class);
+    beforeBeanDiscoveryEvent.addInterceptorBinding(BulkCacheRemove.class);
+    beforeBeanDiscoveryEvent.addInterceptorBinding(CacheInvoke.class);
+    beforeBeanDiscoveryEvent.addInterceptorBinding(CacheRemoveByTag.class);
+  }
+
+  /**
+   * Start acquiring the default CacheManager in the background as the application starts.
+   *
+   * @param afterDeploymentValidationEvent the event signalling the deployment is valid
+   * @param beanManager                    the bean manager to look up {@link CacheLookupUtil} with
+   */
+  void initializeCacheManager(@Observes AfterDeploymentValidation afterDeploymentValidationEvent,
+                              BeanManager beanManager) {
+    final Bean<?> bean = beanManager.resolve(beanManager.getBeans(CacheLookupUtil.class));
+    if (bean != null) {
+      ((CacheLookupUtil) beanManager.getReference(bean, CacheLookupUtil.class,
+          beanManager.createCreationalContext(bean))).initialize();
+    }
   }
 
 }
@@ -0,0 +1,167 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.GeneratedCacheKey;
+import java.lang.annotation.Annotation;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Interceptor for {@link BulkCachePut}
+ *
+ * @param <I> The intercepted method invocation
+ * @since 1.0
+ */
+public abstract class AbstractBulkCachePutInterceptor<I> extends AbstractKeyedCacheInterceptor<I, BulkCachePutMethodDetails> {
+
+  /**
+   * Handles the {@link Cache#putAll(Map)} as specified for the {@link BulkCachePut} annotation
+   *
+   * @param cacheContextSource The intercepted invocation
+   * @param invocation         The intercepted invocation
+   * @return The result from {@link #proceed(Object)}
+   * @throws Throwable if {@link #proceed(Object)} threw
+   */
+  public final Object bulkCachePut(CacheContextSource<I> cacheContextSource, I invocation) throws Throwable {
+    final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext =
+        cacheContextSource.getCacheKeyInvocationContext(invocation);
+    final BulkCachePutMethodDetails methodDetails =
+        this.getStaticCacheKeyInvocationContext(cacheKeyInvocationContext, InterceptorType.BULK_CACHE_PUT);
+
+    final BulkCachePut bulkCachePutAnnotation = methodDetails.getCacheAnnotation();
+    final boolean afterInvocation = bulkCachePutAnnotation.afterInvocation();
+
+    if (!afterInvocation) {
+      cacheValues(cacheKeyInvocationContext, methodDetails);
+    }
+
+    final Object result;
+    try {
+      //Call the annotated method
+      result = this.proceed(invocation);
+    } catch (Throwable t) {
+      if (afterInvocation) {
+        //If after invocation is true and if the throwable passes the include/exclude filters and then call putAll
+        final Class<? extends Throwable>[] cacheFor = bulkCachePutAnnotation.cacheFor();
+        final Class<? extends Throwable>[] noCacheFor = bulkCachePutAnnotation.noCacheFor();
+
+        //Check for empty/null here since isIncluded returns true for those cases
+        final boolean cache = ClassFilter.isIncluded(t, cacheFor, noCacheFor, false);
+
+        //Exception is included
+        if (cache) {
+          cacheValues(cacheKeyInvocationContext, methodDetails);
+        }
+      }
+
+      throw t;
+    }
+
+    if (afterInvocation) {
+      cacheValues(cacheKeyInvocationContext, methodDetails);
+    }
+
+    return result;
+  }
+
+  /**
+   * Generate a key for every entry of the value parameter and store them all in the cache.
+   *
+   * @param cacheKeyInvocationContext The invocation context
+   * @param methodDetails             The details about the cached method
+   */
+  protected void cacheValues(final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext,
+                             final BulkCachePutMethodDetails methodDetails) {
+
+    final int valuePosition = methodDetails.getCacheValueParameter().getParameterPosition();
+    final Map<?, ?> values = (Map<?, ?>) cacheKeyInvocationContext.getAllParameters()[valuePosition].getValue();
+    if (values == null || values.isEmpty()) {
+      return;
+    }
+
+    final Map<Object, GeneratedCacheKey> elementKeys = BulkElementCacheKeyInvocationContext.generateCacheKeys(
+        cacheKeyInvocationContext, methodDetails.getCacheKeyGenerator(), methodDetails.getElementParameter(),
+        values.keySet());
+
+    //Invalidate the values the current request may have memoized
+    final RequestCacheMemo requestCacheMemo = this.getRequestCacheMemo();
+    if (requestCacheMemo != null) {
+      for (final GeneratedCacheKey cacheKey : elementKeys.values()) {
+        requestCacheMemo.remove(methodDetails.getCacheName(), cacheKey);
+      }
+    }
+
+    final CacheResolver cacheResolver = methodDetails.getCacheResolver();
+    final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheKeyInvocationContext);
+    if (cache == null) {
+      //No cache available yet, nothing to update
+      return;
+    }
+
+    final CachePutPolicy policy = methodDetails.getCachePutPolicy();
+    final CacheInvocationParameter[] parameters = cacheKeyInvocationContext.getAllParameters();
+    final CacheConditionFilter conditionFilter = policy.getConditionFilter();
+    final boolean cacheable = conditionFilter == null || conditionFilter.isCacheable(parameters);
+    final CacheTagging cacheTagging = policy.getCacheTagging();
+    final long now = System.currentTimeMillis();
+    long[] tagGenerations = null;
+
+    //A null value or one the method's condition excludes replaces the entry all the same, remove it rather than keep
+    //it stale
+    final Map<Object, Object> entries = new LinkedHashMap<Object, Object>();
+    final Set<Object> removedKeys = new LinkedHashSet<Object>();
+    for (final Map.Entry<Object, GeneratedCacheKey> elementKey : elementKeys.entrySet()) {
+      final Object value = values.get(elementKey.getKey());
+      final GeneratedCacheKey cacheKey = elementKey.getValue();
+      if (value == null || !cacheable || (conditionFilter != null && !conditionFilter.isStorable(parameters, value))) {
+        removedKeys.add(cacheKey);
+      } else if (policy.isValueHolderRequired(value)) {
+        //Store the value with its logical expiry and tag generations so readers through CacheResult honor them
+        if (tagGenerations == null && cacheTagging != null) {
+          tagGenerations = cacheTagging.getGenerations(cache, parameters);
+        }
+        entries.put(cacheKey, new CacheValueHolder(value, now, 0L, policy.getExpiresAt(value, now), 0L, tagGenerations));
+      } else {
+        entries.put(cacheKey, value);
+      }
+    }
+
+    final DeferredCacheOperations deferredOperations = this.getDeferredCacheOperations();
+    if (!removedKeys.isEmpty()) {
+      if (deferredOperations != null) {
+        deferredOperations.removeAll(cache, removedKeys);
+      } else {
+        cache.removeAll(removedKeys);
+      }
+    }
+    if (!entries.isEmpty()) {
+      if (deferredOperations != null) {
+        deferredOperations.putAll(cache, entries);
+      } else {
+        cache.putAll(entries);
+      }
+    }
+  }
+}
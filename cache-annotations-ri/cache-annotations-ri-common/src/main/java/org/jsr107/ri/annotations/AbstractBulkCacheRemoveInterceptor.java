@@ -0,0 +1,132 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.GeneratedCacheKey;
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Interceptor for {@link BulkCacheRemove}
+ *
+ * @param <I> The intercepted method invocation
+ * @since 1.0
+ */
+public abstract class AbstractBulkCacheRemoveInterceptor<I>
+    extends AbstractKeyedCacheInterceptor<I, BulkCacheRemoveMethodDetails> {
+
+  /**
+   * Handles the {@link Cache#removeAll(java.util.Set)} as specified for the {@link BulkCacheRemove} annotation
+   *
+   * @param cacheContextSource The intercepted invocation
+   * @param invocation         The intercepted invocation
+   * @return The result from {@link #proceed(Object)}
+   * @throws Throwable if {@link #proceed(Object)} threw
+   */
+  public final Object bulkCacheRemove(CacheContextSource<I> cacheContextSource, I invocation) throws Throwable {
+    final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext =
+        cacheContextSource.getCacheKeyInvocationContext(invocation);
+    final BulkCacheRemoveMethodDetails methodDetails =
+        this.getStaticCacheKeyInvocationContext(cacheKeyInvocationContext, InterceptorType.BULK_CACHE_REMOVE);
+
+    final BulkCacheRemove bulkCacheRemoveAnnotation = methodDetails.getCacheAnnotation();
+    final boolean afterInvocation = bulkCacheRemoveAnnotation.afterInvocation();
+
+    //If pre-invocation - remove entries
+    if (!afterInvocation) {
+      cacheRemoveAll(cacheKeyInvocationContext, methodDetails);
+    }
+
+    final Object result;
+    try {
+      //Call the annotated method
+      result = this.proceed(invocation);
+    } catch (Throwable t) {
+      if (afterInvocation) {
+        //If after invocation is true and if the throwable passes the include/exclude filters and then call removeAll
+        final Class<? extends Throwable>[] evictFor = bulkCacheRemoveAnnotation.evictFor();
+        final Class<? extends Throwable>[] noEvictFor = bulkCacheRemoveAnnotation.noEvictFor();
+
+        //Check for empty/null here since isIncluded returns true for those cases
+        final boolean cache = ClassFilter.isIncluded(t, evictFor, noEvictFor, false);
+
+        //Exception is included
+        if (cache) {
+          cacheRemoveAll(cacheKeyInvocationContext, methodDetails);
+        }
+      }
+
+      throw t;
+    }
+
+    //If post-invocation - remove entries
+    if (afterInvocation) {
+      cacheRemoveAll(cacheKeyInvocationContext, methodDetails);
+    }
+
+    return result;
+  }
+
+  /**
+   * Remove the entries for every element of the collection parameter from the cache
+   *
+   * @param cacheKeyInvocationContext The invocation context
+   * @param methodDetails             The details about the cached method
+   */
+  protected void cacheRemoveAll(final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext,
+                                final BulkCacheRemoveMethodDetails methodDetails) {
+
+    final int collectionPosition = methodDetails.getCollectionParameter().getParameterPosition();
+    final Collection<?> elements = (Collection<?>) cacheKeyInvocationContext.getAllParameters()[collectionPosition].getValue();
+    if (elements == null || elements.isEmpty()) {
+      return;
+    }
+
+    final Map<Object, GeneratedCacheKey> elementKeys = BulkElementCacheKeyInvocationContext.generateCacheKeys(
+        cacheKeyInvocationContext, methodDetails.getCacheKeyGenerator(), methodDetails.getElementParameter(), elements);
+
+    //Invalidate the values the current request may have memoized
+    final RequestCacheMemo requestCacheMemo = this.getRequestCacheMemo();
+    if (requestCacheMemo != null) {
+      for (final GeneratedCacheKey cacheKey : elementKeys.values()) {
+        requestCacheMemo.remove(methodDetails.getCacheName(), cacheKey);
+      }
+    }
+
+    final CacheResolver cacheResolver = methodDetails.getCacheResolver();
+    final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheKeyInvocationContext);
+    if (cache == null) {
+      //No cache available yet, nothing to remove
+      return;
+    }
+
+    final Set<Object> cacheKeys = new LinkedHashSet<Object>(elementKeys.values());
+    final DeferredCacheOperations deferredOperations = this.getDeferredCacheOperations();
+    if (deferredOperations != null) {
+      deferredOperations.removeAll(cache, cacheKeys);
+    } else {
+      cache.removeAll(cacheKeys);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.GeneratedCacheKey;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Interceptor for {@link BulkCacheResult}
+ *
+ * @param <I> The intercepted method invocation
+ * @since 1.0
+ */
+public abstract class AbstractBulkCacheResultInterceptor<I>
+    extends AbstractKeyedCacheInterceptor<I, BulkCacheResultMethodDetails> {
+
+  /**
+   * Proceed with the invocation using different parameters
+   *
+   * @param invocation The intercepted invocation
+   * @param parameters The parameters to invoke the method with
+   * @return The value returned by the invocation
+   * @throws Throwable The exception thrown by the invocation, if any
+   */
+  protected abstract Object proceed(I invocation, Object[] parameters) throws Throwable;
+
+  /**
+   * Handles the {@link Cache#getAll(java.util.Set)} and {@link Cache#putAll(Map)} logic as specified for the
+   * {@link BulkCacheResult} annotation. Every element is read and written under the {@link CacheResultPolicy} of
+   * the method, so expiry, tags, conditions and admission apply to it as they do to a {@link
+   * javax.cache.annotation.CacheResult} value.
+   *
+   * @param cacheContextSource The intercepted invocation
+   * @param invocation         The intercepted invocation
+   * @return The cached and computed values
+   * @throws Throwable if {@link #proceed(Object, Object[])} threw
+   */
+  public final Object bulkCacheResult(CacheContextSource<I> cacheContextSource, I invocation) throws Throwable {
+    //Load details about the annotated method
+    final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext =
+        cacheContextSource.getCacheKeyInvocationContext(invocation);
+    final BulkCacheResultMethodDetails methodDetails =
+        this.getStaticCacheKeyInvocationContext(cacheKeyInvocationContext, InterceptorType.BULK_CACHE_RESULT);
+
+    final CacheInvocationParameter[] allParameters = cacheKeyInvocationContext.getAllParameters();
+    final int collectionPosition = methodDetails.getCollectionParameter().getParameterPosition();
+    final Collection<?> elements = (Collection<?>) allParameters[collectionPosition].getValue();
+    if (elements == null || elements.isEmpty()) {
+      return this.proceed(invocation);
+    }
+
+    //Leave invocations the method's condition excludes alone entirely
+    final CacheResultPolicy policy = methodDetails.getCacheResultPolicy();
+    final CacheConditionFilter conditionFilter = policy.getConditionFilter();
+    if (conditionFilter != null && !conditionFilter.isCacheable(allParameters)) {
+      return this.proceed(invocation);
+    }
+
+    //Skip the cache entirely while the method's hit ratio is too low, except for sampled invocations
+    final CacheBypassTracker bypassTracker = policy.getBypassTracker();
+    if (bypassTracker != null && !bypassTracker.isCacheConsulted()) {
+      return this.proceed(invocation);
+    }
+
+    //Resolve the cache
+    final CacheResolver cacheResolver = methodDetails.getCacheResolver();
+    final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheKeyInvocationContext);
+    if (cache == null) {
+      //No cache available yet, just call the annotated method
+      return this.proceed(invocation);
+    }
+
+    //Read the generations of the tags once, they are the same for every element
+    final CacheTagging cacheTagging = policy.getCacheTagging();
+    final long[] tagGenerations = cacheTagging == null ? null : cacheTagging.getGenerations(cache, allParameters);
+
+    //Generate a key per element and read them all at once
+    final Map<Object, GeneratedCacheKey> elementKeys = BulkElementCacheKeyInvocationContext.generateCacheKeys(
+        cacheKeyInvocationContext, methodDetails.getCacheKeyGenerator(), methodDetails.getElementParameter(), elements);
+    final Map<Object, Object> cached = cache.getAll(new LinkedHashSet<Object>(elementKeys.values()));
+
+    final long now = System.currentTimeMillis();
+    final Map<Object, Object> result = new LinkedHashMap<Object, Object>();
+    final List<Object> missing = new ArrayList<Object>();
+    for (final Map.Entry<Object, GeneratedCacheKey> elementKey : elementKeys.entrySet()) {
+      final Object value = policy.getCachedValue(cached.get(elementKey.getValue()), tagGenerations, now);
+      if (bypassTracker != null) {
+        bypassTracker.recordLookup(value != null);
+      }
+      if (value != null) {
+        result.put(elementKey.getKey(), value);
+      } else {
+        missing.add(elementKey.getKey());
+      }
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    //Call the annotated method for the missing elements only
+    final Object[] parameters = new Object[allParameters.length];
+    for (int index = 0; index < allParameters.length; index++) {
+      parameters[index] = allParameters[index].getValue();
+    }
+    parameters[collectionPosition] = methodDetails.createCollection(missing);
+    final long start = System.nanoTime();
+    final Map<?, ?> computed = (Map<?, ?>) this.proceed(invocation, parameters);
+    if (computed == null) {
+      return result;
+    }
+    //The cost of one element is unknown, charge each an equal share of the invocation
+    final long computeNanos = (System.nanoTime() - start) / Math.max(1, computed.size());
+
+    //Cache the computed values that pass the condition and the admission policy in one round trip and merge
+    //them into the result
+    final Map<Object, Object> computedEntries = new LinkedHashMap<Object, Object>();
+    for (final Object element : missing) {
+      final Object value = computed.get(element);
+      if (value != null) {
+        final GeneratedCacheKey cacheKey = elementKeys.get(element);
+        if ((conditionFilter == null || conditionFilter.isStorable(allParameters, value)) &&
+            policy.isAdmitted(cacheKey, computeNanos)) {
+          computedEntries.put(cacheKey, policy.createCachedValue(value, computeNanos, tagGenerations));
+        }
+        result.put(element, value);
+      }
+    }
+    if (!computedEntries.isEmpty()) {
+      cache.putAll(computedEntries);
+    }
+
+    return result;
+  }
+}
@@ -34,4 +34,30 @@ public abstract class AbstractCacheInterceptor<I> {
    */
   protected abstract Object proceed(I invocation) throws Throwable;
 
+  /**
+   * Get the memo for the current request, if request memoization is enabled and a request is active.
+   * <p>
+   * The default implementation returns null, integrations that know about requests override it.
+   * </p>
+   *
+   * @return The memo for the current request, null if there is none
+   */
+  protected RequestCacheMemo getRequestCacheMemo() {
+    return null;
+  }
+
+  /**
+   * Get the cache operations buffered for the transaction of the current thread, if transactional invalidation
+   * is enabled and a transaction is active. Writes and removes are recorded there instead of being applied.
+   * <p>
+   * The default implementation returns null, integrations that know about transactions override it.
+   * </p>
+   *
+   * @return The operations of the current transaction, null if there are none
+   * @see CacheTransactionSupport
+   */
+  protected DeferredCacheOperations getDeferredCacheOperations() {
+    return null;
+  }
+
 }
@@ -0,0 +1,79 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.GeneratedCacheKey;
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+
+/**
+ * Interceptor for {@link CacheInvoke}
+ *
+ * @param <I> The intercepted method invocation
+ * @since 1.0
+ */
+public abstract class AbstractCacheInvokeInterceptor<I> extends AbstractKeyedCacheInterceptor<I, CacheInvokeMethodDetails> {
+
+  /**
+   * Handles the {@link Cache#invoke(Object, javax.cache.processor.EntryProcessor, Object...)} as specified for the
+   * {@link CacheInvoke} annotation
+   *
+   * @param cacheContextSource The intercepted invocation
+   * @param invocation         The intercepted invocation
+   * @return The result of the entry processor, or of {@link #proceed(Object)} if no cache is available
+   * @throws Throwable if {@link #proceed(Object)} threw, or a {@link javax.cache.CacheException} if the cache
+   *                   failed or its circuit breaker skipped the invocation
+   */
+  public final Object cacheInvoke(CacheContextSource<I> cacheContextSource, I invocation) throws Throwable {
+    final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext =
+        cacheContextSource.getCacheKeyInvocationContext(invocation);
+    final CacheInvokeMethodDetails methodDetails =
+        this.getStaticCacheKeyInvocationContext(cacheKeyInvocationContext, InterceptorType.CACHE_INVOKE);
+
+    final CacheKeyGenerator cacheKeyGenerator = methodDetails.getCacheKeyGenerator();
+    final GeneratedCacheKey cacheKey = cacheKeyGenerator.generateCacheKey(cacheKeyInvocationContext);
+
+    //Invalidate the value the current request may have memoized
+    final RequestCacheMemo requestCacheMemo = this.getRequestCacheMemo();
+    if (requestCacheMemo != null) {
+      requestCacheMemo.remove(methodDetails.getCacheName(), cacheKey);
+    }
+
+    final CacheResolver cacheResolver = methodDetails.getCacheResolver();
+    final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheKeyInvocationContext);
+    if (cache == null) {
+      //No cache available yet, let the method do the update itself
+      return this.proceed(invocation);
+    }
+
+    //Pass the non-key parameters as the processor arguments
+    final CacheInvocationParameter[] allParameters = cacheKeyInvocationContext.getAllParameters();
+    final List<CacheParameterDetails> argumentParameters = methodDetails.getArgumentParameters();
+    final Object[] arguments = new Object[argumentParameters.size()];
+    for (int index = 0; index < arguments.length; index++) {
+      arguments[index] = allParameters[argumentParameters.get(index).getParameterPosition()].getValue();
+    }
+
+    return cache.invoke(cacheKey, methodDetails.getEntryProcessor(), arguments);
+  }
+}
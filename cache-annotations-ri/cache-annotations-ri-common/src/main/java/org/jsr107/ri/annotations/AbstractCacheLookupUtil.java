@@ -16,6 +16,7 @@
  */
 package org.jsr107.ri.annotations;
 
+import javax.cache.CacheException;
 import javax.cache.annotation.CacheDefaults;
 import javax.cache.annotation.CacheKey;
 import javax.cache.annotation.CacheKeyGenerator;
@@ -27,17 +28,22 @@ import javax.cache.annotation.CacheResolver;
 import javax.cache.annotation.CacheResolverFactory;
 import javax.cache.annotation.CacheResult;
 import javax.cache.annotation.CacheValue;
+import javax.cache.processor.EntryProcessor;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.AnnotationFormatError;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
 
 /**
  * Utility used by all annotations to lookup the {@link CacheResolver} and {@link CacheKeyGenerator} for a given method.
@@ -78,7 +84,11 @@ public abstract class AbstractCacheLookupUtil<I> implements CacheContextSource<I
     switch (staticCacheInvocationContext.getInterceptorType()) {
       case CACHE_RESULT:
       case CACHE_PUT:
-      case CACHE_REMOVE_ENTRY: {
+      case CACHE_REMOVE_ENTRY:
+      case BULK_CACHE_RESULT:
+      case BULK_CACHE_PUT:
+      case BULK_CACHE_REMOVE:
+      case CACHE_INVOKE: {
         return createCacheKeyInvocationContextImpl(
             (StaticCacheKeyInvocationContext<? extends Annotation>) staticCacheInvocationContext, invocation);
       }
@@ -177,12 +187,19 @@ public abstract class AbstractCacheLookupUtil<I> implements CacheContextSource<I
     final CachePut cachePutAnnotation = getAnnotation(CachePut.class, method, targetClass);
     final CacheRemove cacheRemoveAnnotation = getAnnotation(CacheRemove.class, method, targetClass);
     final CacheRemoveAll cacheRemoveAllAnnotation = getAnnotation(CacheRemoveAll.class, method, targetClass);
-
-    if (cacheResultAnnotation == null && cachePutAnnotation == null && cacheRemoveAnnotation == null && cacheRemoveAllAnnotation == null) {
+    final BulkCacheResult bulkCacheResultAnnotation = getAnnotation(BulkCacheResult.class, method, targetClass);
+    final BulkCachePut bulkCachePutAnnotation = getAnnotation(BulkCachePut.class, method, targetClass);
+    final BulkCacheRemove bulkCacheRemoveAnnotation = getAnnotation(BulkCacheRemove.class, method, targetClass);
+    final CacheInvoke cacheInvokeAnnotation = getAnnotation(CacheInvoke.class, method, targetClass);
+    final CacheRemoveByTag cacheRemoveByTagAnnotation = getAnnotation(CacheRemoveByTag.class, method, targetClass);
+
+    final int annotationCount = countNonNull(cacheResultAnnotation, cachePutAnnotation, cacheRemoveAnnotation,
+        cacheRemoveAllAnnotation, bulkCacheResultAnnotation, bulkCachePutAnnotation, bulkCacheRemoveAnnotation,
+        cacheInvokeAnnotation, cacheRemoveByTagAnnotation);
+    if (annotationCount == 0) {
       //Check for no annotations, just ignore the method
       return null;
-    } else if (!(cacheResultAnnotation != null ^ cachePutAnnotation != null ^
-        cacheRemoveAnnotation != null ^ cacheRemoveAllAnnotation != null)) {
+    } else if (annotationCount > 1) {
       //Check for more than one caching annotation
       throw new AnnotationFormatError(
           "Multiple cache annotations were found on " + method + " only one cache annotation per method is allowed");
@@ -198,6 +215,21 @@ public abstract class AbstractCacheLookupUtil<I> implements CacheContextSource<I
     } else if (cacheRemoveAllAnnotation != null) {
       staticCacheInvocationContext =
           this.createCacheRemoveAllMethodDetails(cacheRemoveAllAnnotation, cacheDefaultsAnnotation, method, targetClass);
+    } else if (bulkCacheResultAnnotation != null) {
+      staticCacheInvocationContext =
+          this.createBulkCacheResultMethodDetails(bulkCacheResultAnnotation, cacheDefaultsAnnotation, method, targetClass);
+    } else if (bulkCachePutAnnotation != null) {
+      staticCacheInvocationContext =
+          this.createBulkCachePutMethodDetails(bulkCachePutAnnotation, cacheDefaultsAnnotation, method, targetClass);
+    } else if (bulkCacheRemoveAnnotation != null) {
+      staticCacheInvocationContext =
+          this.createBulkCacheRemoveMethodDetails(bulkCacheRemoveAnnotation, cacheDefaultsAnnotation, method, targetClass);
+    } else if (cacheInvokeAnnotation != null) {
+      staticCacheInvocationContext =
+          this.createCacheInvokeMethodDetails(cacheInvokeAnnotation, cacheDefaultsAnnotation, method, targetClass);
+    } else if (cacheRemoveByTagAnnotation != null) {
+      staticCacheInvocationContext =
+          this.createCacheRemoveByTagMethodDetails(cacheRemoveByTagAnnotation, cacheDefaultsAnnotation, method, targetClass);
     } else {
       //This should not be possible
       return null;
@@ -215,6 +247,16 @@ public abstract class AbstractCacheLookupUtil<I> implements CacheContextSource<I
     return staticCacheInvocationContext;
   }
 
+  private static int countNonNull(Annotation... annotations) {
+    int count = 0;
+    for (final Annotation annotation : annotations) {
+      if (annotation != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   /**
    * @param invocation
    */
@@ -278,21 +320,251 @@ public abstract class AbstractCacheLookupUtil<I> implements CacheContextSource<I
     final ParameterDetails parameterDetails = this.getParameterDetails(method, false);
 
     //Get the cache resolver to use for the method
-    final CacheResolver cacheResolver = cacheResolverFactory.getCacheResolver(cacheMethodDetails);
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
 
     //Get the exception cache resolver to use for the method, if an exceptionCacheName is set
     final CacheResolver exceptionCacheResolver;
     final String exceptionCacheName = cacheResultAnnotation.exceptionCacheName();
     if (exceptionCacheName != null && exceptionCacheName.trim().length() != 0) {
-      exceptionCacheResolver = cacheResolverFactory.getExceptionCacheResolver(cacheMethodDetails);
+      CacheResolver resolver =
+          this.decorateCacheResolver(cacheResolverFactory.getExceptionCacheResolver(cacheMethodDetails), exceptionCacheName);
+      if (CacheAnnotationsConfig.getBoolean(exceptionCacheName, "exceptionCache.compact", false)) {
+        //Store descriptors instead of full exceptions, rethrows then neither transfer nor deserialize stack traces.
+        //Wraps the decorated resolver as a codec would otherwise serialize the exception before it is compacted
+        resolver = new CompactExceptionCacheResolver(resolver,
+            CacheAnnotationsConfig.getBoolean(exceptionCacheName, "exceptionCache.includeCause", true));
+      }
+      final ExceptionKeyFilter exceptionKeyFilter = ExceptionKeyFilter.forCache(exceptionCacheName);
+      if (exceptionKeyFilter != null) {
+        //Filter outermost so a skipped lookup costs no remote read at all
+        resolver = new KeyFilteredCacheResolver(resolver, exceptionKeyFilter);
+      }
+      exceptionCacheResolver = resolver;
     } else {
       exceptionCacheResolver = null;
     }
 
+    //Resolve the additional behavior of the method
+    final CacheResultPolicy cacheResultPolicy = this.createCacheResultPolicy(cacheMethodDetails, method, targetClass);
+
     return new CacheResultMethodDetails(cacheMethodDetails,
         cacheResolver, exceptionCacheResolver,
         cacheKeyGenerator,
-        parameterDetails.allParameters, parameterDetails.keyParameters);
+        parameterDetails.allParameters, parameterDetails.keyParameters,
+        cacheResultPolicy);
+  }
+
+  /**
+   * Create the {@link CacheResultPolicy} for a {@link CacheResult} or {@link BulkCacheResult} annotated method from
+   * its other annotations
+   *
+   * @param cacheMethodDetails The base details of the annotated method
+   * @param method             The annotated method
+   * @param targetClass        The intercepted class
+   * @return The policy for the method
+   */
+  protected CacheResultPolicy createCacheResultPolicy(CacheMethodDetails<? extends Annotation> cacheMethodDetails,
+                                                      Method method, Class<? extends Object> targetClass) {
+    final CacheRefreshAhead refreshAheadAnnotation = getAnnotation(CacheRefreshAhead.class, method, targetClass);
+    final CacheEntryExpiry entryExpiry = this.createCacheEntryExpiry(method, targetClass);
+    final CostAdmissionFilter costAdmissionFilter =
+        this.createCostAdmissionFilter(cacheMethodDetails, method, targetClass);
+    final FrequencyAdmissionFilter frequencyAdmissionFilter =
+        FrequencyAdmissionFilter.forCache(cacheMethodDetails.getCacheName());
+    final CacheBypassTracker bypassTracker =
+        CacheBypassTracker.create(cacheMethodDetails.getCacheName(), cacheMethodDetails.getCacheName() + " " + method);
+    final CacheTagging cacheTagging = this.createCacheTagging(method);
+    final CacheConditionFilter conditionFilter = this.createCacheConditionFilter(method, targetClass);
+    final CacheTimeToLiveExtractor timeToLiveExtractor = this.createCacheTimeToLiveExtractor(method, targetClass);
+    if (refreshAheadAnnotation == null && entryExpiry == null && costAdmissionFilter == null &&
+        frequencyAdmissionFilter == null && bypassTracker == null && cacheTagging == null && conditionFilter == null &&
+        timeToLiveExtractor == null) {
+      return CacheResultPolicy.DEFAULT;
+    }
+
+    long refreshAfterMillis = 0;
+    if (refreshAheadAnnotation != null) {
+      refreshAfterMillis = refreshAheadAnnotation.timeUnit().toMillis(refreshAheadAnnotation.refreshAfter());
+      if (refreshAfterMillis <= 0) {
+        throw new AnnotationFormatError("CacheRefreshAhead.refreshAfter must be positive on " + method);
+      }
+    }
+    return new CacheResultPolicy(refreshAfterMillis, entryExpiry, costAdmissionFilter, frequencyAdmissionFilter,
+        bypassTracker, cacheTagging, conditionFilter, timeToLiveExtractor);
+  }
+
+  /**
+   * Create the cost based admission filter of a method from its {@link CacheCostAdmission} annotation and register
+   * it with JMX
+   *
+   * @param cacheMethodDetails The base details of the annotated method
+   * @param method             The annotated method
+   * @param targetClass        The intercepted class
+   * @return The filter, null if the method is not annotated
+   */
+  protected CostAdmissionFilter createCostAdmissionFilter(CacheMethodDetails<? extends Annotation> cacheMethodDetails,
+                                                          Method method, Class<? extends Object> targetClass) {
+    final CacheCostAdmission costAdmissionAnnotation = getAnnotation(CacheCostAdmission.class, method, targetClass);
+    if (costAdmissionAnnotation == null) {
+      return null;
+    }
+
+    final CostAdmissionFilter costAdmissionFilter;
+    try {
+      costAdmissionFilter = new CostAdmissionFilter(
+          costAdmissionAnnotation.timeUnit().toNanos(costAdmissionAnnotation.minComputeTime()),
+          costAdmissionAnnotation.percentile());
+    } catch (IllegalArgumentException e) {
+      throw new AnnotationFormatError("Invalid CacheCostAdmission on " + method + ": " + e.getMessage());
+    }
+    CacheManagementSupport.register(costAdmissionFilter, "CacheCostAdmission",
+        cacheMethodDetails.getCacheName() + " " + method);
+    return costAdmissionFilter;
+  }
+
+  /**
+   * Create the {@link CachePutPolicy} for a {@link CachePut} or {@link BulkCachePut} annotated method from its
+   * other annotations
+   *
+   * @param cacheMethodDetails The base details of the annotated method
+   * @param method             The annotated method
+   * @param targetClass        The intercepted class
+   * @return The policy for the method
+   */
+  protected CachePutPolicy createCachePutPolicy(CacheMethodDetails<? extends Annotation> cacheMethodDetails,
+                                                Method method, Class<? extends Object> targetClass) {
+    final CacheEntryExpiry entryExpiry = this.createCacheEntryExpiry(method, targetClass);
+    final CacheTagging cacheTagging = this.createCacheTagging(method);
+    final CacheConditionFilter conditionFilter = this.createCacheConditionFilter(method, targetClass);
+    final CacheTimeToLiveExtractor timeToLiveExtractor = this.createCacheTimeToLiveExtractor(method, targetClass);
+    if (entryExpiry == null && cacheTagging == null && conditionFilter == null && timeToLiveExtractor == null) {
+      return CachePutPolicy.DEFAULT;
+    }
+    return new CachePutPolicy(entryExpiry, cacheTagging, conditionFilter, timeToLiveExtractor);
+  }
+
+  /**
+   * Get the extractor of the {@link CacheTimeToLive} of a method, looked up with {@link #getObjectByType(Class)}
+   * and created with its no-argument constructor if it is not available that way
+   *
+   * @param method      The annotated method
+   * @param targetClass The intercepted class
+   * @return The extractor, null if the method has no CacheTimeToLive
+   */
+  protected CacheTimeToLiveExtractor createCacheTimeToLiveExtractor(Method method, Class<? extends Object> targetClass) {
+    final CacheTimeToLive timeToLiveAnnotation = getAnnotation(CacheTimeToLive.class, method, targetClass);
+    if (timeToLiveAnnotation == null) {
+      return null;
+    }
+    final Class<? extends CacheTimeToLiveExtractor> extractorType = timeToLiveAnnotation.extractor();
+    final CacheTimeToLiveExtractor extractor = this.getObjectByType(extractorType);
+    if (extractor != null) {
+      return extractor;
+    }
+    try {
+      return extractorType.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new AnnotationFormatError("Unable to create " + extractorType.getName() + " for " + method + ": " + e);
+    }
+  }
+
+  /**
+   * Create the predicates of the {@link CacheCondition} of a method
+   *
+   * @param method      The annotated method
+   * @param targetClass The intercepted class
+   * @return The predicates, null if the method has no CacheCondition
+   */
+  protected CacheConditionFilter createCacheConditionFilter(Method method, Class<? extends Object> targetClass) {
+    final CacheCondition cacheConditionAnnotation = getAnnotation(CacheCondition.class, method, targetClass);
+    if (cacheConditionAnnotation == null) {
+      return null;
+    }
+    final CachePredicate condition = this.createCachePredicate(cacheConditionAnnotation.condition(), method);
+    final CachePredicate unless = this.createCachePredicate(cacheConditionAnnotation.unless(), method);
+    if (condition == null && unless == null) {
+      return null;
+    }
+    return new CacheConditionFilter(condition, unless);
+  }
+
+  /**
+   * Get the predicate of a {@link CacheCondition}, looked up with {@link #getObjectByType(Class)} and created with
+   * its no-argument constructor if it is not available that way
+   *
+   * @param predicateType The predicate type from the annotation
+   * @param method        The annotated method
+   * @return The predicate, null if the type is {@link CachePredicate} itself
+   */
+  protected CachePredicate createCachePredicate(Class<? extends CachePredicate> predicateType, Method method) {
+    if (CachePredicate.class.equals(predicateType)) {
+      return null;
+    }
+    final CachePredicate predicate = this.getObjectByType(predicateType);
+    if (predicate != null) {
+      return predicate;
+    }
+    try {
+      return predicateType.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new AnnotationFormatError("Unable to create " + predicateType.getName() + " for " + method + ": " + e);
+    }
+  }
+
+  /**
+   * Find the {@link CacheTag} parameters of a method
+   *
+   * @param method The annotated method
+   * @return The tag parameters, null if the method has none
+   */
+  protected CacheTagging createCacheTagging(Method method) {
+    final List<String> names = new ArrayList<String>();
+    final List<Integer> positions = new ArrayList<Integer>();
+    final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+    for (int position = 0; position < parameterAnnotations.length; position++) {
+      for (final Annotation parameterAnnotation : parameterAnnotations[position]) {
+        if (parameterAnnotation instanceof CacheTag) {
+          final String name = ((CacheTag) parameterAnnotation).value();
+          if (name.length() == 0 || names.contains(name)) {
+            throw new AnnotationFormatError("CacheTag names must be non-empty and unique on " + method);
+          }
+          names.add(name);
+          positions.add(position);
+        }
+      }
+    }
+    if (names.isEmpty()) {
+      return null;
+    }
+
+    final int[] positionArray = new int[positions.size()];
+    for (int index = 0; index < positionArray.length; index++) {
+      positionArray[index] = positions.get(index);
+    }
+    return new CacheTagging(names.toArray(new String[names.size()]), positionArray);
+  }
+
+  /**
+   * Create the logical expiry of the values written by a method from its {@link CacheEarlyExpiration} annotation
+   *
+   * @param method      The annotated method
+   * @param targetClass The intercepted class
+   * @return The expiry, null if the method is not annotated
+   */
+  protected CacheEntryExpiry createCacheEntryExpiry(Method method, Class<? extends Object> targetClass) {
+    final CacheEarlyExpiration earlyExpirationAnnotation = getAnnotation(CacheEarlyExpiration.class, method, targetClass);
+    if (earlyExpirationAnnotation == null) {
+      return null;
+    }
+
+    try {
+      return new CacheEntryExpiry(
+          earlyExpirationAnnotation.timeUnit().toMillis(earlyExpirationAnnotation.timeToLive()),
+          earlyExpirationAnnotation.beta(), earlyExpirationAnnotation.jitter());
+    } catch (IllegalArgumentException e) {
+      throw new AnnotationFormatError("Invalid CacheEarlyExpiration on " + method + ": " + e.getMessage());
+    }
   }
 
   /**
@@ -327,12 +599,16 @@ public abstract class AbstractCacheLookupUtil<I> implements CacheContextSource<I
     final ParameterDetails parameterDetails = getParameterDetails(method, true);
 
     //Get the cache resolver to use for the method
-    final CacheResolver cacheResolver = cacheResolverFactory.getCacheResolver(cacheMethodDetails);
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
+
+    //Resolve the additional behavior of the method
+    final CachePutPolicy cachePutPolicy = this.createCachePutPolicy(cacheMethodDetails, method, targetClass);
 
     return new CachePutMethodDetails(cacheMethodDetails,
         cacheResolver, cacheKeyGenerator,
         parameterDetails.allParameters, parameterDetails.keyParameters,
-        parameterDetails.cacheValueParameter);
+        parameterDetails.cacheValueParameter, cachePutPolicy);
   }
 
   /**
@@ -367,13 +643,273 @@ public abstract class AbstractCacheLookupUtil<I> implements CacheContextSource<I
     final ParameterDetails parameterDetails = getParameterDetails(method, false);
 
     //Get the cache resolver to use for the method
-    final CacheResolver cacheResolver = cacheResolverFactory.getCacheResolver(cacheMethodDetails);
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
 
     return new CacheRemoveEntryMethodDetails(cacheMethodDetails,
         cacheResolver, cacheKeyGenerator,
         parameterDetails.allParameters, parameterDetails.keyParameters);
   }
 
+  /**
+   * Create a StaticCacheInvocationContext implementation specific to the {@link BulkCacheResult} annotated method
+   *
+   * @param bulkCacheResultAnnotation The annotation on the method
+   * @param cacheDefaultsAnnotation   The defaults annotation for the class, if it exists
+   * @param method                    The annotated method
+   * @param targetClass               The intercepted class
+   * @return Details on the annotated method
+   */
+  protected BulkCacheResultMethodDetails createBulkCacheResultMethodDetails(
+      BulkCacheResult bulkCacheResultAnnotation, CacheDefaults cacheDefaultsAnnotation,
+      Method method, Class<? extends Object> targetClass) {
+
+    //The merged result of cached and computed values is returned as a LinkedHashMap
+    if (!method.getReturnType().isAssignableFrom(LinkedHashMap.class)) {
+      throw new AnnotationFormatError("BulkCacheResult requires a Map return type on " + method);
+    }
+
+    //Determine the name of the cache
+    final String methodCacheName = bulkCacheResultAnnotation.cacheName();
+
+    //Create the method details instance
+    final CacheMethodDetails<BulkCacheResult> cacheMethodDetails =
+        createCacheMethodDetails(bulkCacheResultAnnotation, cacheDefaultsAnnotation, methodCacheName, method, targetClass);
+
+    //Find the cache resolver factory
+    final Class<? extends CacheResolverFactory> cacheResolverFactoryType = bulkCacheResultAnnotation.cacheResolverFactory();
+    final CacheResolverFactory cacheResolverFactory = this.getCacheResolverFactory(cacheResolverFactoryType, cacheDefaultsAnnotation);
+
+    //Find the key generator
+    final Class<? extends CacheKeyGenerator> cacheKeyGeneratorType = bulkCacheResultAnnotation.cacheKeyGenerator();
+    final CacheKeyGenerator cacheKeyGenerator = this.getCacheKeyGenerator(cacheKeyGeneratorType, cacheDefaultsAnnotation);
+
+    //Load parameter data, CacheValue is not allowed for BulkCacheResult
+    final ParameterDetails parameterDetails = getParameterDetails(method, false);
+    final CacheParameterDetails collectionParameter = this.getCollectionParameter(parameterDetails.keyParameters, method);
+
+    //Get the cache resolver to use for the method
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
+
+    //Every element is cached like a CacheResult value, except that a background refresh has no single invocation
+    //to recompute and tags are read once for the whole collection
+    if (getAnnotation(CacheRefreshAhead.class, method, targetClass) != null) {
+      throw new AnnotationFormatError("CacheRefreshAhead is not supported with BulkCacheResult on " + method);
+    }
+    for (final Annotation annotation : collectionParameter.getAnnotations()) {
+      if (annotation instanceof CacheTag) {
+        throw new AnnotationFormatError("The collection parameter cannot be a CacheTag on " + method);
+      }
+    }
+    final CacheResultPolicy cacheResultPolicy = this.createCacheResultPolicy(cacheMethodDetails, method, targetClass);
+
+    return new BulkCacheResultMethodDetails(cacheMethodDetails,
+        cacheResolver, cacheKeyGenerator,
+        parameterDetails.allParameters, parameterDetails.keyParameters,
+        collectionParameter, cacheResultPolicy);
+  }
+
+  /**
+   * Create a StaticCacheInvocationContext implementation specific to the {@link BulkCachePut} annotated method
+   *
+   * @param bulkCachePutAnnotation  The annotation on the method
+   * @param cacheDefaultsAnnotation The defaults annotation for the class, if it exists
+   * @param method                  The annotated method
+   * @param targetClass             The intercepted class
+   * @return Details on the annotated method
+   */
+  protected BulkCachePutMethodDetails createBulkCachePutMethodDetails(
+      BulkCachePut bulkCachePutAnnotation, CacheDefaults cacheDefaultsAnnotation,
+      Method method, Class<? extends Object> targetClass) {
+
+    //Determine the name of the cache
+    final String methodCacheName = bulkCachePutAnnotation.cacheName();
+
+    //Create the method details instance
+    final CacheMethodDetails<BulkCachePut> cacheMethodDetails =
+        createCacheMethodDetails(bulkCachePutAnnotation, cacheDefaultsAnnotation, methodCacheName, method, targetClass);
+
+    //Find the cache resolver factory
+    final Class<? extends CacheResolverFactory> cacheResolverFactoryType = bulkCachePutAnnotation.cacheResolverFactory();
+    final CacheResolverFactory cacheResolverFactory = this.getCacheResolverFactory(cacheResolverFactoryType, cacheDefaultsAnnotation);
+
+    //Find the key generator
+    final Class<? extends CacheKeyGenerator> cacheKeyGeneratorType = bulkCachePutAnnotation.cacheKeyGenerator();
+    final CacheKeyGenerator cacheKeyGenerator = this.getCacheKeyGenerator(cacheKeyGeneratorType, cacheDefaultsAnnotation);
+
+    //Load parameter data, a Map CacheValue is required for BulkCachePut
+    final ParameterDetails parameterDetails = getParameterDetails(method, true);
+    if (parameterDetails.cacheValueParameter == null ||
+        !Map.class.isAssignableFrom(parameterDetails.cacheValueParameter.getRawType())) {
+      throw new AnnotationFormatError("BulkCachePut requires a Map parameter annotated with CacheValue on " + method);
+    }
+
+    //Get the cache resolver to use for the method
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
+
+    //Every entry is stored like a CachePut value, tags are read once for the whole Map
+    for (final Annotation annotation : parameterDetails.cacheValueParameter.getAnnotations()) {
+      if (annotation instanceof CacheTag) {
+        throw new AnnotationFormatError("The CacheValue parameter cannot be a CacheTag on " + method);
+      }
+    }
+    final CachePutPolicy cachePutPolicy = this.createCachePutPolicy(cacheMethodDetails, method, targetClass);
+
+    return new BulkCachePutMethodDetails(cacheMethodDetails,
+        cacheResolver, cacheKeyGenerator,
+        parameterDetails.allParameters, parameterDetails.keyParameters,
+        parameterDetails.cacheValueParameter, cachePutPolicy);
+  }
+
+  /**
+   * Create a StaticCacheInvocationContext implementation specific to the {@link BulkCacheRemove} annotated method
+   *
+   * @param bulkCacheRemoveAnnotation The annotation on the method
+   * @param cacheDefaultsAnnotation   The defaults annotation for the class, if it exists
+   * @param method                    The annotated method
+   * @param targetClass               The intercepted class
+   * @return Details on the annotated method
+   */
+  protected BulkCacheRemoveMethodDetails createBulkCacheRemoveMethodDetails(
+      BulkCacheRemove bulkCacheRemoveAnnotation, CacheDefaults cacheDefaultsAnnotation,
+      Method method, Class<? extends Object> targetClass) {
+
+    //Determine the name of the cache
+    final String methodCacheName = bulkCacheRemoveAnnotation.cacheName();
+
+    //Create the method details instance
+    final CacheMethodDetails<BulkCacheRemove> cacheMethodDetails =
+        createCacheMethodDetails(bulkCacheRemoveAnnotation, cacheDefaultsAnnotation, methodCacheName, method, targetClass);
+
+    //Find the cache resolver factory
+    final Class<? extends CacheResolverFactory> cacheResolverFactoryType = bulkCacheRemoveAnnotation.cacheResolverFactory();
+    final CacheResolverFactory cacheResolverFactory = this.getCacheResolverFactory(cacheResolverFactoryType, cacheDefaultsAnnotation);
+
+    //Find the key generator
+    final Class<? extends CacheKeyGenerator> cacheKeyGeneratorType = bulkCacheRemoveAnnotation.cacheKeyGenerator();
+    final CacheKeyGenerator cacheKeyGenerator = this.getCacheKeyGenerator(cacheKeyGeneratorType, cacheDefaultsAnnotation);
+
+    //Load parameter data, CacheValue is not allowed for BulkCacheRemove
+    final ParameterDetails parameterDetails = getParameterDetails(method, false);
+    final CacheParameterDetails collectionParameter = this.getCollectionParameter(parameterDetails.keyParameters, method);
+
+    //Get the cache resolver to use for the method
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
+
+    return new BulkCacheRemoveMethodDetails(cacheMethodDetails,
+        cacheResolver, cacheKeyGenerator,
+        parameterDetails.allParameters, parameterDetails.keyParameters,
+        collectionParameter);
+  }
+
+  /**
+   * Create a StaticCacheInvocationContext implementation specific to the {@link CacheInvoke} annotated method
+   *
+   * @param cacheInvokeAnnotation   The annotation on the method
+   * @param cacheDefaultsAnnotation The defaults annotation for the class, if it exists
+   * @param method                  The annotated method
+   * @param targetClass             The intercepted class
+   * @return Details on the annotated method
+   */
+  protected CacheInvokeMethodDetails createCacheInvokeMethodDetails(
+      CacheInvoke cacheInvokeAnnotation, CacheDefaults cacheDefaultsAnnotation,
+      Method method, Class<? extends Object> targetClass) {
+
+    //Determine the name of the cache
+    final String methodCacheName = cacheInvokeAnnotation.cacheName();
+
+    //Create the method details instance
+    final CacheMethodDetails<CacheInvoke> cacheMethodDetails =
+        createCacheMethodDetails(cacheInvokeAnnotation, cacheDefaultsAnnotation, methodCacheName, method, targetClass);
+
+    //Entry processors run against the stored values, which a codec replaces with their encoded bytes
+    if (this.createCacheValueCodec(cacheMethodDetails.getCacheName()) != null) {
+      throw new AnnotationFormatError("CacheInvoke is not supported on cache " + cacheMethodDetails.getCacheName() +
+          " with codec.enabled on " + method);
+    }
+
+    //Find the cache resolver factory
+    final Class<? extends CacheResolverFactory> cacheResolverFactoryType = cacheInvokeAnnotation.cacheResolverFactory();
+    final CacheResolverFactory cacheResolverFactory = this.getCacheResolverFactory(cacheResolverFactoryType, cacheDefaultsAnnotation);
+
+    //Find the key generator
+    final Class<? extends CacheKeyGenerator> cacheKeyGeneratorType = cacheInvokeAnnotation.cacheKeyGenerator();
+    final CacheKeyGenerator cacheKeyGenerator = this.getCacheKeyGenerator(cacheKeyGeneratorType, cacheDefaultsAnnotation);
+
+    //Load parameter data, CacheValue is not allowed for CacheInvoke, the non-key parameters are the arguments
+    final ParameterDetails parameterDetails = getParameterDetails(method, false);
+    final List<CacheParameterDetails> argumentParameters = new ArrayList<CacheParameterDetails>(parameterDetails.allParameters);
+    argumentParameters.removeAll(parameterDetails.keyParameters);
+
+    //Get the cache resolver to use for the method
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
+
+    return new CacheInvokeMethodDetails(cacheMethodDetails,
+        cacheResolver, cacheKeyGenerator,
+        parameterDetails.allParameters, parameterDetails.keyParameters,
+        this.createEntryProcessor(cacheInvokeAnnotation.entryProcessor(), method),
+        Collections.unmodifiableList(argumentParameters));
+  }
+
+  /**
+   * Create the entry processor of a {@link CacheInvoke} annotated method, looked up with
+   * {@link #getObjectByType(Class)} and created with its no-argument constructor if it is not available that way.
+   * <p>
+   * Remote caches serialize the processor, a processor provided by the container must therefore be an instance
+   * rather than a proxy, such as a dependent scoped bean.
+   * </p>
+   *
+   * @param entryProcessorType The processor type from the annotation
+   * @param method             The annotated method
+   * @return The processor
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  protected EntryProcessor<Object, Object, Object> createEntryProcessor(
+      Class<? extends EntryProcessor> entryProcessorType, Method method) {
+    if (EntryProcessor.class.equals(entryProcessorType)) {
+      throw new AnnotationFormatError("CacheInvoke.entryProcessor must be specified on " + method);
+    }
+    final EntryProcessor<Object, Object, Object> entryProcessor = this.getObjectByType(entryProcessorType);
+    if (entryProcessor != null) {
+      return entryProcessor;
+    }
+    try {
+      return entryProcessorType.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new AnnotationFormatError("Unable to create " + entryProcessorType.getName() + " for " + method + ": " + e);
+    }
+  }
+
+  /**
+   * Find the key parameter holding the collection of elements of a bulk operation
+   *
+   * @param keyParameters The key parameters of the method
+   * @param method        The annotated method
+   * @return The collection parameter
+   * @throws AnnotationFormatError if there is not exactly one key parameter that is a Set, List or Collection
+   */
+  protected CacheParameterDetails getCollectionParameter(List<CacheParameterDetails> keyParameters, Method method) {
+    CacheParameterDetails collectionParameter = null;
+    for (final CacheParameterDetails keyParameter : keyParameters) {
+      final Class<?> rawType = keyParameter.getRawType();
+      if (Collection.class.isAssignableFrom(rawType) &&
+          (rawType.isAssignableFrom(LinkedHashSet.class) || rawType.isAssignableFrom(ArrayList.class))) {
+        if (collectionParameter != null) {
+          throw new AnnotationFormatError("Multiple collection key parameters are not allowed on " + method);
+        }
+        collectionParameter = keyParameter;
+      }
+    }
+    if (collectionParameter == null) {
+      throw new AnnotationFormatError("A Set, List or Collection key parameter is required on " + method);
+    }
+    return collectionParameter;
+  }
+
   /**
    * Create a StaticCacheInvocationContext implementation specific to the {@link CacheRemoveAll} annotated method
    *
@@ -401,12 +937,141 @@ public abstract class AbstractCacheLookupUtil<I> implements CacheContextSource<I
     final ParameterDetails parameterDetails = getParameterDetails(method, false);
 
     //Get the cache resolver to use for the method
-    final CacheResolver cacheResolver = cacheResolverFactory.getCacheResolver(cacheMethodDetails);
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
 
     return new CacheRemoveAllMethodDetails(cacheMethodDetails,
         cacheResolver, parameterDetails.allParameters);
   }
 
+  /**
+   * Create a StaticCacheInvocationContext implementation specific to the {@link CacheRemoveByTag} annotated method
+   *
+   * @param cacheRemoveByTagAnnotation The annotation on the method
+   * @param cacheDefaultsAnnotation    The defaults annotation for the class, if it exists
+   * @param method                     The annotated method
+   * @param targetClass                The intercepted class
+   * @return Details on the annotated method
+   */
+  protected CacheRemoveByTagMethodDetails createCacheRemoveByTagMethodDetails(
+      CacheRemoveByTag cacheRemoveByTagAnnotation, CacheDefaults cacheDefaultsAnnotation,
+      Method method, Class<? extends Object> targetClass) {
+
+    //Determine the name of the cache
+    final String methodCacheName = cacheRemoveByTagAnnotation.cacheName();
+
+    //Create the method details instance
+    final CacheMethodDetails<CacheRemoveByTag> cacheMethodDetails =
+        createCacheMethodDetails(cacheRemoveByTagAnnotation, cacheDefaultsAnnotation, methodCacheName, method, targetClass);
+
+    //Find the cache resolver factory
+    final Class<? extends CacheResolverFactory> cacheResolverFactoryType = cacheRemoveByTagAnnotation.cacheResolverFactory();
+    final CacheResolverFactory cacheResolverFactory = this.getCacheResolverFactory(cacheResolverFactoryType, cacheDefaultsAnnotation);
+
+    final ParameterDetails parameterDetails = getParameterDetails(method, false);
+
+    //Find the tags to invalidate
+    final CacheTagging cacheTagging = this.createCacheTagging(method);
+    if (cacheTagging == null) {
+      throw new AnnotationFormatError("At least one CacheTag parameter is required for CacheRemoveByTag on " + method);
+    }
+
+    //Get the cache resolver to use for the method
+    final CacheResolver cacheResolver =
+        this.decorateCacheResolver(cacheResolverFactory.getCacheResolver(cacheMethodDetails), cacheMethodDetails.getCacheName());
+
+    return new CacheRemoveByTagMethodDetails(cacheMethodDetails,
+        cacheResolver, parameterDetails.allParameters, cacheTagging);
+  }
+
+  /**
+   * Decorate the {@link CacheResolver} used for a cache.
+   * <p>
+   * The default implementation keeps oversized values out of the cache with a {@link SizeGuardedCacheResolver} if
+   * the <code>sizeGuard.enabled</code> setting of {@link CacheAnnotationsConfig} is true for the cache, stores
+   * values in encoded form with a {@link CodecCacheResolver} if {@link #createCacheValueCodec(String)} returns a
+   * codec for the cache, guards the
+   * cache with a {@link ResilientCacheResolver} if <code>resilience.enabled</code> is true, merges concurrent
+   * reads with a {@link BatchingCacheResolver} if <code>batching.enabled</code> is true, and keeps local tiers in
+   * front of it all with {@link NearCacheResolver}s if {@link LocalCacheStores} has a persistent store or a near
+   * cache store for the cache.
+   * </p>
+   *
+   * @param cacheResolver The resolver created by the {@link CacheResolverFactory}
+   * @param cacheName     The name of the cache the resolver is for
+   * @return The resolver to use
+   */
+  protected CacheResolver decorateCacheResolver(CacheResolver cacheResolver, String cacheName) {
+    CacheResolver decorated = cacheResolver;
+    final CacheSizeGuard sizeGuard = CacheSizeGuard.forCache(cacheName);
+    if (sizeGuard != null) {
+      //Inside the codec so the guard weighs the encoded bytes that are actually sent
+      decorated = new SizeGuardedCacheResolver(decorated, sizeGuard);
+    }
+    final CacheValueCodec codec = this.createCacheValueCodec(cacheName);
+    if (codec != null) {
+      decorated = new CodecCacheResolver(decorated, codec);
+    }
+    if (CacheAnnotationsConfig.getBoolean(cacheName, "resilience.enabled", false)) {
+      decorated = new ResilientCacheResolver(decorated, CacheCircuitBreaker.forCache(cacheName));
+    }
+    if (CacheAnnotationsConfig.getBoolean(cacheName, "batching.enabled", false)) {
+      //Batch outside of the circuit breaker so a whole batch is guarded as one operation
+      decorated = new BatchingCacheResolver(decorated, CacheGetBatcher.forCache(cacheName));
+    }
+    final LocalCacheStore persistentStore = LocalCacheStores.persistentForCache(cacheName);
+    if (persistentStore != null) {
+      //Behind the near cache, which then warms itself from the file after a restart
+      decorated = new NearCacheResolver(decorated, persistentStore,
+          CacheAnnotationsConfig.getLong(cacheName, "nearCache.persistent.timeToLiveMillis", 3600000L));
+    }
+    final LocalCacheStore nearCacheStore = LocalCacheStores.forCache(cacheName);
+    if (nearCacheStore != null) {
+      //Answer local hits before any remote machinery is involved
+      decorated = new NearCacheResolver(decorated, nearCacheStore,
+          CacheAnnotationsConfig.getLong(cacheName, "nearCache.timeToLiveMillis", 60000L));
+    }
+    return decorated;
+  }
+
+  /**
+   * Create the codec the values of a cache are stored with.
+   * <p>
+   * The default implementation returns null unless the <code>codec.enabled</code> setting of
+   * {@link CacheAnnotationsConfig} is true for the cache. The codec is a {@link CompactBinaryCodec}, or the
+   * {@link CacheValueCodec} class named by <code>codec.class</code>, compressed by a
+   * {@link CompressingCacheValueCodec} from <code>codec.compressThresholdBytes</code> on unless that is negative.
+   * </p>
+   *
+   * @param cacheName The name of the cache
+   * @return The codec, null to store values as they are
+   */
+  protected CacheValueCodec createCacheValueCodec(String cacheName) {
+    if (!CacheAnnotationsConfig.getBoolean(cacheName, "codec.enabled", false)) {
+      return null;
+    }
+
+    CacheValueCodec codec = new CompactBinaryCodec();
+    final String codecClassName = CacheAnnotationsConfig.getString(cacheName, "codec.class", null);
+    if (codecClassName != null) {
+      try {
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        codec = Class.forName(codecClassName, true, classLoader).asSubclass(CacheValueCodec.class).getDeclaredConstructor()
+            .newInstance();
+      } catch (Exception e) {
+        throw new CacheException("Unable to create codec " + codecClassName + " for cache " + cacheName, e);
+      }
+    }
+
+    final int compressThresholdBytes = CacheAnnotationsConfig.getInt(cacheName, "codec.compressThresholdBytes", 1024);
+    if (compressThresholdBytes >= 0) {
+      codec = new CompressingCacheValueCodec(codec, compressThresholdBytes,
+          CacheAnnotationsConfig.getInt(cacheName, "codec.compressLevel", Deflater.DEFAULT_COMPRESSION));
+    }
+    return codec;
+  }
+
+
   /**
    * Get an immutable set of all annotations on the method
    */
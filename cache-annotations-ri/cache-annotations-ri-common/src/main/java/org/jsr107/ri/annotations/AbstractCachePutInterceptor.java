@@ -99,14 +99,54 @@ public abstract class AbstractCachePutInterceptor<I> extends AbstractKeyedCacheI
   protected void cacheValue(final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext,
                             final CachePutMethodDetails methodDetails, final Object value) {
 
-    final Object cachedValue = value;
+    final CacheKeyGenerator cacheKeyGenerator = methodDetails.getCacheKeyGenerator();
+    final GeneratedCacheKey cacheKey = cacheKeyGenerator.generateCacheKey(cacheKeyInvocationContext);
+
+    //Invalidate the value the current request may have memoized
+    final RequestCacheMemo requestCacheMemo = this.getRequestCacheMemo();
+    if (requestCacheMemo != null) {
+      requestCacheMemo.remove(methodDetails.getCacheName(), cacheKey);
+    }
 
     final CacheResolver cacheResolver = methodDetails.getCacheResolver();
     final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheKeyInvocationContext);
+    if (cache == null) {
+      //No cache available yet, nothing to update
+      return;
+    }
 
-    final CacheKeyGenerator cacheKeyGenerator = methodDetails.getCacheKeyGenerator();
-    final GeneratedCacheKey cacheKey = cacheKeyGenerator.generateCacheKey(cacheKeyInvocationContext);
+    final CachePutPolicy policy = methodDetails.getCachePutPolicy();
+    final DeferredCacheOperations deferredOperations = this.getDeferredCacheOperations();
+
+    //A value the method's condition excludes replaces the entry all the same, remove it rather than keep it stale
+    final CacheConditionFilter conditionFilter = policy.getConditionFilter();
+    if (conditionFilter != null) {
+      final CacheInvocationParameter[] parameters = cacheKeyInvocationContext.getAllParameters();
+      if (!conditionFilter.isCacheable(parameters) || !conditionFilter.isStorable(parameters, value)) {
+        if (deferredOperations != null) {
+          deferredOperations.remove(cache, cacheKey);
+        } else {
+          cache.remove(cacheKey);
+        }
+        return;
+      }
+    }
 
-    cache.put(cacheKey, cachedValue);
+    final Object cachedValue;
+    if (value != null && policy.isValueHolderRequired(value)) {
+      //Store the value with its logical expiry and tag generations so readers through CacheResult honor them
+      final long now = System.currentTimeMillis();
+      final CacheTagging cacheTagging = policy.getCacheTagging();
+      cachedValue = new CacheValueHolder(value, now, 0L, policy.getExpiresAt(value, now), 0L,
+          cacheTagging != null ? cacheTagging.getGenerations(cache, cacheKeyInvocationContext.getAllParameters()) : null);
+    } else {
+      cachedValue = value;
+    }
+
+    if (deferredOperations != null) {
+      deferredOperations.put(cache, cacheKey, cachedValue);
+    } else {
+      cache.put(cacheKey, cachedValue);
+    }
   }
 }
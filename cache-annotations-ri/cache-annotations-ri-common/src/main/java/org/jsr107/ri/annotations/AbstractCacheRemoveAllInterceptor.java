@@ -92,9 +92,24 @@ public abstract class AbstractCacheRemoveAllInterceptor<I> extends AbstractCache
    */
   protected void removeAll(final InternalCacheInvocationContext<? extends Annotation> cacheInvocationContext,
                            final StaticCacheInvocationContext<CacheRemoveAll> methodDetails) {
+    //Invalidate all values the current request may have memoized
+    final RequestCacheMemo requestCacheMemo = this.getRequestCacheMemo();
+    if (requestCacheMemo != null) {
+      requestCacheMemo.removeAll(methodDetails.getCacheName());
+    }
+
     final CacheResolver cacheResolver = methodDetails.getCacheResolver();
     final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheInvocationContext);
-    cache.removeAll();
+    if (cache == null) {
+      //No cache available yet, nothing to remove
+      return;
+    }
+    final DeferredCacheOperations deferredOperations = this.getDeferredCacheOperations();
+    if (deferredOperations != null) {
+      deferredOperations.removeAll(cache);
+    } else {
+      cache.removeAll();
+    }
   }
 
   /**
@@ -0,0 +1,120 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheResolver;
+import java.lang.annotation.Annotation;
+import java.util.Map;
+
+
+/**
+ * Interceptor for {@link CacheRemoveByTag}
+ *
+ * @param <I> The intercepted method invocation
+ * @since 1.0
+ */
+public abstract class AbstractCacheRemoveByTagInterceptor<I> extends AbstractCacheInterceptor<I> {
+  /**
+   * Handles the tag invalidation as specified for the {@link CacheRemoveByTag} annotation
+   *
+   * @param cacheContextSource The intercepted invocation
+   * @param invocation         The intercepted invocation
+   * @return The result from {@link #proceed(Object)}
+   * @throws Throwable if {@link #proceed(Object)} threw
+   */
+  public final Object cacheRemoveByTag(CacheContextSource<I> cacheContextSource, I invocation) throws Throwable {
+    final InternalCacheInvocationContext<? extends Annotation> cacheInvocationContext = cacheContextSource.getCacheInvocationContext(invocation);
+
+    final StaticCacheInvocationContext<? extends Annotation> staticCacheInvocationContext =
+        cacheInvocationContext.getStaticCacheInvocationContext();
+    if (staticCacheInvocationContext.getInterceptorType() != InterceptorType.CACHE_REMOVE_BY_TAG) {
+      throw new IllegalStateException("AroundInvoke method for " + InterceptorType.CACHE_REMOVE_BY_TAG +
+          " called but MethodDetails.InterceptorType is " + staticCacheInvocationContext.getInterceptorType());
+    }
+    final CacheRemoveByTagMethodDetails methodDetails = (CacheRemoveByTagMethodDetails) staticCacheInvocationContext;
+
+    final CacheRemoveByTag cacheRemoveByTagAnnotation = methodDetails.getCacheAnnotation();
+    final boolean afterInvocation = cacheRemoveByTagAnnotation.afterInvocation();
+
+    //If pre-invocation - invalidate the tags
+    if (!afterInvocation) {
+      removeByTag(cacheInvocationContext, methodDetails);
+    }
+
+    final Object result;
+    try {
+      //Call the annotated method
+      result = this.proceed(invocation);
+    } catch (Throwable t) {
+      if (afterInvocation) {
+        //If after invocation is true and if the throwable passes the include/exclude filters and then invalidate
+        final Class<? extends Throwable>[] evictFor = cacheRemoveByTagAnnotation.evictFor();
+        final Class<? extends Throwable>[] noEvictFor = cacheRemoveByTagAnnotation.noEvictFor();
+
+        //Check for empty/null here since isIncluded returns true for those cases
+        final boolean cache = ClassFilter.isIncluded(t, evictFor, noEvictFor, false);
+
+        //Exception is included
+        if (cache) {
+          removeByTag(cacheInvocationContext, methodDetails);
+        }
+      }
+
+      throw t;
+    }
+
+    //If post-invocation - invalidate the tags
+    if (afterInvocation) {
+      removeByTag(cacheInvocationContext, methodDetails);
+    }
+
+    return result;
+  }
+
+  /**
+   * Resolve the Cache and replace the generations of the tag values
+   *
+   * @param cacheInvocationContext The invocation context
+   * @param methodDetails          The details about the annotated method
+   */
+  protected void removeByTag(final InternalCacheInvocationContext<? extends Annotation> cacheInvocationContext,
+                             final CacheRemoveByTagMethodDetails methodDetails) {
+    //The memo does not know the tags of its values, invalidate all of them for the cache
+    final RequestCacheMemo requestCacheMemo = this.getRequestCacheMemo();
+    if (requestCacheMemo != null) {
+      requestCacheMemo.removeAll(methodDetails.getCacheName());
+    }
+
+    final CacheResolver cacheResolver = methodDetails.getCacheResolver();
+    final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheInvocationContext);
+    if (cache == null) {
+      //No cache available yet, nothing to invalidate
+      return;
+    }
+
+    final Map<Object, Object> generations =
+        methodDetails.getCacheTagging().createNextGenerations(cacheInvocationContext.getAllParameters());
+    final DeferredCacheOperations deferredOperations = this.getDeferredCacheOperations();
+    if (deferredOperations != null) {
+      deferredOperations.putAll(cache, generations);
+    } else {
+      cache.putAll(generations);
+    }
+  }
+}
@@ -96,12 +96,27 @@ public abstract class AbstractCacheRemoveEntryInterceptor<I> extends AbstractKey
   private void cacheRemove(final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext,
                            final CacheRemoveEntryMethodDetails methodDetails) {
 
-    final CacheResolver cacheResolver = methodDetails.getCacheResolver();
-    final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheKeyInvocationContext);
-
     final CacheKeyGenerator cacheKeyGenerator = methodDetails.getCacheKeyGenerator();
     final GeneratedCacheKey cacheKey = cacheKeyGenerator.generateCacheKey(cacheKeyInvocationContext);
 
-    cache.remove(cacheKey);
+    //Invalidate the value the current request may have memoized
+    final RequestCacheMemo requestCacheMemo = this.getRequestCacheMemo();
+    if (requestCacheMemo != null) {
+      requestCacheMemo.remove(methodDetails.getCacheName(), cacheKey);
+    }
+
+    final CacheResolver cacheResolver = methodDetails.getCacheResolver();
+    final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheKeyInvocationContext);
+    if (cache == null) {
+      //No cache available yet, nothing to remove
+      return;
+    }
+
+    final DeferredCacheOperations deferredOperations = this.getDeferredCacheOperations();
+    if (deferredOperations != null) {
+      deferredOperations.remove(cache, cacheKey);
+    } else {
+      cache.remove(cacheKey);
+    }
   }
 }
@@ -18,11 +18,15 @@ package org.jsr107.ri.annotations;
 
 
 import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.cache.annotation.CacheInvocationParameter;
 import javax.cache.annotation.CacheKeyGenerator;
 import javax.cache.annotation.CacheResolver;
 import javax.cache.annotation.CacheResult;
 import javax.cache.annotation.GeneratedCacheKey;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 
 /**
@@ -51,26 +55,75 @@ public abstract class AbstractCacheResultInterceptor<I> extends AbstractKeyedCac
     final CacheResultMethodDetails methodDetails =
         this.getStaticCacheKeyInvocationContext(cacheKeyInvocationContext, InterceptorType.CACHE_RESULT);
 
+    //Leave invocations the method's condition excludes alone entirely
+    final CacheConditionFilter conditionFilter = methodDetails.getCacheResultPolicy().getConditionFilter();
+    if (conditionFilter != null && !conditionFilter.isCacheable(cacheKeyInvocationContext.getAllParameters())) {
+      return this.proceed(invocation);
+    }
+
+    //Generate the cache key
+    final CacheKeyGenerator cacheKeyGenerator = methodDetails.getCacheKeyGenerator();
+    final GeneratedCacheKey cacheKey = cacheKeyGenerator.generateCacheKey(cacheKeyInvocationContext);
+
+    final CacheResult cacheResultAnnotation = methodDetails.getCacheAnnotation();
+    final String cacheName = methodDetails.getCacheName();
+
+    //A background refresh re-entering through the bean's proxy must recompute, not read the entry it refreshes
+    final boolean refreshing = CacheRefresher.isRefreshing(cacheName, cacheKey);
+    final boolean skipGet = cacheResultAnnotation.skipGet() || refreshing;
+
+    //Check the memo of the current request before going to the shared cache
+    final RequestCacheMemo requestCacheMemo = this.getRequestCacheMemo();
+    Object result;
+    if (requestCacheMemo != null && !skipGet) {
+      result = requestCacheMemo.get(cacheName, cacheKey);
+      if (result != null) {
+        return result;
+      }
+    }
+
+    //Skip the cache entirely while the method's hit ratio is too low, except for sampled invocations
+    final CacheBypassTracker bypassTracker = methodDetails.getCacheResultPolicy().getBypassTracker();
+    if (!refreshing && bypassTracker != null && !bypassTracker.isCacheConsulted()) {
+      return this.proceed(invocation);
+    }
+
     //Resolve primary cache
     final CacheResolver cacheResolver = methodDetails.getCacheResolver();
     final Cache<Object, Object> cache = cacheResolver.resolveCache(cacheKeyInvocationContext);
+    if (cache == null) {
+      //No cache available yet, just call the annotated method
+      return this.proceed(invocation);
+    }
+
+    //Read the generations of the result's tags before invoking the method, so an invalidation during the
+    //invocation makes the stored result stale instead of being lost
+    final CacheTagging cacheTagging = methodDetails.getCacheResultPolicy().getCacheTagging();
+    final long[] tagGenerations = cacheTagging == null ? null :
+        cacheTagging.getGenerations(cache, cacheKeyInvocationContext.getAllParameters());
 
     //Resolve exception cache
     final Cache<Object, Throwable> exceptionCache = getExceptionCache(cacheKeyInvocationContext, methodDetails);
 
-    //Generate the cache key
-    final CacheKeyGenerator cacheKeyGenerator = methodDetails.getCacheKeyGenerator();
-    final GeneratedCacheKey cacheKey = cacheKeyGenerator.generateCacheKey(cacheKeyInvocationContext);
-
-    final CacheResult cacheResultAnnotation = methodDetails.getCacheAnnotation();
+    //A write or remove of the key buffered by the current transaction overrides what the shared cache holds, and
+    //results read or computed around it are not memoized, the memo would outlive the transaction's view of the key
+    final DeferredCacheOperations deferredOperations = this.getDeferredCacheOperations();
+    final boolean pending = deferredOperations != null && deferredOperations.isPending(cacheName, cacheKey);
+    final RequestCacheMemo resultMemo = pending ? null : requestCacheMemo;
 
     //If skip-get is false check for a cached result or a cached exception
-    Object result;
-    if (!cacheResultAnnotation.skipGet()) {
+    if (!skipGet) {
       //Look in cache for existing data
-      result = cache.get(cacheKey);
+      final Object cached = pending ? deferredOperations.getPendingValue(cacheName, cacheKey) : cache.get(cacheKey);
+      result = this.getCachedResult(cache, cacheKey, cacheKeyInvocationContext, methodDetails, cached, tagGenerations);
+      if (bypassTracker != null) {
+        bypassTracker.recordLookup(result != null);
+      }
       if (result != null) {
-        //Cache hit, return result
+        //Cache hit, remember it for the rest of the request and return result
+        if (resultMemo != null) {
+          resultMemo.put(cacheName, cacheKey, result);
+        }
         return result;
       }
 
@@ -80,11 +133,27 @@ public abstract class AbstractCacheResultInterceptor<I> extends AbstractKeyedCac
 
     try {
       //Call the annotated method
+      final long start = System.nanoTime();
       result = this.proceed(invocation);
+      final long computeNanos = System.nanoTime() - start;
 
-      //Cache non-null result
+      //Cache non-null result if it passes the condition and the admission policy
+      boolean stored = false;
       if (result != null) {
-        cache.put(cacheKey, result);
+        if ((conditionFilter == null || conditionFilter.isStorable(cacheKeyInvocationContext.getAllParameters(), result)) &&
+            methodDetails.getCacheResultPolicy().isAdmitted(cacheKey, computeNanos)) {
+          cache.put(cacheKey,
+              methodDetails.getCacheResultPolicy().createCachedValue(result, computeNanos, tagGenerations));
+          stored = true;
+        }
+        if (resultMemo != null) {
+          resultMemo.put(cacheName, cacheKey, result);
+        }
+      }
+
+      //A refresh that stores nothing drops the entry it refreshed, which would otherwise stay due on every read
+      if (refreshing && !stored) {
+        cache.remove(cacheKey);
       }
 
       return result;
@@ -96,6 +165,87 @@ public abstract class AbstractCacheResultInterceptor<I> extends AbstractKeyedCac
     }
   }
 
+  /**
+   * Get the result to return for an object read from the cache, applying the logical expiry and refresh-ahead
+   * of the method
+   *
+   * @param cache                     The cache the object was read from
+   * @param cacheKey                  The cache key
+   * @param cacheKeyInvocationContext The current invocation
+   * @param methodDetails             The details about the cached method
+   * @param cached                    The object read from the cache, may be null
+   * @param tagGenerations            The current generations of the method's tags, null if it has none
+   * @return The result, null if the annotated method needs to be invoked
+   */
+  protected Object getCachedResult(final Cache<Object, Object> cache, final GeneratedCacheKey cacheKey,
+                                   final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext,
+                                   final CacheResultMethodDetails methodDetails, final Object cached,
+                                   final long[] tagGenerations) {
+    final long now = System.currentTimeMillis();
+    final Object value = methodDetails.getCacheResultPolicy().getCachedValue(cached, tagGenerations, now);
+
+    //Refresh in the background if the value is past its soft expiry, or recompute it now if that is not possible
+    if (value != null && cached instanceof CacheValueHolder && ((CacheValueHolder) cached).isRefreshDue(now)) {
+      final Object refreshTarget = this.getRefreshTarget(cacheKeyInvocationContext);
+      if (refreshTarget == null) {
+        return null;
+      }
+      this.refreshAhead(refreshTarget, cacheKey, cacheKeyInvocationContext, methodDetails);
+    }
+    return value;
+  }
+
+  /**
+   * Get the object a background refresh invokes the method on. It must be a reference through which the method is
+   * intercepted, so the refresh passes this interceptor and every other one, and that can be used from a thread
+   * without the contexts of the current invocation, such as the client proxy of an application scoped bean.
+   * <p>
+   * The default implementation returns null, refresh-ahead then recomputes a value that is due for a refresh on
+   * the calling thread as if it had expired.
+   * </p>
+   *
+   * @param cacheKeyInvocationContext The current invocation
+   * @return The reference to refresh through, null if the method cannot be refreshed in the background
+   */
+  protected Object getRefreshTarget(final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext) {
+    return null;
+  }
+
+  /**
+   * Recompute and re-put a cached result in the background, by invoking the method with the current parameters
+   * on a reference from {@link #getRefreshTarget(InternalCacheKeyInvocationContext)}. The invocation is intercepted
+   * like any other, this interceptor recognizes it and recomputes and stores the value without reading the cache.
+   *
+   * @param refreshTarget             The reference to invoke the method on
+   * @param cacheKey                  The cache key
+   * @param cacheKeyInvocationContext The current invocation
+   * @param methodDetails             The details about the cached method
+   */
+  protected void refreshAhead(final Object refreshTarget, final GeneratedCacheKey cacheKey,
+                              final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext,
+                              final CacheResultMethodDetails methodDetails) {
+    final Method method = methodDetails.getMethod();
+    final CacheInvocationParameter[] parameters = cacheKeyInvocationContext.getAllParameters();
+    final Object[] arguments = new Object[parameters.length];
+    for (int index = 0; index < parameters.length; index++) {
+      arguments[index] = parameters[index].getValue();
+    }
+
+    CacheRefresher.getInstance().refresh(methodDetails.getCacheName(), cacheKey, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          method.setAccessible(true);
+          method.invoke(refreshTarget, arguments);
+        } catch (InvocationTargetException e) {
+          throw new CacheException("Invocation of " + method + " failed", e.getCause());
+        } catch (IllegalAccessException e) {
+          throw new CacheException("Unable to invoke " + method, e);
+        }
+      }
+    });
+  }
+
   /**
    * Check to see if there is a cached exception that needs to be re-thrown
    *
@@ -144,7 +294,7 @@ public abstract class AbstractCacheResultInterceptor<I> extends AbstractKeyedCac
    *
    * @param cacheKeyInvocationContext The invocation details
    * @param methodDetails             The method details
-   * @return The exception cache, null if exception caching is disabled.
+   * @return The exception cache, null if exception caching is disabled or no cache is available yet.
    */
   protected Cache<Object, Throwable> getExceptionCache(
       final InternalCacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext,
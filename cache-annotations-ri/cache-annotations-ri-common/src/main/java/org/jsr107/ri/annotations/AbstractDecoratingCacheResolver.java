@@ -0,0 +1,71 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheResolver;
+import java.lang.annotation.Annotation;
+
+/**
+ * Base for {@link CacheResolver}s that wrap the caches resolved by another resolver in a {@link ForwardingCache}.
+ *
+ * @since 1.0
+ */
+public abstract class AbstractDecoratingCacheResolver implements CacheResolver {
+  private final CacheResolver delegate;
+  private volatile ForwardingCache<?, ?> lastResolved;
+
+  /**
+   * @param delegate The resolver to wrap
+   */
+  protected AbstractDecoratingCacheResolver(CacheResolver delegate) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate cannot be null");
+    }
+    this.delegate = delegate;
+  }
+
+  /**
+   * Wrap a cache returned by the delegate resolver
+   *
+   * @param cache The resolved cache, never null
+   * @return The wrapper to return instead of the cache
+   */
+  protected abstract <K, V> ForwardingCache<K, V> wrap(Cache<K, V> cache);
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheResolver#resolveCache(javax.cache.annotation.CacheInvocationContext)
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <K, V> Cache<K, V> resolveCache(CacheInvocationContext<? extends Annotation> cacheInvocationContext) {
+    final Cache<K, V> cache = this.delegate.resolveCache(cacheInvocationContext);
+    if (cache == null) {
+      return null;
+    }
+
+    //Resolvers almost always return the same cache, reuse the wrapper for it
+    final ForwardingCache<?, ?> resolved = this.lastResolved;
+    if (resolved != null && resolved.getDelegate() == cache) {
+      return (Cache<K, V>) resolved;
+    }
+    final ForwardingCache<K, V> wrapper = this.wrap(cache);
+    this.lastResolved = wrapper;
+    return wrapper;
+  }
+}
@@ -0,0 +1,153 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base for {@link ForwardingCache}s that store values in another form than the one they are given and return.
+ * <p>
+ * Every operation that writes or compares values passes them through {@link #encode(Object)}, every operation that
+ * returns values passes what the underlying cache returned through {@link #decode(Object)}. Entry processors,
+ * listeners and iterators work on the underlying cache and see the stored form.
+ * </p>
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public abstract class AbstractTransformingCache<K, V> extends ForwardingCache<K, V> {
+
+  /**
+   * @param delegate The cache storing the transformed values
+   */
+  protected AbstractTransformingCache(Cache<K, V> delegate) {
+    super(delegate);
+  }
+
+  /**
+   * @param value The value to store, may be null
+   * @return The form to store in the underlying cache, cast to its value type
+   */
+  protected abstract V encode(V value);
+
+  /**
+   * @param stored The value read from the underlying cache, may be null
+   * @return The value to return
+   */
+  protected abstract V decode(V stored);
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#get(java.lang.Object)
+   */
+  @Override
+  public V get(K key) {
+    return this.decode(super.get(key));
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAll(java.util.Set)
+   */
+  @Override
+  public Map<K, V> getAll(Set<? extends K> keys) {
+    final Map<K, V> stored = super.getAll(keys);
+    final Map<K, V> decoded = new LinkedHashMap<K, V>();
+    for (final Map.Entry<K, V> entry : stored.entrySet()) {
+      decoded.put(entry.getKey(), this.decode(entry.getValue()));
+    }
+    return decoded;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#put(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public void put(K key, V value) {
+    super.put(key, this.encode(value));
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAndPut(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public V getAndPut(K key, V value) {
+    return this.decode(super.getAndPut(key, this.encode(value)));
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#putAll(java.util.Map)
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    final Map<K, V> encoded = new LinkedHashMap<K, V>();
+    for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      encoded.put(entry.getKey(), this.encode(entry.getValue()));
+    }
+    super.putAll(encoded);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#putIfAbsent(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean putIfAbsent(K key, V value) {
+    return super.putIfAbsent(key, this.encode(value));
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#remove(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean remove(K key, V oldValue) {
+    return super.remove(key, this.encode(oldValue));
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAndRemove(java.lang.Object)
+   */
+  @Override
+  public V getAndRemove(K key) {
+    return this.decode(super.getAndRemove(key));
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#replace(java.lang.Object, java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    return super.replace(key, this.encode(oldValue), this.encode(newValue));
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#replace(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean replace(K key, V value) {
+    return super.replace(key, this.encode(value));
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAndReplace(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public V getAndReplace(K key, V value) {
+    return this.decode(super.getAndReplace(key, this.encode(value)));
+  }
+}
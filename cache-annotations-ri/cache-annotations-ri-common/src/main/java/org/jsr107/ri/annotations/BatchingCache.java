@@ -0,0 +1,50 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+
+/**
+ * {@link ForwardingCache} that routes {@link #get(Object)} through a {@link CacheGetBatcher}.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public class BatchingCache<K, V> extends ForwardingCache<K, V> {
+  private final CacheGetBatcher batcher;
+
+  /**
+   * @param delegate The cache to read from
+   * @param batcher  Merges concurrent reads into batches
+   */
+  public BatchingCache(Cache<K, V> delegate, CacheGetBatcher batcher) {
+    super(delegate);
+    if (batcher == null) {
+      throw new IllegalArgumentException("batcher cannot be null");
+    }
+    this.batcher = batcher;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#get(java.lang.Object)
+   */
+  @Override
+  public V get(K key) {
+    return this.batcher.get(this.getDelegate(), key);
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.enterprise.util.Nonbinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores every entry of a {@link java.util.Map} parameter in a cache with one {@link javax.cache.Cache#putAll(java.util.Map)}.
+ * <p>
+ * The map parameter is marked with {@link javax.cache.annotation.CacheValue}. The cache key of each entry is generated
+ * by the method's {@link CacheKeyGenerator} from the key parameters with the map key appended, so with the default
+ * generator and no other key parameters the entries are shared with a {@link javax.cache.annotation.CacheResult}
+ * method such as <code>User findUser(String id)</code> on the same cache. For example:
+ * </p>
+ * <pre><code>
+ * &#64;BulkCachePut(cacheName="users")
+ * public void saveUsers(&#64;CacheValue Map&lt;String, User&gt; users)
+ * </code></pre>
+ * <p>
+ * {@link #afterInvocation()}, {@link #cacheFor()} and {@link #noCacheFor()} behave as they do for
+ * {@link javax.cache.annotation.CachePut}, and so do {@link CacheTimeToLive}, {@link CacheCondition},
+ * {@link CacheEarlyExpiration} and {@link CacheTag} parameters other than the map, applied to every entry. An entry
+ * with a null value, or one the condition excludes, is removed from the cache.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BulkCachePut {
+
+  /**
+   * @return The name of the cache, defaults to the {@link javax.cache.annotation.CacheDefaults} cache name
+   */
+  @Nonbinding String cacheName() default "";
+
+  /**
+   * @return When the entries are stored, before or after the method is invoked
+   */
+  @Nonbinding boolean afterInvocation() default true;
+
+  /**
+   * @return The {@link CacheResolverFactory} used to find the cache
+   */
+  @Nonbinding Class<? extends CacheResolverFactory> cacheResolverFactory() default CacheResolverFactory.class;
+
+  /**
+   * @return The {@link CacheKeyGenerator} used to generate the key of each entry
+   */
+  @Nonbinding Class<? extends CacheKeyGenerator> cacheKeyGenerator() default CacheKeyGenerator.class;
+
+  /**
+   * @return Exceptions that still cause the entries to be stored when {@link #afterInvocation()} is true
+   */
+  @Nonbinding Class<? extends Throwable>[] cacheFor() default {};
+
+  /**
+   * @return Exceptions that prevent the entries from being stored when {@link #afterInvocation()} is true
+   */
+  @Nonbinding Class<? extends Throwable>[] noCacheFor() default {};
+}
@@ -0,0 +1,94 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import java.util.List;
+
+/**
+ * Details for a method annotated with {@link BulkCachePut}
+ *
+ * @since 1.0
+ */
+public class BulkCachePutMethodDetails extends StaticCacheKeyInvocationContext<BulkCachePut> {
+  private final CacheParameterDetails cacheValueParameter;
+  private final CacheParameterDetails elementParameter;
+  private final CachePutPolicy cachePutPolicy;
+
+  /**
+   * @param cacheMethodDetails
+   * @param cacheResolver
+   * @param cacheKeyGenerator   The key generator to use
+   * @param allParameters       All parameter details
+   * @param keyParameters       Parameter details to use for key generation
+   * @param cacheValueParameter The Map parameter holding the entries to store
+   * @param cachePutPolicy      Additional behavior of the method, applied to every entry
+   */
+  public BulkCachePutMethodDetails(CacheMethodDetails<BulkCachePut> cacheMethodDetails,
+                                   CacheResolver cacheResolver, CacheKeyGenerator cacheKeyGenerator,
+                                   List<CacheParameterDetails> allParameters,
+                                   List<CacheParameterDetails> keyParameters,
+                                   CacheParameterDetails cacheValueParameter,
+                                   CachePutPolicy cachePutPolicy) {
+
+    super(cacheMethodDetails, cacheResolver, cacheKeyGenerator, allParameters, keyParameters);
+
+    if (cacheValueParameter == null) {
+      throw new IllegalArgumentException("cacheValueParameter cannot be null");
+    }
+    if (cachePutPolicy == null) {
+      throw new IllegalArgumentException("cachePutPolicy cannot be null");
+    }
+
+    this.cacheValueParameter = cacheValueParameter;
+    this.elementParameter = new CacheParameterDetails(Object.class, cacheValueParameter.getAnnotations(),
+        cacheValueParameter.getParameterPosition());
+    this.cachePutPolicy = cachePutPolicy;
+  }
+
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.interceptor.MethodDetails#getInterceptorType()
+   */
+  @Override
+  public InterceptorType getInterceptorType() {
+    return InterceptorType.BULK_CACHE_PUT;
+  }
+
+  /**
+   * @return The Map parameter holding the entries to store
+   */
+  public CacheParameterDetails getCacheValueParameter() {
+    return this.cacheValueParameter;
+  }
+
+  /**
+   * @return The parameter appended to the key parameters when generating the key of one entry
+   */
+  public CacheParameterDetails getElementParameter() {
+    return this.elementParameter;
+  }
+
+  /**
+   * @return Additional behavior of the method, applied to every entry
+   */
+  public CachePutPolicy getCachePutPolicy() {
+    return this.cachePutPolicy;
+  }
+}
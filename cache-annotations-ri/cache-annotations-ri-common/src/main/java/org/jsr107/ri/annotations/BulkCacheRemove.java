@@ -0,0 +1,78 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.enterprise.util.Nonbinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Removes the entries for every element of a collection parameter from a cache with one
+ * {@link javax.cache.Cache#removeAll(java.util.Set)}.
+ * <p>
+ * Exactly one key parameter of the annotated method must be a {@link java.util.Collection}, {@link java.util.Set}
+ * or {@link java.util.List}. The cache key of each element is generated as for {@link BulkCacheResult}. For example:
+ * </p>
+ * <pre><code>
+ * &#64;BulkCacheRemove(cacheName="users")
+ * public void deleteUsers(Set&lt;String&gt; ids)
+ * </code></pre>
+ * <p>
+ * {@link #afterInvocation()}, {@link #evictFor()} and {@link #noEvictFor()} behave as they do for
+ * {@link javax.cache.annotation.CacheRemove}.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BulkCacheRemove {
+
+  /**
+   * @return The name of the cache, defaults to the {@link javax.cache.annotation.CacheDefaults} cache name
+   */
+  @Nonbinding String cacheName() default "";
+
+  /**
+   * @return When the entries are removed, before or after the method is invoked
+   */
+  @Nonbinding boolean afterInvocation() default true;
+
+  /**
+   * @return The {@link CacheResolverFactory} used to find the cache
+   */
+  @Nonbinding Class<? extends CacheResolverFactory> cacheResolverFactory() default CacheResolverFactory.class;
+
+  /**
+   * @return The {@link CacheKeyGenerator} used to generate the key of each element
+   */
+  @Nonbinding Class<? extends CacheKeyGenerator> cacheKeyGenerator() default CacheKeyGenerator.class;
+
+  /**
+   * @return Exceptions that still cause the entries to be removed when {@link #afterInvocation()} is true
+   */
+  @Nonbinding Class<? extends Throwable>[] evictFor() default {};
+
+  /**
+   * @return Exceptions that prevent the entries from being removed when {@link #afterInvocation()} is true
+   */
+  @Nonbinding Class<? extends Throwable>[] noEvictFor() default {};
+}
@@ -0,0 +1,80 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import java.util.List;
+
+/**
+ * Details for a method annotated with {@link BulkCacheRemove}
+ *
+ * @since 1.0
+ */
+public class BulkCacheRemoveMethodDetails extends StaticCacheKeyInvocationContext<BulkCacheRemove> {
+  private final CacheParameterDetails collectionParameter;
+  private final CacheParameterDetails elementParameter;
+
+  /**
+   * @param cacheMethodDetails
+   * @param cacheResolver
+   * @param cacheKeyGenerator   The key generator to use
+   * @param allParameters       All parameter details
+   * @param keyParameters       Parameter details to use for key generation
+   * @param collectionParameter The key parameter holding the collection of elements
+   */
+  public BulkCacheRemoveMethodDetails(CacheMethodDetails<BulkCacheRemove> cacheMethodDetails,
+                                      CacheResolver cacheResolver, CacheKeyGenerator cacheKeyGenerator,
+                                      List<CacheParameterDetails> allParameters,
+                                      List<CacheParameterDetails> keyParameters,
+                                      CacheParameterDetails collectionParameter) {
+
+    super(cacheMethodDetails, cacheResolver, cacheKeyGenerator, allParameters, keyParameters);
+
+    if (collectionParameter == null) {
+      throw new IllegalArgumentException("collectionParameter cannot be null");
+    }
+
+    this.collectionParameter = collectionParameter;
+    this.elementParameter = new CacheParameterDetails(Object.class, collectionParameter.getAnnotations(),
+        collectionParameter.getParameterPosition());
+  }
+
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.interceptor.MethodDetails#getInterceptorType()
+   */
+  @Override
+  public InterceptorType getInterceptorType() {
+    return InterceptorType.BULK_CACHE_REMOVE;
+  }
+
+  /**
+   * @return The key parameter holding the collection of elements
+   */
+  public CacheParameterDetails getCollectionParameter() {
+    return this.collectionParameter;
+  }
+
+  /**
+   * @return The parameter used in place of the collection when generating the key of one element
+   */
+  public CacheParameterDetails getElementParameter() {
+    return this.elementParameter;
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.enterprise.util.Nonbinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the results of a method that loads values for a collection of keys, one cache entry per element.
+ * <p>
+ * Exactly one key parameter of the annotated method must be a {@link java.util.Collection}, {@link java.util.Set}
+ * or {@link java.util.List}, and the method must return a {@link java.util.Map} from element to value. For example:
+ * </p>
+ * <pre><code>
+ * &#64;BulkCacheResult(cacheName="users")
+ * public Map&lt;String, User&gt; findUsers(Set&lt;String&gt; ids)
+ * </code></pre>
+ * <p>
+ * A cache key is generated for every element by the method's {@link CacheKeyGenerator}, with the collection
+ * parameter replaced by the element, so with the default generator the entries are shared with a
+ * {@link javax.cache.annotation.CacheResult} method such as <code>User findUser(String id)</code> on the same cache.
+ * All keys are read with one {@link javax.cache.Cache#getAll(java.util.Set)}, the method is invoked only for the
+ * elements that were missing, and its results are stored with one {@link javax.cache.Cache#putAll(java.util.Map)}.
+ * The returned map holds the cached and the computed values, elements without a value are left out.
+ * </p>
+ * <p>
+ * The method's {@link CacheCondition}, {@link CacheTag}s, {@link CacheEarlyExpiration}, {@link CacheTimeToLive}
+ * and admission annotations apply to every element as they do to a {@link javax.cache.annotation.CacheResult}
+ * value. {@link CacheRefreshAhead} is not supported, and the collection parameter cannot be a {@link CacheTag}.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BulkCacheResult {
+
+  /**
+   * @return The name of the cache, defaults to the {@link javax.cache.annotation.CacheDefaults} cache name
+   */
+  @Nonbinding String cacheName() default "";
+
+  /**
+   * @return The {@link CacheResolverFactory} used to find the cache
+   */
+  @Nonbinding Class<? extends CacheResolverFactory> cacheResolverFactory() default CacheResolverFactory.class;
+
+  /**
+   * @return The {@link CacheKeyGenerator} used to generate the key of each element
+   */
+  @Nonbinding Class<? extends CacheKeyGenerator> cacheKeyGenerator() default CacheKeyGenerator.class;
+}
@@ -0,0 +1,109 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Details for a method annotated with {@link BulkCacheResult}
+ *
+ * @since 1.0
+ */
+public class BulkCacheResultMethodDetails extends StaticCacheKeyInvocationContext<BulkCacheResult> {
+  private final CacheParameterDetails collectionParameter;
+  private final CacheParameterDetails elementParameter;
+  private final CacheResultPolicy cacheResultPolicy;
+
+  /**
+   * @param cacheMethodDetails
+   * @param cacheResolver
+   * @param cacheKeyGenerator   The key generator to use
+   * @param allParameters       All parameter details
+   * @param keyParameters       Parameter details to use for key generation
+   * @param collectionParameter The key parameter holding the collection of elements
+   * @param cacheResultPolicy   Additional behavior of the method, applied to every element
+   */
+  public BulkCacheResultMethodDetails(CacheMethodDetails<BulkCacheResult> cacheMethodDetails,
+                                      CacheResolver cacheResolver, CacheKeyGenerator cacheKeyGenerator,
+                                      List<CacheParameterDetails> allParameters,
+                                      List<CacheParameterDetails> keyParameters,
+                                      CacheParameterDetails collectionParameter,
+                                      CacheResultPolicy cacheResultPolicy) {
+
+    super(cacheMethodDetails, cacheResolver, cacheKeyGenerator, allParameters, keyParameters);
+
+    if (collectionParameter == null) {
+      throw new IllegalArgumentException("collectionParameter cannot be null");
+    }
+    if (cacheResultPolicy == null) {
+      throw new IllegalArgumentException("cacheResultPolicy cannot be null");
+    }
+
+    this.collectionParameter = collectionParameter;
+    this.elementParameter = new CacheParameterDetails(Object.class, collectionParameter.getAnnotations(),
+        collectionParameter.getParameterPosition());
+    this.cacheResultPolicy = cacheResultPolicy;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.interceptor.MethodDetails#getInterceptorType()
+   */
+  @Override
+  public InterceptorType getInterceptorType() {
+    return InterceptorType.BULK_CACHE_RESULT;
+  }
+
+  /**
+   * @return The key parameter holding the collection of elements
+   */
+  public CacheParameterDetails getCollectionParameter() {
+    return this.collectionParameter;
+  }
+
+  /**
+   * @return The parameter used in place of the collection when generating the key of one element
+   */
+  public CacheParameterDetails getElementParameter() {
+    return this.elementParameter;
+  }
+
+  /**
+   * @return Additional behavior of the method, applied to every element
+   */
+  public CacheResultPolicy getCacheResultPolicy() {
+    return this.cacheResultPolicy;
+  }
+
+  /**
+   * Create a collection that can be passed as the collection parameter
+   *
+   * @param elements The elements of the collection
+   * @return A new collection of the parameter's type holding the elements
+   */
+  public Collection<Object> createCollection(Collection<?> elements) {
+    if (this.collectionParameter.getRawType().isAssignableFrom(LinkedHashSet.class)) {
+      return new LinkedHashSet<Object>(elements);
+    }
+    return new ArrayList<Object>(elements);
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheKeyInvocationContext;
+import javax.cache.annotation.GeneratedCacheKey;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link CacheKeyInvocationContext} for one element of a bulk operation. It exposes the key parameters of the
+ * intercepted invocation with the parameter at the element's position replaced by the element, or with the element
+ * appended if that position is not a key parameter, so the method's key generator creates the element's key.
+ *
+ * @param <A> The type of annotation this context information is for
+ * @since 1.0
+ */
+public class BulkElementCacheKeyInvocationContext<A extends Annotation> implements CacheKeyInvocationContext<A> {
+  private final CacheKeyInvocationContext<A> delegate;
+  private final CacheInvocationParameter[] keyParameters;
+
+  /**
+   * @param delegate         The context of the intercepted invocation
+   * @param elementParameter Details of the parameter the element stands in for
+   * @param element          The element
+   */
+  public BulkElementCacheKeyInvocationContext(CacheKeyInvocationContext<A> delegate,
+                                              CacheParameterDetails elementParameter, Object element) {
+    this.delegate = delegate;
+
+    final CacheInvocationParameter elementInvocationParameter = new CacheInvocationParameterImpl(elementParameter, element);
+    final CacheInvocationParameter[] delegateKeyParameters = delegate.getKeyParameters();
+    for (int index = 0; index < delegateKeyParameters.length; index++) {
+      if (delegateKeyParameters[index].getParameterPosition() == elementParameter.getParameterPosition()) {
+        delegateKeyParameters[index] = elementInvocationParameter;
+        this.keyParameters = delegateKeyParameters;
+        return;
+      }
+    }
+
+    this.keyParameters = new CacheInvocationParameter[delegateKeyParameters.length + 1];
+    System.arraycopy(delegateKeyParameters, 0, this.keyParameters, 0, delegateKeyParameters.length);
+    this.keyParameters[delegateKeyParameters.length] = elementInvocationParameter;
+  }
+
+  /**
+   * Generate the cache key of each element of a bulk operation
+   *
+   * @param cacheKeyInvocationContext The context of the intercepted invocation
+   * @param cacheKeyGenerator         The key generator of the annotated method
+   * @param elementParameter          Details of the parameter the elements stand in for
+   * @param elements                  The elements, null elements are skipped
+   * @param <A>                       The type of annotation
+   * @return The key of each distinct element, in iteration order of the elements
+   */
+  public static <A extends Annotation> Map<Object, GeneratedCacheKey> generateCacheKeys(
+      CacheKeyInvocationContext<A> cacheKeyInvocationContext, CacheKeyGenerator cacheKeyGenerator,
+      CacheParameterDetails elementParameter, Collection<?> elements) {
+
+    final Map<Object, GeneratedCacheKey> elementKeys = new LinkedHashMap<Object, GeneratedCacheKey>();
+    for (final Object element : elements) {
+      if (element != null && !elementKeys.containsKey(element)) {
+        elementKeys.put(element, cacheKeyGenerator.generateCacheKey(
+            new BulkElementCacheKeyInvocationContext<A>(cacheKeyInvocationContext, elementParameter, element)));
+      }
+    }
+    return elementKeys;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheKeyInvocationContext#getKeyParameters()
+   */
+  @Override
+  public CacheInvocationParameter[] getKeyParameters() {
+    return this.keyParameters.clone();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheKeyInvocationContext#getValueParameter()
+   */
+  @Override
+  public CacheInvocationParameter getValueParameter() {
+    return this.delegate.getValueParameter();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheInvocationContext#getTarget()
+   */
+  @Override
+  public Object getTarget() {
+    return this.delegate.getTarget();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheInvocationContext#getAllParameters()
+   */
+  @Override
+  public CacheInvocationParameter[] getAllParameters() {
+    return this.delegate.getAllParameters();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheInvocationContext#unwrap(java.lang.Class)
+   */
+  @Override
+  public <T> T unwrap(Class<T> cls) {
+    return this.delegate.unwrap(cls);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheMethodDetails#getMethod()
+   */
+  @Override
+  public Method getMethod() {
+    return this.delegate.getMethod();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheMethodDetails#getAnnotations()
+   */
+  @Override
+  public Set<Annotation> getAnnotations() {
+    return this.delegate.getAnnotations();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheMethodDetails#getCacheAnnotation()
+   */
+  @Override
+  public A getCacheAnnotation() {
+    return this.delegate.getCacheAnnotation();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheMethodDetails#getCacheName()
+   */
+  @Override
+  public String getCacheName() {
+    return this.delegate.getCacheName();
+  }
+}
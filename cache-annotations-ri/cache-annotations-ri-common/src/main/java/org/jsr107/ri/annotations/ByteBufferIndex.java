@@ -0,0 +1,190 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Open addressing hash index of the entries a local store keeps in a {@link ByteBuffer}.
+ * <p>
+ * The index holds only the hash and buffer offset of each entry in two <code>int</code> arrays, keys are compared
+ * with the bytes stored in the buffer at <code>keyOffset</code> from the start of their entry, preceded by their
+ * length as an <code>int</code> at <code>keyLengthOffset</code>. Slots are removed by shifting back the slots that
+ * probed past them, so lookups never see tombstones. Not thread safe, callers guard every method with the lock of
+ * their buffer.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class ByteBufferIndex {
+  private final int keyLengthOffset;
+  private final int keyOffset;
+  private ByteBuffer buffer;
+  //Offset + 1 of each indexed entry, an offset of 0 marks a free slot
+  private int[] hashes = new int[64];
+  private int[] offsets = new int[64];
+  private int size;
+
+  /**
+   * @param buffer          The buffer holding the entries
+   * @param keyLengthOffset Position of the key length relative to the start of an entry
+   * @param keyOffset       Position of the key bytes relative to the start of an entry
+   */
+  ByteBufferIndex(ByteBuffer buffer, int keyLengthOffset, int keyOffset) {
+    this.buffer = buffer;
+    this.keyLengthOffset = keyLengthOffset;
+    this.keyOffset = keyOffset;
+  }
+
+  /**
+   * @param buffer The buffer the indexed entries are now in, at the same offsets
+   */
+  void setBuffer(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * @return Number of indexed entries
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * @param hash The hash of the key
+   * @param key  The key bytes
+   * @return The slot of the entry for the key, -1 if there is none
+   */
+  int find(int hash, byte[] key) {
+    final int mask = this.offsets.length - 1;
+    for (int i = hash & mask; this.offsets[i] != 0; i = (i + 1) & mask) {
+      if (this.hashes[i] == hash && this.keyEquals(this.offsets[i] - 1, key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param hash   The hash of the key of the entry
+   * @param offset The offset of the entry
+   * @return The slot indexing the entry at the offset, -1 if that entry is not indexed
+   */
+  int findOffset(int hash, int offset) {
+    final int mask = this.offsets.length - 1;
+    for (int i = hash & mask; this.offsets[i] != 0; i = (i + 1) & mask) {
+      if (this.offsets[i] == offset + 1) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param slot A slot returned by {@link #find(int, byte[])} or {@link #findOffset(int, int)}
+   * @return The offset of the entry in the slot
+   */
+  int offsetAt(int slot) {
+    return this.offsets[slot] - 1;
+  }
+
+  /**
+   * Index an entry, the key must not be indexed already
+   *
+   * @param hash   The hash of the key
+   * @param offset The offset of the entry
+   */
+  void insert(int hash, int offset) {
+    if ((this.size + 1) * 4 > this.offsets.length * 3) {
+      this.resize();
+    }
+    final int mask = this.offsets.length - 1;
+    int i = hash & mask;
+    while (this.offsets[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    this.hashes[i] = hash;
+    this.offsets[i] = offset + 1;
+    this.size++;
+  }
+
+  /**
+   * Remove a slot
+   *
+   * @param slot The slot
+   * @return The offset of the entry that was in the slot
+   */
+  int remove(int slot) {
+    final int mask = this.offsets.length - 1;
+    final int offset = this.offsets[slot] - 1;
+    this.offsets[slot] = 0;
+    this.size--;
+
+    int hole = slot;
+    for (int i = (hole + 1) & mask; this.offsets[i] != 0; i = (i + 1) & mask) {
+      final int home = this.hashes[i] & mask;
+      final boolean movable = i > hole ? (home <= hole || home > i) : (home <= hole && home > i);
+      if (movable) {
+        this.hashes[hole] = this.hashes[i];
+        this.offsets[hole] = this.offsets[i];
+        this.offsets[i] = 0;
+        hole = i;
+      }
+    }
+    return offset;
+  }
+
+  /**
+   * Remove all entries
+   */
+  void clear() {
+    Arrays.fill(this.offsets, 0);
+    this.size = 0;
+  }
+
+  private boolean keyEquals(int offset, byte[] key) {
+    if (this.buffer.getInt(offset + this.keyLengthOffset) != key.length) {
+      return false;
+    }
+    final int start = offset + this.keyOffset;
+    for (int i = 0; i < key.length; i++) {
+      if (this.buffer.get(start + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void resize() {
+    final int[] oldHashes = this.hashes;
+    final int[] oldOffsets = this.offsets;
+    this.hashes = new int[oldHashes.length << 1];
+    this.offsets = new int[oldOffsets.length << 1];
+    final int mask = this.offsets.length - 1;
+    for (int j = 0; j < oldOffsets.length; j++) {
+      if (oldOffsets[j] != 0) {
+        int i = oldHashes[j] & mask;
+        while (this.offsets[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        this.hashes[i] = oldHashes[j];
+        this.offsets[i] = oldOffsets[j];
+      }
+    }
+  }
+}
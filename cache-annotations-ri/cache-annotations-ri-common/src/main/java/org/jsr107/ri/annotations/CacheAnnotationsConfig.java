@@ -0,0 +1,152 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.logging.Logger;
+
+/**
+ * Reads the system properties used to tune the annotations layer.
+ * <p>
+ * Global settings are read from {@code org.jsr107.ri.annotations.<name>}. Settings that may differ per cache are
+ * first read from {@code org.jsr107.ri.annotations.cache.<cacheName>.<name>} and then fall back to the global value.
+ * </p>
+ *
+ * @since 1.0
+ */
+public final class CacheAnnotationsConfig {
+  /**
+   * Prefix of all system properties read by the annotations layer
+   */
+  public static final String PREFIX = "org.jsr107.ri.annotations.";
+
+  private static final Logger LOGGER = Logger.getLogger(CacheAnnotationsConfig.class.getName());
+
+  private CacheAnnotationsConfig() {
+  }
+
+  /**
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined
+   * @return The configured value
+   */
+  public static String getString(String name, String defaultValue) {
+    final String value = System.getProperty(PREFIX + name);
+    return value == null || value.trim().length() == 0 ? defaultValue : value.trim();
+  }
+
+  /**
+   * @param cacheName    The name of the cache the setting applies to
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined
+   * @return The configured value
+   */
+  public static String getString(String cacheName, String name, String defaultValue) {
+    final String value = System.getProperty(PREFIX + "cache." + cacheName + "." + name);
+    if (value == null || value.trim().length() == 0) {
+      return getString(name, defaultValue);
+    }
+    return value.trim();
+  }
+
+  /**
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined
+   * @return The configured value
+   */
+  public static boolean getBoolean(String name, boolean defaultValue) {
+    return Boolean.parseBoolean(getString(name, Boolean.toString(defaultValue)));
+  }
+
+  /**
+   * @param cacheName    The name of the cache the setting applies to
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined
+   * @return The configured value
+   */
+  public static boolean getBoolean(String cacheName, String name, boolean defaultValue) {
+    return Boolean.parseBoolean(getString(cacheName, name, Boolean.toString(defaultValue)));
+  }
+
+  /**
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined or is not a number
+   * @return The configured value
+   */
+  public static long getLong(String name, long defaultValue) {
+    return parseLong(name, getString(name, null), defaultValue);
+  }
+
+  /**
+   * @param cacheName    The name of the cache the setting applies to
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined or is not a number
+   * @return The configured value
+   */
+  public static long getLong(String cacheName, String name, long defaultValue) {
+    return parseLong(name, getString(cacheName, name, null), defaultValue);
+  }
+
+  /**
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined or is not a number
+   * @return The configured value
+   */
+  public static int getInt(String name, int defaultValue) {
+    return (int) getLong(name, defaultValue);
+  }
+
+  /**
+   * @param cacheName    The name of the cache the setting applies to
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined or is not a number
+   * @return The configured value
+   */
+  public static int getInt(String cacheName, String name, int defaultValue) {
+    return (int) getLong(cacheName, name, defaultValue);
+  }
+
+  /**
+   * @param cacheName    The name of the cache the setting applies to
+   * @param name         The setting name, without the prefix
+   * @param defaultValue The value to use if the setting is not defined or is not a number
+   * @return The configured value
+   */
+  public static double getDouble(String cacheName, String name, double defaultValue) {
+    final String value = getString(cacheName, name, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      LOGGER.warning("Ignoring non-numeric value '" + value + "' for " + PREFIX + name);
+      return defaultValue;
+    }
+  }
+
+  private static long parseLong(String name, String value, long defaultValue) {
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      LOGGER.warning("Ignoring non-numeric value '" + value + "' for " + PREFIX + name);
+      return defaultValue;
+    }
+  }
+}
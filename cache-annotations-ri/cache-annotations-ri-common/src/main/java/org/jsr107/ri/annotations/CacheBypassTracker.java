@@ -0,0 +1,192 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the hit ratio of a {@link javax.cache.annotation.CacheResult} method and stops consulting the cache when
+ * it is persistently low.
+ * <p>
+ * Lookups are counted in consecutive windows of <code>bypass.windowSize</code> lookups. When the hit ratio of a
+ * window is below <code>bypass.minHitRatio</code> the method switches to BYPASSED, where only one in
+ * <code>bypass.sampleRate</code> invocations gets and puts, the others just invoke the method. The sampled lookups
+ * keep filling windows, and the method switches back to ACTIVE once a window reaches the minimum hit ratio again.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CacheBypassTracker implements CacheBypassTrackerMXBean {
+  /**
+   * Whether the cache is consulted
+   */
+  public enum State {
+    /**
+     * Every invocation consults the cache
+     */
+    ACTIVE,
+    /**
+     * Only sampled invocations consult the cache
+     */
+    BYPASSED
+  }
+
+  private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final String name;
+  private final int windowSize;
+  private final double minHitRatio;
+  private final int sampleRate;
+
+  private final AtomicLong windowLookups = new AtomicLong();
+  private final AtomicLong windowHits = new AtomicLong();
+  private final AtomicLong invocations = new AtomicLong();
+  private final AtomicLong bypassed = new AtomicLong();
+  private final AtomicLong stateChanges = new AtomicLong();
+  private volatile State state = State.ACTIVE;
+  private volatile double lastHitRatio = 1.0;
+
+  /**
+   * @param name        Name of the tracked method, used for logging
+   * @param windowSize  Number of lookups per window
+   * @param minHitRatio Hit ratio below which the cache is bypassed
+   * @param sampleRate  While bypassed one in this many invocations consults the cache
+   */
+  public CacheBypassTracker(String name, int windowSize, double minHitRatio, int sampleRate) {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("windowSize must be positive");
+    }
+    if (sampleRate <= 0) {
+      throw new IllegalArgumentException("sampleRate must be positive");
+    }
+    this.name = name;
+    this.windowSize = windowSize;
+    this.minHitRatio = minHitRatio;
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Create the tracker for a method if bypassing is enabled for its cache, and register it with JMX
+   *
+   * @param cacheName The name of the cache
+   * @param name      Name of the tracked method
+   * @return The tracker, null if bypassing is not enabled for the cache
+   */
+  public static CacheBypassTracker create(String cacheName, String name) {
+    if (!CacheAnnotationsConfig.getBoolean(cacheName, "bypass.enabled", false)) {
+      return null;
+    }
+
+    final CacheBypassTracker tracker = new CacheBypassTracker(name,
+        CacheAnnotationsConfig.getInt(cacheName, "bypass.windowSize", 1000),
+        CacheAnnotationsConfig.getDouble(cacheName, "bypass.minHitRatio", 0.05),
+        CacheAnnotationsConfig.getInt(cacheName, "bypass.sampleRate", 100));
+    CacheManagementSupport.register(tracker, "CacheBypass", name);
+    return tracker;
+  }
+
+  /**
+   * @return true if this invocation should consult the cache
+   */
+  public boolean isCacheConsulted() {
+    if (this.state == State.ACTIVE || this.invocations.incrementAndGet() % this.sampleRate == 0) {
+      return true;
+    }
+    this.bypassed.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Record the outcome of a cache lookup, completing the window if it is full
+   *
+   * @param hit true if the lookup found a value
+   */
+  public void recordLookup(boolean hit) {
+    if (hit) {
+      this.windowHits.incrementAndGet();
+    }
+    if (this.windowLookups.incrementAndGet() != this.windowSize) {
+      return;
+    }
+
+    final long hits = this.windowHits.getAndSet(0);
+    this.windowLookups.addAndGet(-this.windowSize);
+    final double hitRatio = Math.min(1.0, (double) hits / this.windowSize);
+    this.lastHitRatio = hitRatio;
+
+    final State newState = hitRatio < this.minHitRatio ? State.BYPASSED : State.ACTIVE;
+    if (newState != this.state) {
+      this.state = newState;
+      this.stateChanges.incrementAndGet();
+      logger.info("Cache for " + this.name + " is now " + newState + ", hit ratio " + hitRatio);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheBypassTrackerMXBean#getState()
+   */
+  @Override
+  public String getState() {
+    return this.state.name();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheBypassTrackerMXBean#getLastHitRatio()
+   */
+  @Override
+  public double getLastHitRatio() {
+    return this.lastHitRatio;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheBypassTrackerMXBean#getMinHitRatio()
+   */
+  @Override
+  public double getMinHitRatio() {
+    return this.minHitRatio;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheBypassTrackerMXBean#getBypassedCount()
+   */
+  @Override
+  public long getBypassedCount() {
+    return this.bypassed.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheBypassTrackerMXBean#getStateChangeCount()
+   */
+  @Override
+  public long getStateChangeCount() {
+    return this.stateChanges.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheBypassTrackerMXBean#reset()
+   */
+  @Override
+  public void reset() {
+    this.windowHits.set(0);
+    this.windowLookups.set(0);
+    if (this.state != State.ACTIVE) {
+      this.state = State.ACTIVE;
+      this.stateChanges.incrementAndGet();
+    }
+  }
+}
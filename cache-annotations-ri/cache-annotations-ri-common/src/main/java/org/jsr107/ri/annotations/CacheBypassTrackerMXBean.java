@@ -0,0 +1,55 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Management view of a {@link CacheBypassTracker}.
+ *
+ * @since 1.0
+ */
+public interface CacheBypassTrackerMXBean {
+
+  /**
+   * @return The current state, ACTIVE or BYPASSED
+   */
+  String getState();
+
+  /**
+   * @return The hit ratio of the last completed window
+   */
+  double getLastHitRatio();
+
+  /**
+   * @return Hit ratio below which the cache is bypassed
+   */
+  double getMinHitRatio();
+
+  /**
+   * @return Number of invocations that did not consult the cache
+   */
+  long getBypassedCount();
+
+  /**
+   * @return Number of times the state changed
+   */
+  long getStateChangeCount();
+
+  /**
+   * Return to the ACTIVE state and start a new window
+   */
+  void reset();
+}
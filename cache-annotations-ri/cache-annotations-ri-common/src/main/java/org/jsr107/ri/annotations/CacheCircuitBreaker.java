@@ -0,0 +1,258 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker guarding the operations on a single named cache.
+ * <p>
+ * After <code>failureThreshold</code> consecutive failed, timed out or slow operations the circuit opens and all
+ * operations are skipped for <code>openMillis</code>. The first operation after that is let through as a probe,
+ * the circuit closes again if the probe succeeds and re-opens if it fails.
+ * </p>
+ * <p>
+ * Settings are read per cache from {@link CacheAnnotationsConfig}: <code>resilience.timeoutMillis</code>,
+ * <code>resilience.slowCallMillis</code>, <code>resilience.failureThreshold</code> and
+ * <code>resilience.openMillis</code>.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CacheCircuitBreaker implements CacheCircuitBreakerMXBean {
+  /**
+   * States of the circuit
+   */
+  public enum State {
+    /**
+     * Operations are executed
+     */
+    CLOSED,
+    /**
+     * Operations are skipped
+     */
+    OPEN,
+    /**
+     * A single probe operation is being executed to decide whether to close the circuit, others are skipped
+     */
+    HALF_OPEN
+  }
+
+  private static final ConcurrentMap<String, CacheCircuitBreaker> BREAKERS = new ConcurrentHashMap<String, CacheCircuitBreaker>();
+
+  private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final String cacheName;
+  private final long timeoutMillis;
+  private final long slowCallNanos;
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private volatile long openedAt;
+
+  private final AtomicLong successCount = new AtomicLong();
+  private final AtomicLong failureCount = new AtomicLong();
+  private final AtomicLong timeoutCount = new AtomicLong();
+  private final AtomicLong slowCallCount = new AtomicLong();
+  private final AtomicLong shortCircuitCount = new AtomicLong();
+  private final AtomicLong openCount = new AtomicLong();
+
+  /**
+   * Create a circuit breaker
+   *
+   * @param cacheName        The name of the guarded cache
+   * @param timeoutMillis    Deadline for each cache operation, 0 or less to run operations without a deadline
+   * @param slowCallMillis   Operations taking longer than this count as failures, 0 or less to disable
+   * @param failureThreshold Consecutive failures that open the circuit
+   * @param openMillis       How long the circuit stays open before a probe is let through
+   */
+  public CacheCircuitBreaker(String cacheName, long timeoutMillis, long slowCallMillis, int failureThreshold, long openMillis) {
+    this.cacheName = cacheName;
+    this.timeoutMillis = timeoutMillis;
+    this.slowCallNanos = slowCallMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(slowCallMillis) : Long.MAX_VALUE;
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+  }
+
+  /**
+   * Get the shared circuit breaker for a cache, creating and registering it with JMX on first use
+   *
+   * @param cacheName The name of the guarded cache
+   * @return The circuit breaker for the cache
+   */
+  public static CacheCircuitBreaker forCache(String cacheName) {
+    CacheCircuitBreaker breaker = BREAKERS.get(cacheName);
+    if (breaker != null) {
+      return breaker;
+    }
+
+    breaker = new CacheCircuitBreaker(cacheName,
+        CacheAnnotationsConfig.getLong(cacheName, "resilience.timeoutMillis", 0L),
+        CacheAnnotationsConfig.getLong(cacheName, "resilience.slowCallMillis", 0L),
+        CacheAnnotationsConfig.getInt(cacheName, "resilience.failureThreshold", 5),
+        CacheAnnotationsConfig.getLong(cacheName, "resilience.openMillis", 10000L));
+    final CacheCircuitBreaker existing = BREAKERS.putIfAbsent(cacheName, breaker);
+    if (existing != null) {
+      return existing;
+    }
+    CacheManagementSupport.register(breaker, "CacheCircuitBreaker", cacheName);
+    return breaker;
+  }
+
+  /**
+   * @return The name of the guarded cache
+   */
+  public String getCacheName() {
+    return this.cacheName;
+  }
+
+  /**
+   * @return Deadline for each cache operation, 0 or less if operations run without a deadline
+   */
+  public long getTimeoutMillis() {
+    return this.timeoutMillis;
+  }
+
+  /**
+   * Check if an operation may be executed, callers that get true must report the outcome with
+   * {@link #onSuccess(long)}, {@link #onFailure()} or {@link #onTimeout()}.
+   *
+   * @return true if the operation should be executed, false if it must be skipped
+   */
+  public boolean allowRequest() {
+    switch (this.state.get()) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        //The caller moving the circuit to HALF_OPEN is the probe, there is no window for a second one
+        if (System.nanoTime() - this.openedAt >= this.openNanos
+            && this.state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+          return true;
+        }
+        break;
+      default:
+        break;
+    }
+    this.shortCircuitCount.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Record an allowed operation that could not be executed, for example because no thread was available
+   */
+  public void onRejected() {
+    this.shortCircuitCount.incrementAndGet();
+    //A probe that did not run decides nothing, let the next operation probe instead
+    this.state.compareAndSet(State.HALF_OPEN, State.OPEN);
+  }
+
+  /**
+   * Record a completed operation
+   *
+   * @param elapsedNanos How long the operation took
+   */
+  public void onSuccess(long elapsedNanos) {
+    if (elapsedNanos > this.slowCallNanos) {
+      this.slowCallCount.incrementAndGet();
+      this.recordFailure();
+      return;
+    }
+    this.successCount.incrementAndGet();
+    this.consecutiveFailures.set(0);
+    if (this.state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+      logger.info("Circuit for cache '" + this.cacheName + "' closed");
+    }
+  }
+
+  /**
+   * Record an operation that threw an exception
+   */
+  public void onFailure() {
+    this.failureCount.incrementAndGet();
+    this.recordFailure();
+  }
+
+  /**
+   * Record an operation that did not complete within the deadline
+   */
+  public void onTimeout() {
+    this.timeoutCount.incrementAndGet();
+    this.recordFailure();
+  }
+
+  private void recordFailure() {
+    final int failures = this.consecutiveFailures.incrementAndGet();
+    final State current = this.state.get();
+    if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= this.failureThreshold)) {
+      this.openedAt = System.nanoTime();
+      if (this.state.compareAndSet(current, State.OPEN)) {
+        this.openCount.incrementAndGet();
+        logger.warning("Circuit for cache '" + this.cacheName + "' opened after " + failures +
+            " consecutive failures, cache operations are skipped for " + TimeUnit.NANOSECONDS.toMillis(this.openNanos) + "ms");
+      }
+    }
+  }
+
+  @Override
+  public String getState() {
+    return this.state.get().name();
+  }
+
+  @Override
+  public long getSuccessCount() {
+    return this.successCount.get();
+  }
+
+  @Override
+  public long getFailureCount() {
+    return this.failureCount.get();
+  }
+
+  @Override
+  public long getTimeoutCount() {
+    return this.timeoutCount.get();
+  }
+
+  @Override
+  public long getSlowCallCount() {
+    return this.slowCallCount.get();
+  }
+
+  @Override
+  public long getShortCircuitCount() {
+    return this.shortCircuitCount.get();
+  }
+
+  @Override
+  public long getOpenCount() {
+    return this.openCount.get();
+  }
+
+  @Override
+  public void reset() {
+    this.consecutiveFailures.set(0);
+    this.state.set(State.CLOSED);
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Management view of a {@link CacheCircuitBreaker}.
+ *
+ * @since 1.0
+ */
+public interface CacheCircuitBreakerMXBean {
+
+  /**
+   * @return The current state, one of CLOSED, OPEN or HALF_OPEN
+   */
+  String getState();
+
+  /**
+   * @return Number of cache operations that completed normally
+   */
+  long getSuccessCount();
+
+  /**
+   * @return Number of cache operations that threw an exception
+   */
+  long getFailureCount();
+
+  /**
+   * @return Number of cache operations that did not complete within the operation deadline
+   */
+  long getTimeoutCount();
+
+  /**
+   * @return Number of cache operations that completed but took longer than the slow call threshold
+   */
+  long getSlowCallCount();
+
+  /**
+   * @return Number of cache operations that were skipped because the circuit was open or no thread was available
+   */
+  long getShortCircuitCount();
+
+  /**
+   * @return Number of times the circuit has opened
+   */
+  long getOpenCount();
+
+  /**
+   * Close the circuit and reset the consecutive failure count
+   */
+  void reset();
+}
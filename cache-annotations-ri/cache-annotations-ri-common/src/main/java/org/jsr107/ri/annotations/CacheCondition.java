@@ -0,0 +1,57 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restricts which invocations of a method annotated with {@link javax.cache.annotation.CacheResult} or
+ * {@link javax.cache.annotation.CachePut} use the cache.
+ * <p>
+ * {@link #condition()} is evaluated before the cache is consulted, with a null value. When it does not match, a
+ * CacheResult method is invoked without looking up or storing its result. {@link #unless()} is evaluated with the
+ * value about to be cached, when it matches the value is not stored. A CachePut that is skipped by either
+ * predicate removes the entry instead, so the cache never keeps a value the method just replaced. For example:
+ * </p>
+ * <pre><code>
+ * &#64;CacheResult(cacheName="reports")
+ * &#64;CacheCondition(unless=LargeReportPredicate.class)
+ * public Report getReport(String id)
+ * </code></pre>
+ *
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheCondition {
+
+  /**
+   * @return Predicate that must match for the cache to be used, {@link CachePredicate} to always use it
+   */
+  Class<? extends CachePredicate> condition() default CachePredicate.class;
+
+  /**
+   * @return Predicate that prevents the value from being cached when it matches, {@link CachePredicate} to
+   *         cache all values
+   */
+  Class<? extends CachePredicate> unless() default CachePredicate.class;
+}
@@ -0,0 +1,55 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheInvocationParameter;
+
+/**
+ * The predicates of a {@link CacheCondition}, resolved once by {@link AbstractCacheLookupUtil}.
+ *
+ * @since 1.0
+ */
+public class CacheConditionFilter {
+  private final CachePredicate condition;
+  private final CachePredicate unless;
+
+  /**
+   * @param condition Predicate that must match for the cache to be used, null to always use it
+   * @param unless    Predicate that prevents the value from being cached when it matches, null to cache all values
+   */
+  public CacheConditionFilter(CachePredicate condition, CachePredicate unless) {
+    this.condition = condition;
+    this.unless = unless;
+  }
+
+  /**
+   * @param parameters The parameters of the invocation
+   * @return true if the cache is used for the invocation
+   */
+  public boolean isCacheable(CacheInvocationParameter[] parameters) {
+    return this.condition == null || this.condition.test(parameters, null);
+  }
+
+  /**
+   * @param parameters The parameters of the invocation
+   * @param value      The value about to be cached
+   * @return true if the value is stored
+   */
+  public boolean isStorable(CacheInvocationParameter[] parameters, Object value) {
+    return this.unless == null || !this.unless.test(parameters, value);
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Only caches the results of a method annotated with {@link javax.cache.annotation.CacheResult} that were expensive
+ * to compute.
+ * <p>
+ * The annotated method is timed on every invocation and its result is only put into the cache if the invocation
+ * took at least {@link #minComputeTime()}, and, if {@link #percentile()} is set, at least as long as that
+ * percentile of recent invocations. The numbers of admitted and rejected puts are available through the
+ * <code>CacheCostAdmission</code> MXBean of the method.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheCostAdmission {
+
+  /**
+   * @return Minimum time an invocation must take for its result to be cached
+   */
+  long minComputeTime() default 0;
+
+  /**
+   * @return The unit of {@link #minComputeTime()}
+   */
+  TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+
+  /**
+   * @return Percentile, between 0 and 100, of recent invocation times an invocation must reach for its result to
+   *         be cached, 0 to only use {@link #minComputeTime()}
+   */
+  int percentile() default 0;
+}
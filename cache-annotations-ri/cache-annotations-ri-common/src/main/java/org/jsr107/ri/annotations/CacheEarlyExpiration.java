@@ -0,0 +1,68 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives the values written by a method annotated with {@link javax.cache.annotation.CacheResult} or
+ * {@link javax.cache.annotation.CachePut} a logical time to live, enforced by the annotations layer rather than
+ * by the cache.
+ * <p>
+ * Values are stored in a {@link CacheValueHolder} together with the time they were written, their expiry and,
+ * for {@link javax.cache.annotation.CacheResult}, how long the method took to compute them. A read of an expired
+ * value is treated as a miss. Before that, a reader recomputes the value early with a probability that rises as
+ * the expiry approaches and with the compute time of the method (XFetch), so recomputation of keys written at the
+ * same time is spread out instead of happening in one burst. {@link #jitter()} additionally shortens the time to
+ * live of each write by a random fraction.
+ * </p>
+ * <p>
+ * The cache's own expiry should be longer than {@link #timeToLive()} so the logical expiry is reached first.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheEarlyExpiration {
+
+  /**
+   * @return How long written values live
+   */
+  long timeToLive();
+
+  /**
+   * @return The unit of {@link #timeToLive()}
+   */
+  TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+  /**
+   * @return How eagerly values are recomputed before they expire, 0 disables early recomputation
+   */
+  double beta() default 1.0;
+
+  /**
+   * @return The maximum fraction, between 0 and 1, by which the time to live of each write is randomly shortened
+   */
+  double jitter() default 0.0;
+}
@@ -0,0 +1,100 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logical expiry of the values written by a method, see {@link CacheEarlyExpiration}.
+ *
+ * @since 1.0
+ */
+public class CacheEntryExpiry {
+  private final long timeToLiveMillis;
+  private final double beta;
+  private final double jitter;
+
+  /**
+   * @param timeToLiveMillis How long written values live
+   * @param beta             How eagerly values are recomputed before they expire, 0 disables early recomputation
+   * @param jitter           The maximum fraction by which the time to live of each write is randomly shortened
+   */
+  public CacheEntryExpiry(long timeToLiveMillis, double beta, double jitter) {
+    if (timeToLiveMillis <= 0) {
+      throw new IllegalArgumentException("timeToLiveMillis must be positive");
+    }
+    if (beta < 0) {
+      throw new IllegalArgumentException("beta cannot be negative");
+    }
+    if (jitter < 0 || jitter >= 1) {
+      throw new IllegalArgumentException("jitter must be at least 0 and less than 1");
+    }
+    this.timeToLiveMillis = timeToLiveMillis;
+    this.beta = beta;
+    this.jitter = jitter;
+  }
+
+  /**
+   * @return How long written values live
+   */
+  public long getTimeToLiveMillis() {
+    return this.timeToLiveMillis;
+  }
+
+  /**
+   * @return How eagerly values are recomputed before they expire
+   */
+  public double getBeta() {
+    return this.beta;
+  }
+
+  /**
+   * @return The maximum fraction by which the time to live of each write is randomly shortened
+   */
+  public double getJitter() {
+    return this.jitter;
+  }
+
+  /**
+   * @param nowMillis The time the value is written
+   * @return When a value written now expires, including jitter
+   */
+  public long getExpiresAt(long nowMillis) {
+    long ttl = this.timeToLiveMillis;
+    if (this.jitter > 0) {
+      ttl -= (long) (ttl * this.jitter * ThreadLocalRandom.current().nextDouble());
+    }
+    return nowMillis + ttl;
+  }
+
+  /**
+   * Decide if the caller should recompute a value that has not expired yet. The probability rises as the expiry
+   * approaches, scaled by the time it took to compute the value and by {@link #getBeta()}.
+   *
+   * @param holder    The cached value
+   * @param nowMillis The current time
+   * @return true if the caller should recompute the value
+   */
+  public boolean isEarlyExpiration(CacheValueHolder holder, long nowMillis) {
+    if (this.beta <= 0 || holder.getExpiresMillis() == 0 || holder.getComputeNanos() <= 0) {
+      return false;
+    }
+    final double computeMillis = holder.getComputeNanos() / 1000000d;
+    final double gap = -computeMillis * this.beta * Math.log(1.0 - ThreadLocalRandom.current().nextDouble());
+    return nowMillis + gap >= holder.getExpiresMillis();
+  }
+}
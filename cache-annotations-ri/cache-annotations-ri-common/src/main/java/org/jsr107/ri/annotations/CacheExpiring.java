@@ -0,0 +1,38 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Implemented by values that know how long they should be cached, for example a "not found" result that should
+ * only live briefly or a record carrying the max-age of its upstream.
+ * <p>
+ * Values returned by {@link javax.cache.annotation.CacheResult} methods or written by
+ * {@link javax.cache.annotation.CachePut} methods that implement this interface are stored in a
+ * {@link CacheValueHolder} with a logical expiry, a read after that expiry is treated as a miss. The cache's own
+ * expiry should be at least the longest time to live returned, it still removes the entry eventually.
+ * </p>
+ *
+ * @since 1.0
+ * @see CacheTimeToLive
+ */
+public interface CacheExpiring {
+
+  /**
+   * @return How long this value lives in milliseconds, 0 or less to use the expiry of the method
+   */
+  long getCacheTimeToLiveMillis();
+}
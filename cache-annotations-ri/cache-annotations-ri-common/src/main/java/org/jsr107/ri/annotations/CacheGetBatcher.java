@@ -0,0 +1,206 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges {@link Cache#get(Object)} calls that concurrent callers make on the same cache into one
+ * {@link Cache#getAll(Set)}.
+ * <p>
+ * The first caller to arrive opens a batch. If no other batch of the cache is waiting for its round trip the
+ * caller reads its key right away, there is nobody to wait for. Otherwise it waits up to
+ * <code>batching.windowMicros</code>, or until <code>batching.maxKeys</code> keys have joined, then issues a single
+ * <code>getAll</code> for the batch and hands each caller its own value. A lookup therefore waits at most one
+ * window plus one round trip, and only while the cache is busy.
+ * </p>
+ * <p>
+ * Every method resolves its own decorated wrapper of a cache, so batches are matched by the cache at the bottom
+ * of the {@link ForwardingCache} chain. The wrappers of one cache name are decorated alike, the batch is read
+ * through the wrapper of the caller that opened it.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CacheGetBatcher {
+  private static final ConcurrentMap<String, CacheGetBatcher> BATCHERS = new ConcurrentHashMap<String, CacheGetBatcher>();
+
+  private final long windowNanos;
+  private final int maxKeys;
+  private final Object lock = new Object();
+  private Batch current;
+  private int executing;
+
+  /**
+   * @param windowNanos How long the first caller waits for other callers to join its batch
+   * @param maxKeys     Number of keys that closes a batch before the window elapsed
+   */
+  public CacheGetBatcher(long windowNanos, int maxKeys) {
+    if (windowNanos <= 0) {
+      throw new IllegalArgumentException("windowNanos must be positive");
+    }
+    if (maxKeys < 2) {
+      throw new IllegalArgumentException("maxKeys must be at least 2");
+    }
+    this.windowNanos = windowNanos;
+    this.maxKeys = maxKeys;
+  }
+
+  /**
+   * Get the shared batcher for a cache, creating it on first use
+   *
+   * @param cacheName The name of the cache
+   * @return The batcher for the cache
+   */
+  public static CacheGetBatcher forCache(String cacheName) {
+    CacheGetBatcher batcher = BATCHERS.get(cacheName);
+    if (batcher != null) {
+      return batcher;
+    }
+
+    batcher = new CacheGetBatcher(
+        TimeUnit.MICROSECONDS.toNanos(CacheAnnotationsConfig.getLong(cacheName, "batching.windowMicros", 200L)),
+        CacheAnnotationsConfig.getInt(cacheName, "batching.maxKeys", 64));
+    final CacheGetBatcher existing = BATCHERS.putIfAbsent(cacheName, batcher);
+    return existing != null ? existing : batcher;
+  }
+
+  /**
+   * Get a value as part of a batch
+   *
+   * @param cache The cache to read from
+   * @param key   The key to read
+   * @param <K>   the type of key
+   * @param <V>   the type of value
+   * @return The value, null if the key is not cached
+   */
+  @SuppressWarnings("unchecked")
+  public <K, V> V get(Cache<K, V> cache, K key) {
+    final Batch batch;
+    final boolean leader;
+    final Cache<?, ?> underlying = ForwardingCache.unwrapAll(cache);
+    synchronized (this.lock) {
+      if (this.current != null && this.current.underlying != underlying) {
+        //Another cache instance is being batched under the same name, don't mix them
+        return cache.get(key);
+      }
+      leader = this.current == null;
+      if (leader) {
+        this.current = new Batch(cache, underlying);
+      }
+      batch = this.current;
+      batch.keys.add(key);
+      if (batch.keys.size() >= this.maxKeys || (leader && this.executing == 0)) {
+        //Full, or nothing in flight that callers could be queueing up behind
+        this.current = null;
+        batch.full.countDown();
+      }
+    }
+
+    if (leader) {
+      this.lead(batch);
+    } else {
+      batch.awaitDone();
+    }
+
+    if (batch.failure != null) {
+      throw batch.failure;
+    }
+    return (V) batch.results.get(key);
+  }
+
+  private void lead(Batch batch) {
+    try {
+      if (batch.full.getCount() > 0) {
+        batch.full.await(this.windowNanos, TimeUnit.NANOSECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    final Set<Object> keys;
+    synchronized (this.lock) {
+      if (this.current == batch) {
+        this.current = null;
+      }
+      keys = batch.keys;
+      this.executing++;
+    }
+    try {
+      batch.execute(keys);
+    } finally {
+      synchronized (this.lock) {
+        this.executing--;
+      }
+    }
+  }
+
+  /**
+   * Keys waiting for one getAll, and its outcome
+   */
+  private static final class Batch {
+    private final Cache<Object, Object> cache;
+    private final Cache<?, ?> underlying;
+    private final Set<Object> keys = new LinkedHashSet<Object>();
+    private final CountDownLatch full = new CountDownLatch(1);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Map<Object, Object> results = Collections.emptyMap();
+    private volatile RuntimeException failure;
+
+    @SuppressWarnings("unchecked")
+    private Batch(Cache<?, ?> cache, Cache<?, ?> underlying) {
+      this.cache = (Cache<Object, Object>) cache;
+      this.underlying = underlying;
+    }
+
+    private void execute(Set<Object> batchKeys) {
+      try {
+        if (batchKeys.size() == 1) {
+          final Object key = batchKeys.iterator().next();
+          final Object value = this.cache.get(key);
+          if (value != null) {
+            this.results = Collections.singletonMap(key, value);
+          }
+        } else {
+          this.results = this.cache.getAll(batchKeys);
+        }
+      } catch (RuntimeException e) {
+        this.failure = e;
+      } finally {
+        this.done.countDown();
+      }
+    }
+
+    private void awaitDone() {
+      try {
+        this.done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CacheException("Interrupted while waiting for a batched get", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.cache.processor.EntryProcessor;
+import javax.enterprise.util.Nonbinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Applies an {@link EntryProcessor} to a cache entry with {@link javax.cache.Cache#invoke(Object,
+ * EntryProcessor, Object...)}, so read-modify-write updates run atomically next to the data in one round trip.
+ * <p>
+ * The cache key is generated from the key parameters, which must be marked with
+ * {@link javax.cache.annotation.CacheKey} when the method has other parameters. All parameters that are not key
+ * parameters are passed, in order, as the processor arguments. The value returned by the processor is returned by
+ * the method, the method body is only invoked when no cache is available. For example:
+ * </p>
+ * <pre><code>
+ * &#64;CacheInvoke(cacheName="counters", entryProcessor=AddProcessor.class)
+ * public Long add(&#64;CacheKey String counter, long delta)
+ * </code></pre>
+ * <p>
+ * The processor is created once per method with its no-argument constructor. Remote caches send it to the server
+ * with every invocation, so it should be {@link java.io.Serializable} and hold no state.
+ * </p>
+ * <p>
+ * The annotation is not allowed on caches with <code>codec.enabled</code>, whose processors would see encoded
+ * values. When a circuit breaker skips the invocation a {@link javax.cache.CacheException} is thrown rather than
+ * losing the update.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheInvoke {
+
+  /**
+   * @return The name of the cache, defaults to the {@link javax.cache.annotation.CacheDefaults} cache name
+   */
+  @Nonbinding String cacheName() default "";
+
+  /**
+   * @return The processor applied to the entry
+   */
+  @SuppressWarnings("rawtypes")
+  @Nonbinding Class<? extends EntryProcessor> entryProcessor() default EntryProcessor.class;
+
+  /**
+   * @return The {@link CacheResolverFactory} used to find the cache
+   */
+  @Nonbinding Class<? extends CacheResolverFactory> cacheResolverFactory() default CacheResolverFactory.class;
+
+  /**
+   * @return The {@link CacheKeyGenerator} used to generate the key
+   */
+  @Nonbinding Class<? extends CacheKeyGenerator> cacheKeyGenerator() default CacheKeyGenerator.class;
+}
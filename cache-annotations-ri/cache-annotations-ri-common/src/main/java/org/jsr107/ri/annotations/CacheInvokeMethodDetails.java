@@ -0,0 +1,85 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.processor.EntryProcessor;
+import java.util.List;
+
+/**
+ * Details for a method annotated with {@link CacheInvoke}
+ *
+ * @since 1.0
+ */
+public class CacheInvokeMethodDetails extends StaticCacheKeyInvocationContext<CacheInvoke> {
+  private final EntryProcessor<Object, Object, Object> entryProcessor;
+  private final List<CacheParameterDetails> argumentParameters;
+
+  /**
+   * @param cacheMethodDetails
+   * @param cacheResolver
+   * @param cacheKeyGenerator  The key generator to use
+   * @param allParameters      All parameter details
+   * @param keyParameters      Parameter details to use for key generation
+   * @param entryProcessor     The processor applied to the entry
+   * @param argumentParameters Parameter details passed as the processor arguments
+   */
+  public CacheInvokeMethodDetails(CacheMethodDetails<CacheInvoke> cacheMethodDetails,
+                                  CacheResolver cacheResolver, CacheKeyGenerator cacheKeyGenerator,
+                                  List<CacheParameterDetails> allParameters,
+                                  List<CacheParameterDetails> keyParameters,
+                                  EntryProcessor<Object, Object, Object> entryProcessor,
+                                  List<CacheParameterDetails> argumentParameters) {
+
+    super(cacheMethodDetails, cacheResolver, cacheKeyGenerator, allParameters, keyParameters);
+
+    if (entryProcessor == null) {
+      throw new IllegalArgumentException("entryProcessor cannot be null");
+    }
+    if (argumentParameters == null) {
+      throw new IllegalArgumentException("argumentParameters cannot be null");
+    }
+
+    this.entryProcessor = entryProcessor;
+    this.argumentParameters = argumentParameters;
+  }
+
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.interceptor.MethodDetails#getInterceptorType()
+   */
+  @Override
+  public InterceptorType getInterceptorType() {
+    return InterceptorType.CACHE_INVOKE;
+  }
+
+  /**
+   * @return The processor applied to the entry
+   */
+  public EntryProcessor<Object, Object, Object> getEntryProcessor() {
+    return this.entryProcessor;
+  }
+
+  /**
+   * @return Parameter details passed as the processor arguments
+   */
+  public List<CacheParameterDetails> getArgumentParameters() {
+    return this.argumentParameters;
+  }
+}
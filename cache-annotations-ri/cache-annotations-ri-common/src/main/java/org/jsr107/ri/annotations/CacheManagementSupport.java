@@ -0,0 +1,63 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registers the management beans of the annotations layer with the platform MBeanServer.
+ *
+ * @since 1.0
+ */
+public final class CacheManagementSupport {
+  /**
+   * JMX domain used for all management beans of the annotations layer
+   */
+  public static final String DOMAIN = "org.jsr107.ri.annotations";
+
+  private static final Logger LOGGER = Logger.getLogger(CacheManagementSupport.class.getName());
+
+  private CacheManagementSupport() {
+  }
+
+  /**
+   * Register an MXBean, replacing any bean already registered with the same name
+   *
+   * @param mxbean The bean to register
+   * @param type   The type key of the object name
+   * @param name   The name key of the object name, quoted as needed
+   */
+  public static void register(Object mxbean, String type, String name) {
+    try {
+      final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+      if (mBeanServer.isRegistered(objectName)) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+      mBeanServer.registerMBean(mxbean, objectName);
+    } catch (JMException e) {
+      LOGGER.log(Level.WARNING, "Unable to register " + type + " MXBean for " + name, e);
+    } catch (SecurityException e) {
+      LOGGER.log(Level.WARNING, "Unable to register " + type + " MXBean for " + name, e);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheInvocationParameter;
+
+/**
+ * Decides, from the parameters of an invocation and possibly the value to cache, whether a {@link CacheCondition}
+ * applies.
+ * <p>
+ * Implementations are created once per annotated method, as CDI beans if they are, and are called on every
+ * invocation from many threads, so they must be thread safe and should be cheap.
+ * </p>
+ *
+ * @since 1.0
+ */
+public interface CachePredicate {
+
+  /**
+   * @param parameters The parameters of the invocation
+   * @param value      The result of a {@link javax.cache.annotation.CacheResult} method or the value of a
+   *                   {@link javax.cache.annotation.CachePut} method, null when evaluated before the invocation
+   * @return true if the predicate matches
+   */
+  boolean test(CacheInvocationParameter[] parameters, Object value);
+}
@@ -30,6 +30,7 @@ import java.util.List;
  */
 public class CachePutMethodDetails extends StaticCacheKeyInvocationContext<CachePut> {
   private final CacheParameterDetails cacheValueParameter;
+  private final CachePutPolicy cachePutPolicy;
 
   /**
    * @param cacheMethodDetails
@@ -43,13 +44,35 @@ public class CachePutMethodDetails extends StaticCacheKeyInvocationContext<Cache
                                CacheKeyGenerator cacheKeyGenerator, List<CacheParameterDetails> allParameters,
                                List<CacheParameterDetails> keyParameters, CacheParameterDetails cacheValueParameter) {
 
+    this(cacheMethodDetails, cacheResolver, cacheKeyGenerator, allParameters, keyParameters, cacheValueParameter,
+        CachePutPolicy.DEFAULT);
+  }
+
+  /**
+   * @param cacheMethodDetails
+   * @param cacheResolver
+   * @param cacheKeyGenerator   The key generator to use
+   * @param allParameters       All parameter details
+   * @param keyParameters       Parameter details to use for key generation
+   * @param cacheValueParameter The parameter to store in the cache
+   * @param cachePutPolicy      Additional behavior of the method
+   */
+  public CachePutMethodDetails(CacheMethodDetails<CachePut> cacheMethodDetails, CacheResolver cacheResolver,
+                               CacheKeyGenerator cacheKeyGenerator, List<CacheParameterDetails> allParameters,
+                               List<CacheParameterDetails> keyParameters, CacheParameterDetails cacheValueParameter,
+                               CachePutPolicy cachePutPolicy) {
+
     super(cacheMethodDetails, cacheResolver, cacheKeyGenerator, allParameters, keyParameters);
 
     if (cacheValueParameter == null) {
       throw new IllegalArgumentException("cacheValueParameter cannot be null");
     }
+    if (cachePutPolicy == null) {
+      throw new IllegalArgumentException("cachePutPolicy cannot be null");
+    }
 
     this.cacheValueParameter = cacheValueParameter;
+    this.cachePutPolicy = cachePutPolicy;
   }
 
 
@@ -67,4 +90,11 @@ public class CachePutMethodDetails extends StaticCacheKeyInvocationContext<Cache
   public CacheParameterDetails getCacheValueParameter() {
     return this.cacheValueParameter;
   }
+
+  /**
+   * @return Additional behavior of the method
+   */
+  public CachePutPolicy getCachePutPolicy() {
+    return this.cachePutPolicy;
+  }
 }
@@ -0,0 +1,113 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Per-method behavior of a {@link javax.cache.annotation.CachePut} annotated method that goes beyond the
+ * attributes of the annotation itself. Resolved once from the method's annotations by
+ * {@link AbstractCacheLookupUtil} and stored on the {@link CachePutMethodDetails}.
+ *
+ * @since 1.0
+ */
+public class CachePutPolicy {
+  /**
+   * Policy for methods without any additional behavior
+   */
+  public static final CachePutPolicy DEFAULT = new CachePutPolicy(null, null, null, null);
+
+  private final CacheEntryExpiry entryExpiry;
+  private final CacheTagging cacheTagging;
+  private final CacheConditionFilter conditionFilter;
+  private final CacheTimeToLiveExtractor timeToLiveExtractor;
+
+  /**
+   * @param entryExpiry         Logical expiry of written values, null if the cache's expiry applies
+   * @param cacheTagging        The {@link CacheTag} parameters of the method, null if values are untagged
+   * @param conditionFilter     The {@link CacheCondition} of the method, null to write every value
+   * @param timeToLiveExtractor Determines the time to live of each value, null to only honor {@link CacheExpiring}
+   */
+  public CachePutPolicy(CacheEntryExpiry entryExpiry, CacheTagging cacheTagging,
+                        CacheConditionFilter conditionFilter, CacheTimeToLiveExtractor timeToLiveExtractor) {
+    this.entryExpiry = entryExpiry;
+    this.cacheTagging = cacheTagging;
+    this.conditionFilter = conditionFilter;
+    this.timeToLiveExtractor = timeToLiveExtractor;
+  }
+
+  /**
+   * @return Logical expiry of written values, null if the cache's expiry applies
+   */
+  public CacheEntryExpiry getEntryExpiry() {
+    return this.entryExpiry;
+  }
+
+  /**
+   * @return The {@link CacheTag} parameters of the method, null if values are untagged
+   */
+  public CacheTagging getCacheTagging() {
+    return this.cacheTagging;
+  }
+
+  /**
+   * @return The {@link CacheCondition} of the method, null if every value is written
+   */
+  public CacheConditionFilter getConditionFilter() {
+    return this.conditionFilter;
+  }
+
+  /**
+   * Get the time to live a value determines for itself, from the {@link CacheTimeToLive} extractor of the method
+   * or from the value's {@link CacheExpiring} implementation
+   *
+   * @param value The non-null value about to be cached
+   * @return The time to live in milliseconds, 0 or less if the value does not determine one
+   */
+  public long getTimeToLiveMillis(Object value) {
+    if (this.timeToLiveExtractor != null) {
+      return this.timeToLiveExtractor.getTimeToLiveMillis(value);
+    }
+    return value instanceof CacheExpiring ? ((CacheExpiring) value).getCacheTimeToLiveMillis() : 0L;
+  }
+
+  /**
+   * @param value     The non-null value about to be cached
+   * @param nowMillis The current time
+   * @return When the value logically expires, 0 if only the cache's expiry applies
+   */
+  public long getExpiresAt(Object value, long nowMillis) {
+    final long timeToLiveMillis = this.getTimeToLiveMillis(value);
+    if (timeToLiveMillis > 0) {
+      return nowMillis + timeToLiveMillis;
+    }
+    return this.entryExpiry != null ? this.entryExpiry.getExpiresAt(nowMillis) : 0L;
+  }
+
+  /**
+   * @param value The non-null value about to be cached
+   * @return true if the value must be stored in a {@link CacheValueHolder}
+   */
+  public boolean isValueHolderRequired(Object value) {
+    return this.isValueHolderRequired() || this.timeToLiveExtractor != null || value instanceof CacheExpiring;
+  }
+
+  /**
+   * @return true if values must be stored in a {@link CacheValueHolder}
+   */
+  public boolean isValueHolderRequired() {
+    return this.entryExpiry != null || this.cacheTagging != null;
+  }
+}
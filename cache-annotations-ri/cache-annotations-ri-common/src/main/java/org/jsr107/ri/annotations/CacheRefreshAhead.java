@@ -0,0 +1,58 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enables refresh-ahead for a method annotated with {@link javax.cache.annotation.CacheResult}.
+ * <p>
+ * Results are stored with a soft expiry of {@link #refreshAfter()}. A cache hit past the soft expiry still returns
+ * the cached value immediately, and a single background task recomputes the value and re-puts it. A recomputed
+ * value that is null, excluded by a {@link CacheCondition} or not admitted removes the entry instead. The hard
+ * expiry remains the one configured on the cache itself, so the soft expiry should be shorter than the cache's time
+ * to live.
+ * </p>
+ * <p>
+ * The background task invokes the method through the client proxy of the bean, so every interceptor of the method
+ * applies to it, but it runs on a refresh thread without the request or transaction of the caller. Only methods of
+ * {@link javax.enterprise.context.ApplicationScoped} beans are refreshed in the background. For other beans a hit
+ * past the soft expiry recomputes the value on the calling thread, as if it had expired.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheRefreshAhead {
+
+  /**
+   * @return Age after which a cached result is refreshed in the background
+   */
+  long refreshAfter();
+
+  /**
+   * @return The unit of {@link #refreshAfter()}
+   */
+  TimeUnit timeUnit() default TimeUnit.SECONDS;
+}
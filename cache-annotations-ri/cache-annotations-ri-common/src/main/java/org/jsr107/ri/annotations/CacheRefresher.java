@@ -0,0 +1,143 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs background refreshes of cached results, at most one at a time per cache key.
+ * <p>
+ * Refreshes run on a bounded pool of <code>refreshAhead.threads</code> daemon threads with a queue of
+ * <code>refreshAhead.queueSize</code> tasks. Refreshes that do not fit are dropped, the stale value is then
+ * refreshed by a later read or replaced once it expires.
+ * </p>
+ * <p>
+ * While a refresh runs its thread is marked with the entry it refreshes, see
+ * {@link #isRefreshing(String, Object)}.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CacheRefresher {
+  private static final ThreadLocal<DefaultGeneratedCacheKey> REFRESHING = new ThreadLocal<DefaultGeneratedCacheKey>();
+
+  private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final ThreadPoolExecutor executor;
+  private final ConcurrentMap<DefaultGeneratedCacheKey, Boolean> inFlight =
+      new ConcurrentHashMap<DefaultGeneratedCacheKey, Boolean>();
+
+  /**
+   * @param threads   Maximum number of refreshes running concurrently
+   * @param queueSize Maximum number of refreshes waiting for a thread
+   */
+  public CacheRefresher(int threads, int queueSize) {
+    this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 60L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "jsr107-annotations-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * @return The refresher shared by all interceptors
+   */
+  public static CacheRefresher getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  /**
+   * Check if the current thread is refreshing an entry, and stop treating it as refreshing if it is. Only the first
+   * interception of the refreshed entry, the one the refresh re-entered through, is reported.
+   *
+   * @param cacheName The name of the cache
+   * @param cacheKey  The key of the entry
+   * @return true if the current thread runs the refresh of the entry
+   */
+  public static boolean isRefreshing(String cacheName, Object cacheKey) {
+    final DefaultGeneratedCacheKey refreshKey = REFRESHING.get();
+    if (refreshKey == null || !refreshKey.equals(new DefaultGeneratedCacheKey(new Object[]{cacheName, cacheKey}))) {
+      return false;
+    }
+    REFRESHING.remove();
+    return true;
+  }
+
+  /**
+   * Refresh a cache entry in the background unless a refresh of the same entry is already pending
+   *
+   * @param cacheName The name of the cache
+   * @param cacheKey  The key of the entry to refresh
+   * @param refresh   Recomputes and stores the entry
+   * @return true if the refresh was scheduled
+   */
+  public boolean refresh(String cacheName, Object cacheKey, final Runnable refresh) {
+    final DefaultGeneratedCacheKey refreshKey = new DefaultGeneratedCacheKey(new Object[]{cacheName, cacheKey});
+    if (this.inFlight.putIfAbsent(refreshKey, Boolean.TRUE) != null) {
+      return false;
+    }
+
+    try {
+      this.executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          REFRESHING.set(refreshKey);
+          try {
+            refresh.run();
+          } catch (RuntimeException e) {
+            logger.log(Level.FINE, "Background refresh failed", e);
+          } finally {
+            REFRESHING.remove();
+            inFlight.remove(refreshKey);
+          }
+        }
+      });
+      return true;
+    } catch (RejectedExecutionException e) {
+      this.inFlight.remove(refreshKey);
+      return false;
+    }
+  }
+
+  /**
+   * Lazily created shared refresher
+   */
+  private static final class InstanceHolder {
+    private static final CacheRefresher INSTANCE = new CacheRefresher(
+        CacheAnnotationsConfig.getInt("refreshAhead.threads", 4),
+        CacheAnnotationsConfig.getInt("refreshAhead.queueSize", 1000));
+
+    private InstanceHolder() {
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.CacheResolverFactory;
+import javax.enterprise.util.Nonbinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Invalidates the entries of a cache that are tagged with the values of the {@link CacheTag} parameters of the
+ * annotated method, leaving all other entries in place. For example:
+ * <pre><code>
+ * &#64;CacheRemoveByTag(cacheName="orders")
+ * public void resetTenant(&#64;CacheTag("tenant") String tenantId)
+ * </code></pre>
+ * <p>
+ * The annotated method must have at least one {@link CacheTag} parameter. {@link #afterInvocation()},
+ * {@link #evictFor()} and {@link #noEvictFor()} behave as they do for {@link javax.cache.annotation.CacheRemoveAll}.
+ * </p>
+ *
+ * @since 1.0
+ * @see CacheTagging
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheRemoveByTag {
+
+  /**
+   * @return The name of the cache, defaults to the {@link javax.cache.annotation.CacheDefaults} cache name
+   */
+  @Nonbinding String cacheName() default "";
+
+  /**
+   * @return When the entries are invalidated, before or after the method is invoked
+   */
+  @Nonbinding boolean afterInvocation() default true;
+
+  /**
+   * @return The {@link CacheResolverFactory} used to find the cache
+   */
+  @Nonbinding Class<? extends CacheResolverFactory> cacheResolverFactory() default CacheResolverFactory.class;
+
+  /**
+   * @return Exceptions that still cause the entries to be invalidated when {@link #afterInvocation()} is true
+   */
+  @Nonbinding Class<? extends Throwable>[] evictFor() default {};
+
+  /**
+   * @return Exceptions that prevent the entries from being invalidated when {@link #afterInvocation()} is true
+   */
+  @Nonbinding Class<? extends Throwable>[] noEvictFor() default {};
+}
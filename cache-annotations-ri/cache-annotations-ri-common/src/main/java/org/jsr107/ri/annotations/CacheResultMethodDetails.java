@@ -32,6 +32,7 @@ public class CacheResultMethodDetails extends StaticCacheKeyInvocationContext<Ca
     implements StaticCacheResultInvocationContext {
 
   private final CacheResolver exceptionCacheResolver;
+  private final CacheResultPolicy cacheResultPolicy;
 
   /**
    * @param cacheMethodDetails
@@ -45,9 +46,31 @@ public class CacheResultMethodDetails extends StaticCacheKeyInvocationContext<Ca
                                   List<CacheParameterDetails> allParameters,
                                   List<CacheParameterDetails> keyParameters) {
 
+    this(cacheMethodDetails, cacheResolver, exceptionCacheResolver, cacheKeyGenerator, allParameters, keyParameters,
+        CacheResultPolicy.DEFAULT);
+  }
+
+  /**
+   * @param cacheMethodDetails
+   * @param cacheResolver
+   * @param cacheKeyGenerator  The key generator to use
+   * @param allParameters      All parameter details
+   * @param keyParameters      Parameter details to use for key generation
+   * @param cacheResultPolicy  Additional behavior of the method
+   */
+  public CacheResultMethodDetails(CacheMethodDetails<CacheResult> cacheMethodDetails, CacheResolver cacheResolver,
+                                  CacheResolver exceptionCacheResolver, CacheKeyGenerator cacheKeyGenerator,
+                                  List<CacheParameterDetails> allParameters,
+                                  List<CacheParameterDetails> keyParameters, CacheResultPolicy cacheResultPolicy) {
+
     super(cacheMethodDetails, cacheResolver, cacheKeyGenerator, allParameters, keyParameters);
 
+    if (cacheResultPolicy == null) {
+      throw new IllegalArgumentException("cacheResultPolicy cannot be null");
+    }
+
     this.exceptionCacheResolver = exceptionCacheResolver;
+    this.cacheResultPolicy = cacheResultPolicy;
   }
 
   @Override
@@ -55,6 +78,13 @@ public class CacheResultMethodDetails extends StaticCacheKeyInvocationContext<Ca
     return this.exceptionCacheResolver;
   }
 
+  /**
+   * @return Additional behavior of the method
+   */
+  public CacheResultPolicy getCacheResultPolicy() {
+    return this.cacheResultPolicy;
+  }
+
   /* (non-Javadoc)
    * @see org.jsr107.ri.interceptor.MethodDetails#getInterceptorType()
    */
@@ -0,0 +1,218 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Per-method behavior of a {@link javax.cache.annotation.CacheResult} annotated method that goes beyond the
+ * attributes of the annotation itself. Resolved once from the method's annotations by
+ * {@link AbstractCacheLookupUtil} and stored on the {@link CacheResultMethodDetails}, or on the
+ * {@link BulkCacheResultMethodDetails} of a {@link BulkCacheResult} method which applies it to every element.
+ *
+ * @since 1.0
+ */
+public class CacheResultPolicy {
+  /**
+   * Policy for methods without any additional behavior
+   */
+  public static final CacheResultPolicy DEFAULT = new CacheResultPolicy(0L, null, null, null, null, null, null, null);
+
+  private final long refreshAfterMillis;
+  private final CacheEntryExpiry entryExpiry;
+  private final CostAdmissionFilter costAdmissionFilter;
+  private final FrequencyAdmissionFilter frequencyAdmissionFilter;
+  private final CacheBypassTracker bypassTracker;
+  private final CacheTagging cacheTagging;
+  private final CacheConditionFilter conditionFilter;
+  private final CacheTimeToLiveExtractor timeToLiveExtractor;
+
+  /**
+   * @param refreshAfterMillis       Age after which a cached result is refreshed in the background, 0 to disable
+   * @param entryExpiry              Logical expiry of cached results, null if the cache's expiry applies
+   * @param costAdmissionFilter      Decides which results are expensive enough to cache, null to cache all results
+   * @param frequencyAdmissionFilter Decides which keys are requested often enough to cache, null to cache all keys
+   * @param bypassTracker            Stops consulting the cache while the hit ratio is low, null to always consult it
+   * @param cacheTagging             The {@link CacheTag} parameters of the method, null if results are untagged
+   * @param conditionFilter          The {@link CacheCondition} of the method, null to cache every invocation
+   * @param timeToLiveExtractor      Determines the time to live of each result, null to only honor {@link CacheExpiring}
+   */
+  public CacheResultPolicy(long refreshAfterMillis, CacheEntryExpiry entryExpiry,
+                           CostAdmissionFilter costAdmissionFilter,
+                           FrequencyAdmissionFilter frequencyAdmissionFilter,
+                           CacheBypassTracker bypassTracker, CacheTagging cacheTagging,
+                           CacheConditionFilter conditionFilter, CacheTimeToLiveExtractor timeToLiveExtractor) {
+    this.refreshAfterMillis = refreshAfterMillis;
+    this.entryExpiry = entryExpiry;
+    this.costAdmissionFilter = costAdmissionFilter;
+    this.frequencyAdmissionFilter = frequencyAdmissionFilter;
+    this.bypassTracker = bypassTracker;
+    this.cacheTagging = cacheTagging;
+    this.conditionFilter = conditionFilter;
+    this.timeToLiveExtractor = timeToLiveExtractor;
+  }
+
+  /**
+   * @return Age after which a cached result is refreshed in the background, 0 if refresh-ahead is disabled
+   */
+  public long getRefreshAfterMillis() {
+    return this.refreshAfterMillis;
+  }
+
+  /**
+   * @return Logical expiry of cached results, null if the cache's expiry applies
+   */
+  public CacheEntryExpiry getEntryExpiry() {
+    return this.entryExpiry;
+  }
+
+  /**
+   * @return Decides which results are expensive enough to cache, null if all results are cached
+   */
+  public CostAdmissionFilter getCostAdmissionFilter() {
+    return this.costAdmissionFilter;
+  }
+
+  /**
+   * @return Decides which keys are requested often enough to cache, null if all keys are cached
+   */
+  public FrequencyAdmissionFilter getFrequencyAdmissionFilter() {
+    return this.frequencyAdmissionFilter;
+  }
+
+  /**
+   * @return Stops consulting the cache while the hit ratio is low, null if the cache is always consulted
+   */
+  public CacheBypassTracker getBypassTracker() {
+    return this.bypassTracker;
+  }
+
+  /**
+   * @return The {@link CacheTag} parameters of the method, null if results are untagged
+   */
+  public CacheTagging getCacheTagging() {
+    return this.cacheTagging;
+  }
+
+  /**
+   * @return The {@link CacheCondition} of the method, null if every invocation is cached
+   */
+  public CacheConditionFilter getConditionFilter() {
+    return this.conditionFilter;
+  }
+
+  /**
+   * Get the time to live a value determines for itself, from the {@link CacheTimeToLive} extractor of the method
+   * or from the value's {@link CacheExpiring} implementation
+   *
+   * @param value The non-null value about to be cached
+   * @return The time to live in milliseconds, 0 or less if the value does not determine one
+   */
+  public long getTimeToLiveMillis(Object value) {
+    if (this.timeToLiveExtractor != null) {
+      return this.timeToLiveExtractor.getTimeToLiveMillis(value);
+    }
+    return value instanceof CacheExpiring ? ((CacheExpiring) value).getCacheTimeToLiveMillis() : 0L;
+  }
+
+  /**
+   * @param value     The non-null value about to be cached
+   * @param nowMillis The current time
+   * @return When the value logically expires, 0 if only the cache's expiry applies
+   */
+  public long getExpiresAt(Object value, long nowMillis) {
+    final long timeToLiveMillis = this.getTimeToLiveMillis(value);
+    if (timeToLiveMillis > 0) {
+      return nowMillis + timeToLiveMillis;
+    }
+    return this.entryExpiry != null ? this.entryExpiry.getExpiresAt(nowMillis) : 0L;
+  }
+
+  /**
+   * @param value The non-null value about to be cached
+   * @return true if the value must be stored in a {@link CacheValueHolder}
+   */
+  public boolean isValueHolderRequired(Object value) {
+    return this.isValueHolderRequired() || this.timeToLiveExtractor != null || value instanceof CacheExpiring;
+  }
+
+  /**
+   * @return true if results must be stored in a {@link CacheValueHolder}
+   */
+  public boolean isValueHolderRequired() {
+    return this.refreshAfterMillis > 0 || this.entryExpiry != null || this.cacheTagging != null;
+  }
+
+  /**
+   * Get the value to return for an object read from the cache, applying the logical expiry, the early expiration
+   * and the tags of the method
+   *
+   * @param cached         The object read from the cache, may be null
+   * @param tagGenerations The current generations of the method's tags, null if it has none
+   * @param nowMillis      The current time
+   * @return The cached value, null if there is none or it must be recomputed
+   */
+  public Object getCachedValue(Object cached, long[] tagGenerations, long nowMillis) {
+    if (!(cached instanceof CacheValueHolder)) {
+      //Values written without tags cannot be checked against tag invalidations
+      return tagGenerations == null ? cached : null;
+    }
+
+    final CacheValueHolder holder = (CacheValueHolder) cached;
+    if (holder.isExpired(nowMillis)) {
+      return null;
+    }
+    if (tagGenerations != null && !CacheTagging.isCurrent(holder, tagGenerations)) {
+      return null;
+    }
+
+    //Let this caller recompute early, spreading out the recomputation of values that expire together
+    if (this.entryExpiry != null && this.entryExpiry.isEarlyExpiration(holder, nowMillis)) {
+      return null;
+    }
+    return holder.getValue();
+  }
+
+  /**
+   * Decide if a freshly computed result should be put into the cache
+   *
+   * @param cacheKey     The cache key
+   * @param computeNanos How long it took to compute the result
+   * @return true if the result should be cached
+   */
+  public boolean isAdmitted(Object cacheKey, long computeNanos) {
+    //Consult both filters so each keeps recording, even if the other one rejects the result
+    final boolean frequent = this.frequencyAdmissionFilter == null || this.frequencyAdmissionFilter.admit(cacheKey);
+    final boolean expensive = this.costAdmissionFilter == null || this.costAdmissionFilter.admit(computeNanos);
+    return frequent && expensive;
+  }
+
+  /**
+   * Create the object to store in the cache for a method result
+   *
+   * @param result         The non-null method result
+   * @param computeNanos   How long it took to compute the result
+   * @param tagGenerations The generations of the method's tags read before the result was computed, null if none
+   * @return The result, wrapped in a {@link CacheValueHolder} if one is required
+   */
+  public Object createCachedValue(Object result, long computeNanos, long[] tagGenerations) {
+    if (!this.isValueHolderRequired(result)) {
+      return result;
+    }
+    final long now = System.currentTimeMillis();
+    final long refreshAt = this.refreshAfterMillis > 0 ? now + this.refreshAfterMillis : 0L;
+    return new CacheValueHolder(result, now, refreshAt, this.getExpiresAt(result, now), computeNanos, tagGenerations);
+  }
+}
@@ -0,0 +1,250 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps values that are too large out of a cache, so one oversized write cannot stall the connection to a remote
+ * cache for every other caller.
+ * <p>
+ * Every value written through a {@link SizeGuardedCache} is weighed and recorded in a histogram of power of two buckets. Values larger than
+ * <code>sizeGuard.maxBytes</code> are not written and a warning naming the key is logged at most once per
+ * {@link #WARNING_INTERVAL_MILLIS}. The guard is enabled per cache with <code>sizeGuard.enabled</code>, and
+ * <code>sizeGuard.weigher</code> names a different {@link CacheValueWeigher} class. Counters and the size
+ * histogram are available through the <code>CacheSizeGuard</code> MXBean of the cache.
+ * </p>
+ * <p>
+ * An {@link EncodedCacheValue}, written when a {@link CodecCache} encodes the values of the cache, weighs the
+ * length of its bytes, which is what is sent to the cache. Any other value is weighed by a {@link CacheValueWeigher},
+ * by default its serialized size.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CacheSizeGuard implements CacheSizeGuardMXBean {
+  /**
+   * Minimum time between two warnings about rejected values
+   */
+  public static final long WARNING_INTERVAL_MILLIS = 60000L;
+
+  private static final int BUCKETS = 64;
+  private static final Logger LOGGER = Logger.getLogger(CacheSizeGuard.class.getName());
+  private static final ConcurrentMap<String, CacheSizeGuard> GUARDS = new ConcurrentHashMap<String, CacheSizeGuard>();
+
+  private final String cacheName;
+  private final long maxBytes;
+  private final CacheValueWeigher weigher;
+  private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+  private final AtomicLong checked = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong unknown = new AtomicLong();
+  private final AtomicLong largest = new AtomicLong();
+  private final AtomicLong lastWarning = new AtomicLong();
+
+  /**
+   * @param cacheName The name of the guarded cache, used in warnings
+   * @param maxBytes  Largest value size that is written to the cache
+   * @param weigher   Estimates the size of values
+   */
+  public CacheSizeGuard(String cacheName, long maxBytes, CacheValueWeigher weigher) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be positive");
+    }
+    if (weigher == null) {
+      throw new IllegalArgumentException("weigher cannot be null");
+    }
+    this.cacheName = cacheName;
+    this.maxBytes = maxBytes;
+    this.weigher = weigher;
+  }
+
+  /**
+   * Get the shared guard for a cache, creating and registering it with JMX on first use
+   *
+   * @param cacheName The name of the cache
+   * @return The guard for the cache, null if the size guard is not enabled for the cache
+   */
+  public static CacheSizeGuard forCache(String cacheName) {
+    CacheSizeGuard guard = GUARDS.get(cacheName);
+    if (guard != null) {
+      return guard;
+    }
+    if (!CacheAnnotationsConfig.getBoolean(cacheName, "sizeGuard.enabled", false)) {
+      return null;
+    }
+
+    guard = new CacheSizeGuard(cacheName,
+        CacheAnnotationsConfig.getLong(cacheName, "sizeGuard.maxBytes", 1048576L),
+        createWeigher(CacheAnnotationsConfig.getString(cacheName, "sizeGuard.weigher", null)));
+    final CacheSizeGuard existing = GUARDS.putIfAbsent(cacheName, guard);
+    if (existing != null) {
+      return existing;
+    }
+    CacheManagementSupport.register(guard, "CacheSizeGuard", cacheName);
+    return guard;
+  }
+
+  private static CacheValueWeigher createWeigher(String className) {
+    if (className == null) {
+      return new SerializedSizeWeigher();
+    }
+    try {
+      final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      return Class.forName(className, true, classLoader).asSubclass(CacheValueWeigher.class).getDeclaredConstructor()
+          .newInstance();
+    } catch (Exception e) {
+      LOGGER.log(Level.WARNING, "Unable to create weigher " + className + ", using serialized sizes", e);
+      return new SerializedSizeWeigher();
+    }
+  }
+
+  /**
+   * Weigh a value and decide if it may be written to the cache
+   *
+   * @param key   The cache key, used in warnings
+   * @param value The value about to be written
+   * @return true if the value may be written
+   */
+  public boolean admit(Object key, Object value) {
+    this.checked.incrementAndGet();
+    final long bytes = value instanceof EncodedCacheValue
+        ? ((EncodedCacheValue) value).getData().length : this.weigher.weigh(value);
+    if (bytes < 0) {
+      this.unknown.incrementAndGet();
+      return true;
+    }
+
+    this.histogram.incrementAndGet(bucket(bytes));
+    long current;
+    while (bytes > (current = this.largest.get()) && !this.largest.compareAndSet(current, bytes)) {
+      //Retry until the largest size is at least this one
+    }
+
+    if (bytes <= this.maxBytes) {
+      return true;
+    }
+    this.rejected.incrementAndGet();
+
+    final long now = System.currentTimeMillis();
+    final long last = this.lastWarning.get();
+    if (now - last >= WARNING_INTERVAL_MILLIS && this.lastWarning.compareAndSet(last, now)) {
+      LOGGER.warning("Not caching " + bytes + " byte value for key " + key + " in cache " + this.cacheName +
+          ", the limit is " + this.maxBytes + " bytes");
+    }
+    return false;
+  }
+
+  private static int bucket(long bytes) {
+    return bytes <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(bytes));
+  }
+
+  private long getPercentileBytes(int percentile) {
+    final long[] counts = this.getSizeHistogram();
+    long total = 0;
+    for (final long count : counts) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    final long target = (total * percentile + 99) / 100;
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulative += counts[i];
+      if (cumulative >= target) {
+        //Upper bound of the bucket holding the percentile
+        return i == 0 ? 0 : (1L << i) - 1;
+      }
+    }
+    return this.largest.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheSizeGuardMXBean#getMaxBytes()
+   */
+  @Override
+  public long getMaxBytes() {
+    return this.maxBytes;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheSizeGuardMXBean#getCheckedCount()
+   */
+  @Override
+  public long getCheckedCount() {
+    return this.checked.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheSizeGuardMXBean#getRejectedCount()
+   */
+  @Override
+  public long getRejectedCount() {
+    return this.rejected.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheSizeGuardMXBean#getUnknownCount()
+   */
+  @Override
+  public long getUnknownCount() {
+    return this.unknown.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheSizeGuardMXBean#getLargestBytes()
+   */
+  @Override
+  public long getLargestBytes() {
+    return this.largest.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheSizeGuardMXBean#getMedianBytes()
+   */
+  @Override
+  public long getMedianBytes() {
+    return this.getPercentileBytes(50);
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheSizeGuardMXBean#getPercentile99Bytes()
+   */
+  @Override
+  public long getPercentile99Bytes() {
+    return this.getPercentileBytes(99);
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheSizeGuardMXBean#getSizeHistogram()
+   */
+  @Override
+  public long[] getSizeHistogram() {
+    final long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = this.histogram.get(i);
+    }
+    return counts;
+  }
+}
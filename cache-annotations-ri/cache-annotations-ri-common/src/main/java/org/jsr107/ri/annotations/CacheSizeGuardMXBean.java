@@ -0,0 +1,66 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Management view of a {@link CacheSizeGuard}.
+ *
+ * @since 1.0
+ */
+public interface CacheSizeGuardMXBean {
+
+  /**
+   * @return Largest value size, in bytes, that is written to the cache
+   */
+  long getMaxBytes();
+
+  /**
+   * @return Number of values that were weighed
+   */
+  long getCheckedCount();
+
+  /**
+   * @return Number of values that were not written because they were too large
+   */
+  long getRejectedCount();
+
+  /**
+   * @return Number of values whose size could not be estimated, they are written
+   */
+  long getUnknownCount();
+
+  /**
+   * @return Size in bytes of the largest value weighed
+   */
+  long getLargestBytes();
+
+  /**
+   * @return Approximate median value size in bytes
+   */
+  long getMedianBytes();
+
+  /**
+   * @return Approximate 99th percentile value size in bytes
+   */
+  long getPercentile99Bytes();
+
+  /**
+   * @return Number of values weighed per size bucket, bucket <code>i</code> counts sizes from
+   *         <code>2^(i-1)</code> up to but excluding <code>2^i</code> bytes
+   */
+  long[] getSizeHistogram();
+}
@@ -0,0 +1,50 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a parameter whose value tags the cached entry, for example the tenant the entry belongs to.
+ * <p>
+ * On {@link javax.cache.annotation.CacheResult} and {@link javax.cache.annotation.CachePut} methods the entry
+ * written is tagged with the parameter value under the given name. On {@link CacheRemoveByTag} methods all entries
+ * of the cache tagged with the parameter value are invalidated, entries with other values of the same tag are
+ * kept. For example:
+ * </p>
+ * <pre><code>
+ * &#64;CacheResult(cacheName="orders")
+ * public Order getOrder(&#64;CacheKey &#64;CacheTag("tenant") String tenantId, &#64;CacheKey long orderId)
+ *
+ * &#64;CacheRemoveByTag(cacheName="orders")
+ * public void resetTenant(&#64;CacheTag("tenant") String tenantId)
+ * </code></pre>
+ *
+ * @since 1.0
+ */
+@Target({ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheTag {
+
+  /**
+   * @return The name of the tag, the same name must be used by the methods that write and invalidate entries
+   */
+  String value();
+}
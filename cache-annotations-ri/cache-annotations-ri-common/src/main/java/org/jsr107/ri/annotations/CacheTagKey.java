@@ -0,0 +1,72 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.annotation.GeneratedCacheKey;
+
+/**
+ * Key of the entry that holds the current generation of a tag value, stored in the same cache as the entries
+ * that carry the tag.
+ *
+ * @since 1.0
+ */
+public class CacheTagKey implements GeneratedCacheKey {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String name;
+  private final Object value;
+  private final int hashCode;
+
+  /**
+   * @param name  The name of the tag
+   * @param value The tag value, may be null
+   */
+  public CacheTagKey(String name, Object value) {
+    if (name == null) {
+      throw new IllegalArgumentException("name cannot be null");
+    }
+    this.name = name;
+    this.value = value;
+    this.hashCode = 31 * name.hashCode() + (value == null ? 0 : value.hashCode());
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    if (this.hashCode != obj.hashCode())
+      return false;
+    CacheTagKey other = (CacheTagKey) obj;
+    return this.name.equals(other.name) &&
+        (this.value == null ? other.value == null : this.value.equals(other.value));
+  }
+
+  @Override
+  public String toString() {
+    return "CacheTagKey[" + this.name + "=" + this.value + "]";
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationParameter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@link CacheTag} parameters of a method, resolved once by {@link AbstractCacheLookupUtil}.
+ * <p>
+ * Tags are implemented with generations instead of an index of the tagged keys. Every tag value has a generation
+ * stored in the cache under a {@link CacheTagKey}, entries are written in a {@link CacheValueHolder} stamped with
+ * the generations of their tags, and invalidating a tag value replaces its generation. An entry whose stamp no
+ * longer matches is treated as a miss and is overwritten or expires on its own, so invalidating one tag value
+ * costs a single put however many entries carry it.
+ * </p>
+ * <p>
+ * The generation entries live in the data cache and may be evicted or expire like any other entry. A missing
+ * generation is therefore never read as a default value, which entries written before it went missing could
+ * carry, a new random generation is created in its place, invalidating every entry of the tag value.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CacheTagging {
+  private final String[] names;
+  private final int[] positions;
+
+  /**
+   * @param names     The tag names, in parameter order
+   * @param positions The position of the parameter holding the value of each tag
+   */
+  public CacheTagging(String[] names, int[] positions) {
+    if (names == null || positions == null || names.length != positions.length) {
+      throw new IllegalArgumentException("names and positions must have the same length");
+    }
+    this.names = names.clone();
+    this.positions = positions.clone();
+  }
+
+  /**
+   * @param parameters The parameters of the invocation
+   * @return The keys of the generations of the tag values, in parameter order
+   */
+  public CacheTagKey[] getTagKeys(CacheInvocationParameter[] parameters) {
+    final CacheTagKey[] tagKeys = new CacheTagKey[this.names.length];
+    for (int index = 0; index < tagKeys.length; index++) {
+      tagKeys[index] = new CacheTagKey(this.names[index], parameters[this.positions[index]].getValue());
+    }
+    return tagKeys;
+  }
+
+  /**
+   * Read the current generations of the tag values with a single {@link Cache#getAll(Set)}, creating the ones
+   * that are missing
+   *
+   * @param cache      The cache holding the tagged entries
+   * @param parameters The parameters of the invocation
+   * @return The generations, in parameter order
+   */
+  public long[] getGenerations(Cache<Object, Object> cache, CacheInvocationParameter[] parameters) {
+    final CacheTagKey[] tagKeys = this.getTagKeys(parameters);
+    final Map<Object, Object> stored = cache.getAll(new LinkedHashSet<Object>(Arrays.asList(tagKeys)));
+    final long[] generations = new long[tagKeys.length];
+    for (int index = 0; index < tagKeys.length; index++) {
+      final Object generation = stored.get(tagKeys[index]);
+      generations[index] = generation instanceof Long ?
+          (Long) generation : createGeneration(cache, tagKeys[index]);
+    }
+    return generations;
+  }
+
+  /**
+   * Create the generation of a tag value that has none, never invalidated or evicted from the cache
+   */
+  private static long createGeneration(Cache<Object, Object> cache, CacheTagKey tagKey) {
+    final long generation = nextGeneration();
+    if (cache.putIfAbsent(tagKey, generation)) {
+      return generation;
+    }
+    //Created concurrently by another caller
+    final Object existing = cache.get(tagKey);
+    if (existing instanceof Long) {
+      return (Long) existing;
+    }
+    cache.put(tagKey, generation);
+    return generation;
+  }
+
+  private static long nextGeneration() {
+    //A random generation needs no read and cannot collide with the generation of a concurrent invalidation
+    long generation;
+    do {
+      generation = ThreadLocalRandom.current().nextLong();
+    } while (generation == 0L);
+    return generation;
+  }
+
+  /**
+   * @param holder      The entry read from the cache
+   * @param generations The current generations of the tag values
+   * @return true if none of the entry's tag values has been invalidated since it was written
+   */
+  public static boolean isCurrent(CacheValueHolder holder, long[] generations) {
+    return Arrays.equals(holder.getTagGenerations(), generations);
+  }
+
+  /**
+   * Create the new generations that invalidate the given tag values
+   *
+   * @param parameters The parameters of the invocation
+   * @return The generation entries to put into the cache
+   */
+  public Map<Object, Object> createNextGenerations(CacheInvocationParameter[] parameters) {
+    final Map<Object, Object> generations = new LinkedHashMap<Object, Object>();
+    for (final CacheTagKey tagKey : this.getTagKeys(parameters)) {
+      generations.put(tagKey, nextGeneration());
+    }
+    return generations;
+  }
+}
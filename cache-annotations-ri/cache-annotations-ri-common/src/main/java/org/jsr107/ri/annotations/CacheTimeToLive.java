@@ -0,0 +1,49 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets the values of a method annotated with {@link javax.cache.annotation.CacheResult} or
+ * {@link javax.cache.annotation.CachePut} decide how long they live, through a {@link CacheTimeToLiveExtractor}.
+ * <p>
+ * Values that implement {@link CacheExpiring} do not need this annotation. A time to live of 0 or less falls back
+ * to the {@link CacheEarlyExpiration} of the method, if any, and otherwise to the cache's own expiry. For example:
+ * </p>
+ * <pre><code>
+ * &#64;CacheResult(cacheName="documents")
+ * &#64;CacheTimeToLive(extractor=MaxAgeExtractor.class)
+ * public HttpDocument fetch(String url)
+ * </code></pre>
+ *
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheTimeToLive {
+
+  /**
+   * @return The extractor that determines the time to live of each value
+   */
+  Class<? extends CacheTimeToLiveExtractor> extractor();
+}
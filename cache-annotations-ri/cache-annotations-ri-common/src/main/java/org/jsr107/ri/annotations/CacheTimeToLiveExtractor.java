@@ -0,0 +1,37 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Determines how long a value lives in the cache from the value itself, for result types that cannot implement
+ * {@link CacheExpiring}.
+ * <p>
+ * Implementations are created once per annotated method, as CDI beans if they are, and are called from many
+ * threads, so they must be thread safe.
+ * </p>
+ *
+ * @since 1.0
+ * @see CacheTimeToLive
+ */
+public interface CacheTimeToLiveExtractor {
+
+  /**
+   * @param value The non-null value about to be cached
+   * @return How long the value lives in milliseconds, 0 or less to use the expiry of the method
+   */
+  long getTimeToLiveMillis(Object value);
+}
@@ -0,0 +1,41 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Hook between the annotation interceptors and the transaction of the current thread.
+ * <p>
+ * When a transaction is active {@link javax.cache.annotation.CachePut}, {@link javax.cache.annotation.CacheRemove}
+ * and {@link javax.cache.annotation.CacheRemoveAll} record their cache operations in the
+ * {@link DeferredCacheOperations} of that transaction instead of applying them, implementations flush them once
+ * the transaction committed and discard them if it rolled back.
+ * </p>
+ *
+ * @since 1.0
+ * @see LocalCacheTransactionSupport
+ * @see JtaCacheTransactionSupport
+ */
+public interface CacheTransactionSupport {
+
+  /**
+   * Get the operations buffered for the transaction of the current thread, creating them and registering for
+   * the transaction completion on first use.
+   *
+   * @return The buffered operations, null if no transaction is active
+   */
+  DeferredCacheOperations getDeferredCacheOperations();
+}
@@ -0,0 +1,42 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Converts the values the annotations layer writes to a cache to bytes and back, applied by a {@link CodecCache}.
+ * <p>
+ * Implementations are shared by all operations on a cache and must be thread safe.
+ * </p>
+ *
+ * @since 1.0
+ */
+public interface CacheValueCodec {
+
+  /**
+   * @param value The value to encode, possibly a {@link CacheValueHolder}, never null
+   * @return The encoded value
+   * @throws javax.cache.CacheException if the value cannot be encoded
+   */
+  byte[] encode(Object value);
+
+  /**
+   * @param data Bytes returned by {@link #encode(Object)}
+   * @return The decoded value
+   * @throws javax.cache.CacheException if the bytes cannot be decoded
+   */
+  Object decode(byte[] data);
+}
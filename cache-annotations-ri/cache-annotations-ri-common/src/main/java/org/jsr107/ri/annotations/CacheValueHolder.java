@@ -0,0 +1,115 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.io.Serializable;
+
+/**
+ * Envelope stored in the cache in place of a method result when the annotations layer needs to keep
+ * metadata alongside the value.
+ *
+ * @since 1.0
+ */
+public class CacheValueHolder implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final Object value;
+  private final long createdMillis;
+  private final long refreshAtMillis;
+  private final long expiresMillis;
+  private final long computeNanos;
+  private final long[] tagGenerations;
+
+  /**
+   * @param value           The cached value
+   * @param createdMillis   When the value was computed
+   * @param refreshAtMillis When the value should be refreshed, 0 if it never needs to be
+   * @param expiresMillis   When the value logically expires, 0 if only the cache's expiry applies
+   * @param computeNanos    How long it took to compute the value, 0 if unknown
+   * @param tagGenerations  The generations of the value's {@link CacheTag}s when it was computed, null if untagged
+   */
+  public CacheValueHolder(Object value, long createdMillis, long refreshAtMillis, long expiresMillis,
+                          long computeNanos, long[] tagGenerations) {
+    if (value == null) {
+      throw new IllegalArgumentException("value cannot be null");
+    }
+    this.value = value;
+    this.createdMillis = createdMillis;
+    this.refreshAtMillis = refreshAtMillis;
+    this.expiresMillis = expiresMillis;
+    this.computeNanos = computeNanos;
+    this.tagGenerations = tagGenerations;
+  }
+
+  /**
+   * @return The cached value
+   */
+  public Object getValue() {
+    return this.value;
+  }
+
+  /**
+   * @return When the value was computed
+   */
+  public long getCreatedMillis() {
+    return this.createdMillis;
+  }
+
+  /**
+   * @return When the value should be refreshed, 0 if it never needs to be
+   */
+  public long getRefreshAtMillis() {
+    return this.refreshAtMillis;
+  }
+
+  /**
+   * @return When the value logically expires, 0 if only the cache's expiry applies
+   */
+  public long getExpiresMillis() {
+    return this.expiresMillis;
+  }
+
+  /**
+   * @return How long it took to compute the value, 0 if unknown
+   */
+  public long getComputeNanos() {
+    return this.computeNanos;
+  }
+
+  /**
+   * @return The generations of the value's {@link CacheTag}s when it was computed, null if untagged
+   */
+  public long[] getTagGenerations() {
+    return this.tagGenerations;
+  }
+
+  /**
+   * @param nowMillis The current time
+   * @return true if the value is past its logical expiry
+   */
+  public boolean isExpired(long nowMillis) {
+    return this.expiresMillis != 0 && nowMillis >= this.expiresMillis;
+  }
+
+  /**
+   * @param nowMillis The current time
+   * @return true if the value is past its soft expiry
+   */
+  public boolean isRefreshDue(long nowMillis) {
+    return this.refreshAtMillis != 0 && nowMillis >= this.refreshAtMillis;
+  }
+}
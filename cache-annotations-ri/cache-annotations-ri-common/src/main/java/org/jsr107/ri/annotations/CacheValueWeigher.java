@@ -0,0 +1,34 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Estimates how many bytes a value takes in the cache, used by {@link CacheSizeGuard}.
+ * <p>
+ * Implementations are shared by all writes to a cache and must be thread safe.
+ * </p>
+ *
+ * @since 1.0
+ */
+public interface CacheValueWeigher {
+
+  /**
+   * @param value The value about to be written, possibly a {@link CacheValueHolder}
+   * @return The estimated size in bytes, negative if the size cannot be estimated
+   */
+  long weigh(Object value);
+}
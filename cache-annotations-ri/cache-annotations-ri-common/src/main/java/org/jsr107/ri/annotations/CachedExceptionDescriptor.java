@@ -0,0 +1,185 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.CacheException;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The form in which a {@link CompactExceptionCache} stores exceptions: the exception type, its message and,
+ * optionally, the type and message of its cause.
+ * <p>
+ * Unlike the exception itself the descriptor carries no stack trace, suppressed exceptions or deeper causes, so it
+ * is only a few dozen bytes once serialized. {@link #toThrowable()} rebuilds a fresh exception whose stack trace
+ * is that of the rethrow.
+ * </p>
+ *
+ * @since 1.0
+ */
+public final class CachedExceptionDescriptor implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger LOGGER = Logger.getLogger(CachedExceptionDescriptor.class.getName());
+
+  private final String typeName;
+  private final String message;
+  private final String causeTypeName;
+  private final String causeMessage;
+
+  /**
+   * @param typeName      The class name of the exception
+   * @param message       The message of the exception, may be null
+   * @param causeTypeName The class name of the cause, null if there is none or it is not kept
+   * @param causeMessage  The message of the cause, may be null
+   */
+  public CachedExceptionDescriptor(String typeName, String message, String causeTypeName, String causeMessage) {
+    if (typeName == null) {
+      throw new IllegalArgumentException("typeName cannot be null");
+    }
+    this.typeName = typeName;
+    this.message = message;
+    this.causeTypeName = causeTypeName;
+    this.causeMessage = causeMessage;
+  }
+
+  /**
+   * Describe an exception
+   *
+   * @param t            The exception to describe
+   * @param includeCause If true the type and message of the direct cause are kept as well
+   * @return The descriptor of the exception
+   */
+  public static CachedExceptionDescriptor describe(Throwable t, boolean includeCause) {
+    if (t == null) {
+      throw new IllegalArgumentException("t cannot be null");
+    }
+    final Throwable cause = includeCause ? t.getCause() : null;
+    return new CachedExceptionDescriptor(t.getClass().getName(), t.getMessage(),
+        cause == null ? null : cause.getClass().getName(), cause == null ? null : cause.getMessage());
+  }
+
+  /**
+   * @return The class name of the exception
+   */
+  public String getTypeName() {
+    return this.typeName;
+  }
+
+  /**
+   * @return The message of the exception, may be null
+   */
+  public String getMessage() {
+    return this.message;
+  }
+
+  /**
+   * @return The class name of the cause, null if there is none or it was not kept
+   */
+  public String getCauseTypeName() {
+    return this.causeTypeName;
+  }
+
+  /**
+   * @return The message of the cause, may be null
+   */
+  public String getCauseMessage() {
+    return this.causeMessage;
+  }
+
+  /**
+   * Rebuild the described exception through its <code>(String)</code> or no-argument constructor. An exception
+   * that can be rebuilt neither way is replaced by a {@link CacheException} naming the original type.
+   *
+   * @return A new exception
+   */
+  public Throwable toThrowable() {
+    Throwable throwable = instantiate(this.typeName, this.message);
+    if (throwable == null) {
+      throwable = new CacheException(this.typeName + ": " + this.message);
+    }
+    if (this.causeTypeName != null) {
+      final Throwable cause = instantiate(this.causeTypeName, this.causeMessage);
+      if (cause != null && throwable.getCause() == null) {
+        try {
+          throwable.initCause(cause);
+        } catch (IllegalStateException e) {
+          //The exception set its own cause, keep it
+        }
+      }
+    }
+    return throwable;
+  }
+
+  private static Throwable instantiate(String typeName, String message) {
+    final Class<? extends Throwable> type;
+    try {
+      final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      type = Class.forName(typeName, false, classLoader == null ? CachedExceptionDescriptor.class.getClassLoader() :
+          classLoader).asSubclass(Throwable.class);
+    } catch (Exception e) {
+      LOGGER.log(Level.FINE, "Unable to load cached exception type " + typeName, e);
+      return null;
+    }
+
+    try {
+      final Constructor<? extends Throwable> constructor = type.getConstructor(String.class);
+      return constructor.newInstance(message);
+    } catch (Exception e) {
+      //Fall back to the no-argument constructor below
+    }
+    try {
+      return type.getConstructor().newInstance();
+    } catch (Exception e) {
+      LOGGER.log(Level.FINE, "Unable to rebuild cached exception of type " + typeName, e);
+      return null;
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    int result = this.typeName.hashCode();
+    result = 31 * result + (this.message == null ? 0 : this.message.hashCode());
+    result = 31 * result + (this.causeTypeName == null ? 0 : this.causeTypeName.hashCode());
+    return 31 * result + (this.causeMessage == null ? 0 : this.causeMessage.hashCode());
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CachedExceptionDescriptor)) {
+      return false;
+    }
+    final CachedExceptionDescriptor other = (CachedExceptionDescriptor) obj;
+    return this.typeName.equals(other.typeName) && equal(this.message, other.message) &&
+        equal(this.causeTypeName, other.causeTypeName) && equal(this.causeMessage, other.causeMessage);
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  @Override
+  public String toString() {
+    return "CachedExceptionDescriptor[" + this.typeName + ": " + this.message +
+        (this.causeTypeName == null ? "" : ", cause " + this.causeTypeName + ": " + this.causeMessage) + "]";
+  }
+}
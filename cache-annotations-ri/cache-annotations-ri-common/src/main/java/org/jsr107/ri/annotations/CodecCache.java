@@ -0,0 +1,72 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+
+/**
+ * {@link AbstractTransformingCache} that stores values in the form produced by a {@link CacheValueCodec}.
+ * <p>
+ * Values are encoded into an {@link EncodedCacheValue} by every operation that writes them and decoded by every
+ * operation that returns them, values that were stored before the codec was enabled are returned as they are.
+ * </p>
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public class CodecCache<K, V> extends AbstractTransformingCache<K, V> {
+  private final CacheValueCodec codec;
+
+  /**
+   * @param delegate The cache storing the encoded values
+   * @param codec    Encodes and decodes the values
+   */
+  public CodecCache(Cache<K, V> delegate, CacheValueCodec codec) {
+    super(delegate);
+    if (codec == null) {
+      throw new IllegalArgumentException("codec cannot be null");
+    }
+    this.codec = codec;
+  }
+
+  /**
+   * @param value The value to store, may be null
+   * @return The encoded value, cast to the value type of the underlying cache
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected V encode(V value) {
+    if (value == null) {
+      return null;
+    }
+    return (V) new EncodedCacheValue(this.codec.encode(value));
+  }
+
+  /**
+   * @param stored The value read from the underlying cache, may be null
+   * @return The decoded value
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected V decode(V stored) {
+    if (stored instanceof EncodedCacheValue) {
+      return (V) this.codec.decode(((EncodedCacheValue) stored).getData());
+    }
+    return stored;
+  }
+}
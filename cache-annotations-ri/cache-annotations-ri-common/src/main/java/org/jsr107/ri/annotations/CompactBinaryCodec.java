@@ -0,0 +1,408 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.CacheException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link CacheValueCodec} with a compact binary format for the types cached values are usually built from.
+ * <p>
+ * Strings, boxed primitives, byte arrays, {@link ArrayList}, {@link HashMap}, {@link LinkedHashMap},
+ * {@link HashSet}, {@link LinkedHashSet}, {@link CacheValueHolder} and {@link DefaultGeneratedCacheKey} are written
+ * as a one byte tag followed by variable length numbers or their elements, without the class descriptors Java
+ * serialization writes, so the keys a {@link LocalCacheStore} encodes on every lookup are usually cheap to encode.
+ * Any other {@link java.io.Serializable} object, including one nested in a collection, falls back to Java
+ * serialization. Only those exact collection and key classes are encoded compactly so a decoded value always has the type of the
+ * original.
+ * </p>
+ * <p>
+ * Application classes such as DTOs are therefore still written with Java serialization, class descriptors
+ * included, only their fields of the types above are not. For such values it is mostly the compression of a
+ * {@link CompressingCacheValueCodec} that reduces the size, a codec that knows the DTO classes can be plugged in
+ * with <code>codec.class</code>.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CompactBinaryCodec implements CacheValueCodec {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int INTEGER = 2;
+  private static final int LONG = 3;
+  private static final int TRUE = 4;
+  private static final int FALSE = 5;
+  private static final int DOUBLE = 6;
+  private static final int FLOAT = 7;
+  private static final int SHORT = 8;
+  private static final int BYTE = 9;
+  private static final int CHARACTER = 10;
+  private static final int BYTES = 11;
+  private static final int ARRAY_LIST = 12;
+  private static final int HASH_MAP = 13;
+  private static final int LINKED_HASH_MAP = 14;
+  private static final int HASH_SET = 15;
+  private static final int LINKED_HASH_SET = 16;
+  private static final int VALUE_HOLDER = 17;
+  private static final int SERIALIZED = 18;
+  private static final int GENERATED_KEY = 19;
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheValueCodec#encode(java.lang.Object)
+   */
+  @Override
+  public byte[] encode(Object value) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try {
+      final DataOutputStream out = new DataOutputStream(bytes);
+      this.write(out, value);
+      out.flush();
+    } catch (IOException e) {
+      throw new CacheException("Unable to encode " + value.getClass().getName(), e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheValueCodec#decode(byte[])
+   */
+  @Override
+  public Object decode(byte[] data) {
+    try {
+      return this.read(new DataInputStream(new ByteArrayInputStream(data)));
+    } catch (IOException e) {
+      throw new CacheException("Unable to decode cached value", e);
+    } catch (ClassNotFoundException e) {
+      throw new CacheException("Unable to decode cached value", e);
+    }
+  }
+
+  /**
+   * Write one value, subclasses may override this to encode additional types with tags of 64 and above
+   *
+   * @param out   The stream to write to
+   * @param value The value to write, may be null
+   * @throws IOException if the value cannot be written
+   */
+  protected void write(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      final byte[] utf8 = ((String) value).getBytes(UTF_8);
+      out.writeByte(STRING);
+      writeVarLong(out, utf8.length);
+      out.write(utf8);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      writeVarLong(out, zigZag((Integer) value));
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      writeVarLong(out, zigZag((Long) value));
+    } else if (value instanceof Boolean) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) value);
+    } else if (value instanceof Character) {
+      out.writeByte(CHARACTER);
+      out.writeChar((Character) value);
+    } else if (value instanceof byte[]) {
+      final byte[] array = (byte[]) value;
+      out.writeByte(BYTES);
+      writeVarLong(out, array.length);
+      out.write(array);
+    } else if (value.getClass() == ArrayList.class) {
+      this.writeElements(out, ARRAY_LIST, (Collection<?>) value);
+    } else if (value.getClass() == HashSet.class) {
+      this.writeElements(out, HASH_SET, (Collection<?>) value);
+    } else if (value.getClass() == LinkedHashSet.class) {
+      this.writeElements(out, LINKED_HASH_SET, (Collection<?>) value);
+    } else if (value.getClass() == HashMap.class) {
+      this.writeEntries(out, HASH_MAP, (Map<?, ?>) value);
+    } else if (value.getClass() == LinkedHashMap.class) {
+      this.writeEntries(out, LINKED_HASH_MAP, (Map<?, ?>) value);
+    } else if (value.getClass() == CacheValueHolder.class) {
+      final CacheValueHolder holder = (CacheValueHolder) value;
+      out.writeByte(VALUE_HOLDER);
+      this.write(out, holder.getValue());
+      writeVarLong(out, holder.getCreatedMillis());
+      writeVarLong(out, holder.getRefreshAtMillis());
+      writeVarLong(out, holder.getExpiresMillis());
+      writeVarLong(out, holder.getComputeNanos());
+      final long[] tagGenerations = holder.getTagGenerations();
+      writeVarLong(out, tagGenerations == null ? 0 : tagGenerations.length + 1);
+      if (tagGenerations != null) {
+        for (final long generation : tagGenerations) {
+          out.writeLong(generation);
+        }
+      }
+    } else if (value.getClass() == DefaultGeneratedCacheKey.class) {
+      final Object[] parameters = ((DefaultGeneratedCacheKey) value).getParameters();
+      out.writeByte(GENERATED_KEY);
+      writeVarLong(out, parameters.length);
+      for (final Object parameter : parameters) {
+        this.write(out, parameter);
+      }
+    } else {
+      //Length prefixed so reading the object cannot consume the bytes of the values that follow it
+      final ByteArrayOutputStream serialized = new ByteArrayOutputStream(256);
+      final ObjectOutputStream objectOut = new ObjectOutputStream(serialized);
+      objectOut.writeObject(value);
+      objectOut.close();
+      out.writeByte(SERIALIZED);
+      writeVarLong(out, serialized.size());
+      serialized.writeTo(out);
+    }
+  }
+
+  /**
+   * Read one value written by {@link #write(DataOutputStream, Object)}
+   *
+   * @param in The stream to read from
+   * @return The value, may be null
+   * @throws IOException            if the value cannot be read
+   * @throws ClassNotFoundException if a serialized class is not available
+   */
+  protected Object read(DataInputStream in) throws IOException, ClassNotFoundException {
+    final int tag = in.readUnsignedByte();
+    return this.read(in, tag);
+  }
+
+  /**
+   * Read the value following a tag, subclasses overriding {@link #write(DataOutputStream, Object)} override this
+   * to read their own tags
+   *
+   * @param in  The stream to read from
+   * @param tag The tag already read
+   * @return The value, may be null
+   * @throws IOException            if the value cannot be read
+   * @throws ClassNotFoundException if a serialized class is not available
+   */
+  protected Object read(DataInputStream in, int tag) throws IOException, ClassNotFoundException {
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING: {
+        final byte[] utf8 = new byte[readLength(in)];
+        in.readFully(utf8);
+        return new String(utf8, UTF_8);
+      }
+      case INTEGER:
+        return (int) unZigZag(readVarLong(in));
+      case LONG:
+        return unZigZag(readVarLong(in));
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case SHORT:
+        return in.readShort();
+      case BYTE:
+        return in.readByte();
+      case CHARACTER:
+        return in.readChar();
+      case BYTES: {
+        final byte[] array = new byte[readLength(in)];
+        in.readFully(array);
+        return array;
+      }
+      case ARRAY_LIST: {
+        final int size = readLength(in);
+        return this.readElements(in, size, new ArrayList<Object>(size));
+      }
+      case HASH_SET: {
+        final int size = readLength(in);
+        return this.readElements(in, size, new HashSet<Object>(capacity(size)));
+      }
+      case LINKED_HASH_SET: {
+        final int size = readLength(in);
+        return this.readElements(in, size, new LinkedHashSet<Object>(capacity(size)));
+      }
+      case HASH_MAP: {
+        final int size = readLength(in);
+        return this.readEntries(in, size, new HashMap<Object, Object>(capacity(size)));
+      }
+      case LINKED_HASH_MAP: {
+        final int size = readLength(in);
+        return this.readEntries(in, size, new LinkedHashMap<Object, Object>(capacity(size)));
+      }
+      case VALUE_HOLDER: {
+        final Object value = this.read(in);
+        final long createdMillis = readVarLong(in);
+        final long refreshAtMillis = readVarLong(in);
+        final long expiresMillis = readVarLong(in);
+        final long computeNanos = readVarLong(in);
+        final int tagCount = readLength(in);
+        long[] tagGenerations = null;
+        if (tagCount > 0) {
+          tagGenerations = new long[tagCount - 1];
+          for (int index = 0; index < tagGenerations.length; index++) {
+            tagGenerations[index] = in.readLong();
+          }
+        }
+        return new CacheValueHolder(value, createdMillis, refreshAtMillis, expiresMillis, computeNanos, tagGenerations);
+      }
+      case SERIALIZED: {
+        final byte[] serialized = new byte[readLength(in)];
+        in.readFully(serialized);
+        return new ContextObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+      }
+      case GENERATED_KEY: {
+        final Object[] parameters = new Object[readLength(in)];
+        for (int index = 0; index < parameters.length; index++) {
+          parameters[index] = this.read(in);
+        }
+        return new DefaultGeneratedCacheKey(parameters);
+      }
+      default:
+        throw new IOException("Unknown value tag " + tag);
+    }
+  }
+
+  private void writeElements(DataOutputStream out, int tag, Collection<?> elements) throws IOException {
+    out.writeByte(tag);
+    writeVarLong(out, elements.size());
+    for (final Object element : elements) {
+      this.write(out, element);
+    }
+  }
+
+  private void writeEntries(DataOutputStream out, int tag, Map<?, ?> entries) throws IOException {
+    out.writeByte(tag);
+    writeVarLong(out, entries.size());
+    for (final Map.Entry<?, ?> entry : entries.entrySet()) {
+      this.write(out, entry.getKey());
+      this.write(out, entry.getValue());
+    }
+  }
+
+  private Collection<Object> readElements(DataInputStream in, int size, Collection<Object> elements)
+      throws IOException, ClassNotFoundException {
+    for (int index = 0; index < size; index++) {
+      elements.add(this.read(in));
+    }
+    return elements;
+  }
+
+  private Map<Object, Object> readEntries(DataInputStream in, int size, Map<Object, Object> entries)
+      throws IOException, ClassNotFoundException {
+    for (int index = 0; index < size; index++) {
+      final Object key = this.read(in);
+      entries.put(key, this.read(in));
+    }
+    return entries;
+  }
+
+  private static int capacity(int size) {
+    return size < 3 ? size + 1 : (int) (size / 0.75f) + 1;
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Write an unsigned number in 7 bit groups, small numbers take a single byte
+   */
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    long remaining = value;
+    while ((remaining & ~0x7FL) != 0) {
+      out.writeByte((int) ((remaining & 0x7F) | 0x80));
+      remaining >>>= 7;
+    }
+    out.writeByte((int) remaining);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length number");
+  }
+
+  private static int readLength(DataInputStream in) throws IOException {
+    final long length = readVarLong(in);
+    if (length < 0 || length > Integer.MAX_VALUE) {
+      throw new IOException("Invalid length " + length);
+    }
+    return (int) length;
+  }
+
+  /**
+   * Resolves serialized classes through the context class loader, application classes are usually not visible
+   * to the class loader of this library
+   */
+  private static final class ContextObjectInputStream extends ObjectInputStream {
+    private ContextObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      if (classLoader != null) {
+        try {
+          return Class.forName(desc.getName(), false, classLoader);
+        } catch (ClassNotFoundException e) {
+          //Fall back to the default resolution below
+        }
+      }
+      return super.resolveClass(desc);
+    }
+  }
+}
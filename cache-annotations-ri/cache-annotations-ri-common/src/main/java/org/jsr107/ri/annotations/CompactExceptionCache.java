@@ -0,0 +1,71 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+
+/**
+ * {@link AbstractTransformingCache} for exception caches that stores a {@link CachedExceptionDescriptor} in place
+ * of each exception.
+ * <p>
+ * Exceptions are described by every operation that writes them and rebuilt by every operation that returns them,
+ * so each read returns a new exception. Other values, including exceptions stored before the descriptors were
+ * enabled, are returned as they are.
+ * </p>
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public class CompactExceptionCache<K, V> extends AbstractTransformingCache<K, V> {
+  private final boolean includeCause;
+
+  /**
+   * @param delegate     The cache storing the descriptors
+   * @param includeCause If true the type and message of the direct cause of an exception are kept as well
+   */
+  public CompactExceptionCache(Cache<K, V> delegate, boolean includeCause) {
+    super(delegate);
+    this.includeCause = includeCause;
+  }
+
+  /**
+   * @param value The value to store, may be null
+   * @return The descriptor of the exception, cast to the value type of the underlying cache
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected V encode(V value) {
+    if (value instanceof Throwable) {
+      return (V) CachedExceptionDescriptor.describe((Throwable) value, this.includeCause);
+    }
+    return value;
+  }
+
+  /**
+   * @param stored The value read from the underlying cache, may be null
+   * @return A new exception rebuilt from the descriptor
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected V decode(V stored) {
+    if (stored instanceof CachedExceptionDescriptor) {
+      return (V) ((CachedExceptionDescriptor) stored).toThrowable();
+    }
+    return stored;
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.CacheException;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link CacheValueCodec} that compresses the output of another codec with {@link Deflater} once it reaches a
+ * size threshold.
+ * <p>
+ * Every encoded value starts with a one byte header telling whether it is compressed. Values below the threshold,
+ * and values that do not get smaller, are stored uncompressed so small values do not pay for inflation on read.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CompressingCacheValueCodec implements CacheValueCodec {
+  private static final byte PLAIN = 0;
+  private static final byte DEFLATED = 1;
+
+  private final CacheValueCodec delegate;
+  private final int thresholdBytes;
+  private final int level;
+
+  /**
+   * @param delegate       The codec whose output is compressed
+   * @param thresholdBytes Smallest encoded size that is compressed
+   * @param level          The {@link Deflater} compression level
+   */
+  public CompressingCacheValueCodec(CacheValueCodec delegate, int thresholdBytes, int level) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate cannot be null");
+    }
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("level must be between -1 and 9");
+    }
+    this.delegate = delegate;
+    this.thresholdBytes = thresholdBytes;
+    this.level = level;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheValueCodec#encode(java.lang.Object)
+   */
+  @Override
+  public byte[] encode(Object value) {
+    final byte[] encoded = this.delegate.encode(value);
+    if (encoded.length >= this.thresholdBytes) {
+      final byte[] compressed = this.deflate(encoded);
+      if (compressed != null) {
+        return compressed;
+      }
+    }
+
+    final byte[] plain = new byte[encoded.length + 1];
+    plain[0] = PLAIN;
+    System.arraycopy(encoded, 0, plain, 1, encoded.length);
+    return plain;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheValueCodec#decode(byte[])
+   */
+  @Override
+  public Object decode(byte[] data) {
+    if (data.length == 0) {
+      throw new CacheException("Unable to decode an empty cached value");
+    }
+    if (data[0] == PLAIN) {
+      return this.delegate.decode(Arrays.copyOfRange(data, 1, data.length));
+    }
+    if (data[0] == DEFLATED) {
+      return this.delegate.decode(this.inflate(data));
+    }
+    throw new CacheException("Unknown compression header " + data[0]);
+  }
+
+  /**
+   * @return The header byte followed by the compressed bytes, null if compression does not make them smaller
+   */
+  private byte[] deflate(byte[] encoded) {
+    final Deflater deflater = new Deflater(this.level);
+    try {
+      deflater.setInput(encoded);
+      deflater.finish();
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length / 2 + 16);
+      out.write(DEFLATED);
+      final byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+        if (out.size() > encoded.length) {
+          return null;
+        }
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private byte[] inflate(byte[] data) {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data, 1, data.length - 1);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+      final byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        final int inflated = inflater.inflate(buffer);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new CacheException("Truncated compressed cached value");
+        }
+        out.write(buffer, 0, inflated);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new CacheException("Corrupt compressed cached value", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
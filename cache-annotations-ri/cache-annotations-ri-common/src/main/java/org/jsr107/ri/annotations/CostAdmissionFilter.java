@@ -0,0 +1,157 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides if a method result is expensive enough to be cached, see {@link CacheCostAdmission}.
+ * <p>
+ * Invocation times are recorded in a histogram of power of two buckets. Every {@link #SAMPLE_PERIOD} samples the
+ * percentile threshold is recomputed and the histogram is halved, so the threshold follows recent behavior.
+ * Recording and admission are lock-free.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class CostAdmissionFilter implements CostAdmissionFilterMXBean {
+  /**
+   * Number of samples between recomputations of the percentile threshold
+   */
+  public static final int SAMPLE_PERIOD = 1024;
+
+  private static final int BUCKETS = 64;
+
+  private final long minComputeNanos;
+  private final int percentile;
+  private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+  private final AtomicLong samples = new AtomicLong();
+  private final AtomicLong admitted = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private volatile long percentileThresholdNanos;
+
+  /**
+   * @param minComputeNanos Minimum time an invocation must take for its result to be cached
+   * @param percentile      Percentile of recent invocation times an invocation must reach, 0 to disable
+   */
+  public CostAdmissionFilter(long minComputeNanos, int percentile) {
+    if (minComputeNanos < 0) {
+      throw new IllegalArgumentException("minComputeNanos cannot be negative");
+    }
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100");
+    }
+    this.minComputeNanos = minComputeNanos;
+    this.percentile = percentile;
+  }
+
+  /**
+   * Record an invocation and decide if its result should be cached
+   *
+   * @param computeNanos How long the invocation took
+   * @return true if the result should be cached
+   */
+  public boolean admit(long computeNanos) {
+    boolean admit = computeNanos >= this.minComputeNanos;
+    if (this.percentile > 0) {
+      this.record(computeNanos);
+      admit &= computeNanos >= this.percentileThresholdNanos;
+    }
+
+    if (admit) {
+      this.admitted.incrementAndGet();
+    } else {
+      this.rejected.incrementAndGet();
+    }
+    return admit;
+  }
+
+  private void record(long computeNanos) {
+    this.histogram.incrementAndGet(bucket(computeNanos));
+    if (this.samples.incrementAndGet() % SAMPLE_PERIOD == 0) {
+      this.recomputeThreshold();
+    }
+  }
+
+  private void recomputeThreshold() {
+    long total = 0;
+    final long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      //Read and age the bucket, concurrent increments are kept
+      final long count = this.histogram.get(i);
+      this.histogram.addAndGet(i, -(count >> 1));
+      counts[i] = count;
+      total += count;
+    }
+
+    final long target = (total * this.percentile + 99) / 100;
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulative += counts[i];
+      if (cumulative >= target) {
+        //Lower bound of the bucket holding the percentile
+        this.percentileThresholdNanos = i == 0 ? 0 : 1L << (i - 1);
+        return;
+      }
+    }
+  }
+
+  private static int bucket(long nanos) {
+    return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CostAdmissionFilterMXBean#getMinComputeMillis()
+   */
+  @Override
+  public double getMinComputeMillis() {
+    return this.minComputeNanos / 1000000d;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CostAdmissionFilterMXBean#getPercentile()
+   */
+  @Override
+  public int getPercentile() {
+    return this.percentile;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CostAdmissionFilterMXBean#getPercentileThresholdMillis()
+   */
+  @Override
+  public double getPercentileThresholdMillis() {
+    return this.percentileThresholdNanos / 1000000d;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CostAdmissionFilterMXBean#getAdmittedCount()
+   */
+  @Override
+  public long getAdmittedCount() {
+    return this.admitted.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CostAdmissionFilterMXBean#getRejectedCount()
+   */
+  @Override
+  public long getRejectedCount() {
+    return this.rejected.get();
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Management view of a {@link CostAdmissionFilter}.
+ *
+ * @since 1.0
+ */
+public interface CostAdmissionFilterMXBean {
+
+  /**
+   * @return Minimum time in milliseconds an invocation must take for its result to be cached
+   */
+  double getMinComputeMillis();
+
+  /**
+   * @return Percentile of recent invocation times an invocation must reach, 0 if disabled
+   */
+  int getPercentile();
+
+  /**
+   * @return The invocation time in milliseconds currently required by the percentile
+   */
+  double getPercentileThresholdMillis();
+
+  /**
+   * @return Number of results that were put into the cache
+   */
+  long getAdmittedCount();
+
+  /**
+   * @return Number of results that were not put into the cache because they were cheap to compute
+   */
+  long getRejectedCount();
+}
@@ -49,6 +49,13 @@ public class DefaultGeneratedCacheKey implements GeneratedCacheKey {
     this.hashCode = Arrays.deepHashCode(parameters);
   }
 
+  /**
+   * @return The parameters of the key, not copied so they must not be modified
+   */
+  Object[] getParameters() {
+    return this.parameters;
+  }
+
   @Override
   public int hashCode() {
     return this.hashCode;
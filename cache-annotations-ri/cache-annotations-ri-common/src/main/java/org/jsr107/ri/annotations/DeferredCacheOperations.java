@@ -0,0 +1,178 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache writes and removes buffered for the duration of a transaction.
+ * <p>
+ * Operations are coalesced per cache name and key, only the last operation on a key is kept and a remove of all
+ * entries discards everything buffered before it. Buffers are keyed by name rather than by cache instance as every
+ * annotated method resolves its own decorated wrapper of the cache, a put in one method and a remove of the same
+ * key in another must still end up in the same buffer. {@link #flush()} applies what is left with one
+ * {@link Cache#removeAll()}, {@link Cache#removeAll(Set)} and {@link Cache#putAll(Map)} per cache, it is called
+ * after the transaction committed. After a rollback the operations are simply dropped.
+ * </p>
+ * <p>
+ * An instance belongs to a single transaction and so to a single thread, it is not thread safe.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class DeferredCacheOperations {
+  private static final Logger LOGGER = Logger.getLogger(DeferredCacheOperations.class.getName());
+
+  private final Map<String, PendingOperations> caches = new LinkedHashMap<String, PendingOperations>();
+
+  /**
+   * @param cache The cache to write to
+   * @param key   The cache key
+   * @param value The value to store
+   */
+  public void put(Cache<Object, Object> cache, Object key, Object value) {
+    final PendingOperations operations = this.getPendingOperations(cache);
+    operations.removes.remove(key);
+    operations.puts.put(key, value);
+  }
+
+  /**
+   * @param cache   The cache to write to
+   * @param entries The entries to store
+   */
+  public void putAll(Cache<Object, Object> cache, Map<?, ?> entries) {
+    final PendingOperations operations = this.getPendingOperations(cache);
+    operations.removes.removeAll(entries.keySet());
+    operations.puts.putAll(entries);
+  }
+
+  /**
+   * @param cache The cache to remove from
+   * @param key   The cache key
+   */
+  public void remove(Cache<Object, Object> cache, Object key) {
+    final PendingOperations operations = this.getPendingOperations(cache);
+    operations.puts.remove(key);
+    operations.removes.add(key);
+  }
+
+  /**
+   * @param cache The cache to remove from
+   * @param keys  The cache keys
+   */
+  public void removeAll(Cache<Object, Object> cache, Set<?> keys) {
+    final PendingOperations operations = this.getPendingOperations(cache);
+    operations.puts.keySet().removeAll(keys);
+    operations.removes.addAll(keys);
+  }
+
+  /**
+   * @param cache The cache to clear
+   */
+  public void removeAll(Cache<Object, Object> cache) {
+    final PendingOperations operations = this.getPendingOperations(cache);
+    operations.puts.clear();
+    operations.removes.clear();
+    operations.removeAll = true;
+  }
+
+  /**
+   * @param cacheName The name of the cache
+   * @param key       The cache key
+   * @return true if a write or remove of the key, or a remove of all entries, is buffered for the cache
+   */
+  public boolean isPending(String cacheName, Object key) {
+    final PendingOperations operations = this.caches.get(cacheName);
+    return operations != null &&
+        (operations.removeAll || operations.puts.containsKey(key) || operations.removes.contains(key));
+  }
+
+  /**
+   * @param cacheName The name of the cache
+   * @param key       The cache key
+   * @return The value buffered to be written for the key, null if none is, including when it is to be removed
+   */
+  public Object getPendingValue(String cacheName, Object key) {
+    final PendingOperations operations = this.caches.get(cacheName);
+    return operations == null ? null : operations.puts.get(key);
+  }
+
+  /**
+   * @return true if no operation is buffered
+   */
+  public boolean isEmpty() {
+    return this.caches.isEmpty();
+  }
+
+  /**
+   * Apply the buffered operations and forget them. A failure on one cache is logged and does not prevent the
+   * remaining caches from being updated, the transaction has already committed at this point.
+   */
+  public void flush() {
+    for (final PendingOperations operations : this.caches.values()) {
+      final Cache<Object, Object> cache = operations.cache;
+      try {
+        if (operations.removeAll) {
+          cache.removeAll();
+        }
+        if (!operations.removes.isEmpty()) {
+          cache.removeAll(operations.removes);
+        }
+        if (!operations.puts.isEmpty()) {
+          cache.putAll(operations.puts);
+        }
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Failed to apply the operations deferred to transaction commit on cache " + cache.getName(), e);
+      }
+    }
+    this.caches.clear();
+  }
+
+  /**
+   * Drop the buffered operations
+   */
+  public void discard() {
+    this.caches.clear();
+  }
+
+  private PendingOperations getPendingOperations(Cache<Object, Object> cache) {
+    final String cacheName = cache.getName();
+    PendingOperations operations = this.caches.get(cacheName);
+    if (operations == null) {
+      operations = new PendingOperations();
+      this.caches.put(cacheName, operations);
+    }
+    operations.cache = cache;
+    return operations;
+  }
+
+  /**
+   * Operations buffered for one cache
+   */
+  private static final class PendingOperations {
+    private Cache<Object, Object> cache;
+    private final Map<Object, Object> puts = new LinkedHashMap<Object, Object>();
+    private final Set<Object> removes = new LinkedHashSet<Object>();
+    private boolean removeAll;
+  }
+}
@@ -0,0 +1,233 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.cache.annotation.CacheResult;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link CacheResolverFactory} that creates its delegate factory, and with it the default
+ * {@link javax.cache.CacheManager}, lazily on a background thread.
+ * <p>
+ * Creating this factory and the {@link CacheResolver}s it returns never touches the CacheManager, the
+ * delegate is only created the first time a cache is actually resolved. In {@link Mode#BLOCKING} mode
+ * that first resolution waits for the CacheManager. In {@link Mode#PASS_THROUGH} mode the resolvers of
+ * {@link CacheResult} and {@link BulkCacheResult} methods return <code>null</code> until the CacheManager is ready,
+ * which the interceptors treat as "no cache available" and simply proceed with the annotated method. The resolvers
+ * of every other annotation still wait, so a put or remove made during startup is never lost for other nodes
+ * sharing the cache.
+ * </p>
+ * <p>
+ * {@link #initialize()} starts creating the CacheManager ahead of the first cached call.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class DeferredCacheResolverFactory implements CacheResolverFactory {
+  /**
+   * How cache resolution behaves while the delegate factory is still being created
+   */
+  public enum Mode {
+    /**
+     * Wait for the delegate factory to be created
+     */
+    BLOCKING,
+    /**
+     * Resolve no cache for reads until the delegate factory has been created, writes and removes wait for it
+     */
+    PASS_THROUGH
+  }
+
+  private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final Callable<CacheResolverFactory> delegateCreator;
+  private final Mode mode;
+  private final long retryIntervalMillis;
+  private final AtomicReference<FutureTask<CacheResolverFactory>> initialization =
+      new AtomicReference<FutureTask<CacheResolverFactory>>();
+  private volatile CacheResolverFactory delegate;
+  private volatile FutureTask<CacheResolverFactory> failedTask;
+  private volatile long failedAt;
+
+  /**
+   * Create a deferred factory for a {@link DefaultCacheResolverFactory} configured by the
+   * <code>cacheManager.initialization</code> (<code>blocking</code> or <code>pass-through</code>) and
+   * <code>cacheManager.retryIntervalMillis</code> settings of {@link CacheAnnotationsConfig}.
+   */
+  public DeferredCacheResolverFactory() {
+    this(new Callable<CacheResolverFactory>() {
+      @Override
+      public CacheResolverFactory call() {
+        return new DefaultCacheResolverFactory();
+      }
+    }, "pass-through".equalsIgnoreCase(CacheAnnotationsConfig.getString("cacheManager.initialization", "blocking")) ?
+        Mode.PASS_THROUGH : Mode.BLOCKING,
+        CacheAnnotationsConfig.getLong("cacheManager.retryIntervalMillis", 30000L));
+  }
+
+  /**
+   * Create a deferred factory
+   *
+   * @param delegateCreator     Creates the factory to delegate to, called on a background thread
+   * @param mode                How to resolve caches while the delegate is being created
+   * @param retryIntervalMillis Minimum time between attempts to create the delegate after a failure
+   */
+  public DeferredCacheResolverFactory(Callable<CacheResolverFactory> delegateCreator, Mode mode,
+                                      long retryIntervalMillis) {
+    if (delegateCreator == null) {
+      throw new IllegalArgumentException("delegateCreator cannot be null");
+    }
+    if (mode == null) {
+      throw new IllegalArgumentException("mode cannot be null");
+    }
+    this.delegateCreator = delegateCreator;
+    this.mode = mode;
+    this.retryIntervalMillis = retryIntervalMillis;
+  }
+
+  /**
+   * @return true if the delegate factory, and so the CacheManager, is available
+   */
+  public boolean isReady() {
+    return this.delegate != null;
+  }
+
+  /**
+   * Start creating the delegate factory in the background if that has not already happened
+   */
+  public void initialize() {
+    this.getDelegate(false);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheResolverFactory#getCacheResolver(javax.cache.annotation.CacheMethodDetails)
+   */
+  @Override
+  public CacheResolver getCacheResolver(CacheMethodDetails<? extends Annotation> cacheMethodDetails) {
+    return new DeferredCacheResolver(cacheMethodDetails, false);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.annotation.CacheResolverFactory#getExceptionCacheResolver(javax.cache.annotation.CacheMethodDetails)
+   */
+  @Override
+  public CacheResolver getExceptionCacheResolver(CacheMethodDetails<CacheResult> cacheMethodDetails) {
+    return new DeferredCacheResolver(cacheMethodDetails, true);
+  }
+
+  /**
+   * Get the delegate factory, starting its creation if needed
+   *
+   * @param wait If true block until the delegate has been created
+   * @return The delegate, null if it is not available yet
+   */
+  protected CacheResolverFactory getDelegate(boolean wait) {
+    final CacheResolverFactory factory = this.delegate;
+    if (factory != null) {
+      return factory;
+    }
+
+    FutureTask<CacheResolverFactory> task = this.initialization.get();
+    if (task == null || (task == this.failedTask && System.currentTimeMillis() - this.failedAt >= this.retryIntervalMillis)) {
+      final FutureTask<CacheResolverFactory> newTask = new FutureTask<CacheResolverFactory>(this.delegateCreator);
+      if (this.initialization.compareAndSet(task, newTask)) {
+        final Thread thread = new Thread(newTask, "jsr107-annotations-cache-manager-init");
+        thread.setDaemon(true);
+        thread.start();
+        task = newTask;
+      } else {
+        task = this.initialization.get();
+      }
+    }
+
+    if (!wait && !task.isDone()) {
+      return null;
+    }
+
+    try {
+      this.delegate = task.get();
+      return this.delegate;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CacheException("Interrupted while waiting for the CacheManager", e);
+    } catch (ExecutionException e) {
+      if (this.failedTask != task) {
+        this.failedTask = task;
+        this.failedAt = System.currentTimeMillis();
+        logger.log(Level.WARNING, "Failed to create the CacheManager, retrying in " + this.retryIntervalMillis + "ms", e.getCause());
+      }
+      if (wait) {
+        throw new CacheException("Failed to create the CacheManager", e.getCause());
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Resolves the cache from the delegate factory once it is available
+   */
+  private final class DeferredCacheResolver implements CacheResolver {
+    private final CacheMethodDetails<? extends Annotation> cacheMethodDetails;
+    private final boolean exceptionCache;
+    private final boolean wait;
+    private volatile CacheResolver resolver;
+
+    private DeferredCacheResolver(CacheMethodDetails<? extends Annotation> cacheMethodDetails, boolean exceptionCache) {
+      this.cacheMethodDetails = cacheMethodDetails;
+      this.exceptionCache = exceptionCache;
+
+      //Skipping a read only costs a recomputation, skipping a write or remove loses it
+      final Annotation cacheAnnotation = cacheMethodDetails.getCacheAnnotation();
+      this.wait = mode == Mode.BLOCKING ||
+          !(cacheAnnotation instanceof CacheResult || cacheAnnotation instanceof BulkCacheResult);
+    }
+
+    /* (non-Javadoc)
+     * @see javax.cache.annotation.CacheResolver#resolveCache(javax.cache.annotation.CacheInvocationContext)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Cache<K, V> resolveCache(CacheInvocationContext<? extends Annotation> cacheInvocationContext) {
+      CacheResolver cacheResolver = this.resolver;
+      if (cacheResolver == null) {
+        final CacheResolverFactory factory = getDelegate(this.wait);
+        if (factory == null) {
+          return null;
+        }
+        if (this.exceptionCache) {
+          cacheResolver = factory.getExceptionCacheResolver((CacheMethodDetails<CacheResult>) this.cacheMethodDetails);
+        } else {
+          cacheResolver = factory.getCacheResolver(this.cacheMethodDetails);
+        }
+        this.resolver = cacheResolver;
+      }
+      return cacheResolver.resolveCache(cacheInvocationContext);
+    }
+  }
+}
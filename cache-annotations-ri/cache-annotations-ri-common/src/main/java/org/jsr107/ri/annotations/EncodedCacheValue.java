@@ -0,0 +1,70 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The form in which a {@link CodecCache} stores values, the bytes produced by its {@link CacheValueCodec}.
+ * <p>
+ * Wrapping the bytes keeps them apart from methods that return a <code>byte[]</code> themselves. Two encoded values
+ * are equal if their bytes are, so conditional operations such as {@link javax.cache.Cache#replace(Object, Object,
+ * Object)} work as long as the codec encodes equal values to the same bytes.
+ * </p>
+ *
+ * @since 1.0
+ */
+public final class EncodedCacheValue implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final byte[] data;
+
+  /**
+   * @param data The encoded value
+   */
+  public EncodedCacheValue(byte[] data) {
+    if (data == null) {
+      throw new IllegalArgumentException("data cannot be null");
+    }
+    this.data = data;
+  }
+
+  /**
+   * @return The encoded value, not copied
+   */
+  public byte[] getData() {
+    return this.data;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(this.data);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    EncodedCacheValue other = (EncodedCacheValue) obj;
+    return Arrays.equals(this.data, other.data);
+  }
+}
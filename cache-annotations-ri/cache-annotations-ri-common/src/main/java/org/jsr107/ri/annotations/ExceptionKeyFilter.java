@@ -0,0 +1,278 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Local bloom filter of the keys an exception cache may hold, so lookups of keys that never failed do not need to
+ * read the cache.
+ * <p>
+ * Keys are recorded when an exception is put through a {@link KeyFilteredCache}. A lookup of a key that is not in
+ * the filter is answered with "absent" without reading the cache. The filter has two generations of
+ * <code>exceptionCache.filter.expectedKeys * 10</code> bits each, probed at four positions per key, which keeps
+ * false positives around one percent. Every <code>exceptionCache.filter.rotationMillis</code> the older generation
+ * is dropped, so keys are forgotten between one and two rotation periods after they were last recorded or found in
+ * the cache, every hit promoting its key to the current generation. The period
+ * should be at least the expiry of the exception cache. Exceptions put by other nodes are not recorded locally, so
+ * one in <code>exceptionCache.filter.verifyOneIn</code> lookups of an unknown key still reads the cache and
+ * records the key if it is found there. Counters are available through the <code>ExceptionKeyFilter</code> MXBean
+ * of the cache.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ExceptionKeyFilter implements ExceptionKeyFilterMXBean {
+  private static final int PROBES = 4;
+  private static final ConcurrentMap<String, ExceptionKeyFilter> FILTERS =
+      new ConcurrentHashMap<String, ExceptionKeyFilter>();
+
+  private final int bitMask;
+  private final long rotationMillis;
+  private final int verifyOneIn;
+  private final AtomicLong rotatedAt;
+  private volatile AtomicLongArray current;
+  private volatile AtomicLongArray previous;
+  private final AtomicLong lookups = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong falsePositives = new AtomicLong();
+  private final AtomicLong discovered = new AtomicLong();
+  private final AtomicLong recorded = new AtomicLong();
+
+  /**
+   * @param expectedKeys   Number of keys expected to be recorded per rotation period
+   * @param rotationMillis Time after which the older generation of recorded keys is dropped
+   * @param verifyOneIn    Read the cache for one in this many lookups of unknown keys, 0 to never do so
+   */
+  public ExceptionKeyFilter(int expectedKeys, long rotationMillis, int verifyOneIn) {
+    if (expectedKeys <= 0) {
+      throw new IllegalArgumentException("expectedKeys must be positive");
+    }
+    if (rotationMillis <= 0) {
+      throw new IllegalArgumentException("rotationMillis must be positive");
+    }
+    if (verifyOneIn < 0) {
+      throw new IllegalArgumentException("verifyOneIn cannot be negative");
+    }
+    int bits = 1024;
+    while (bits < expectedKeys * 10L && bits < (1 << 30)) {
+      bits <<= 1;
+    }
+    this.bitMask = bits - 1;
+    this.rotationMillis = rotationMillis;
+    this.verifyOneIn = verifyOneIn;
+    this.rotatedAt = new AtomicLong(System.currentTimeMillis());
+    this.current = new AtomicLongArray(bits >>> 6);
+    this.previous = new AtomicLongArray(bits >>> 6);
+  }
+
+  /**
+   * Get the shared filter for an exception cache, creating and registering it with JMX on first use
+   *
+   * @param cacheName The name of the exception cache
+   * @return The filter for the cache, null if the filter is not enabled for the cache
+   */
+  public static ExceptionKeyFilter forCache(String cacheName) {
+    ExceptionKeyFilter filter = FILTERS.get(cacheName);
+    if (filter != null) {
+      return filter;
+    }
+    if (!CacheAnnotationsConfig.getBoolean(cacheName, "exceptionCache.filter.enabled", false)) {
+      return null;
+    }
+
+    filter = new ExceptionKeyFilter(
+        CacheAnnotationsConfig.getInt(cacheName, "exceptionCache.filter.expectedKeys", 10000),
+        CacheAnnotationsConfig.getLong(cacheName, "exceptionCache.filter.rotationMillis", 600000L),
+        CacheAnnotationsConfig.getInt(cacheName, "exceptionCache.filter.verifyOneIn", 100));
+    final ExceptionKeyFilter existing = FILTERS.putIfAbsent(cacheName, filter);
+    if (existing != null) {
+      return existing;
+    }
+    CacheManagementSupport.register(filter, "ExceptionKeyFilter", cacheName);
+    return filter;
+  }
+
+  /**
+   * Decide if the cache has to be read for a key
+   *
+   * @param key The cache key
+   * @return true if the key may be in the cache or the lookup was sampled for verification
+   */
+  public boolean isLookupNeeded(Object key) {
+    this.lookups.incrementAndGet();
+    if (this.mightContain(key)) {
+      return true;
+    }
+    if (this.verifyOneIn > 0 && ThreadLocalRandom.current().nextInt(this.verifyOneIn) == 0) {
+      return true;
+    }
+    this.skipped.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Record the outcome of a lookup that read the cache
+   *
+   * @param key   The cache key
+   * @param found true if the cache held a value for the key
+   */
+  public void lookedUp(Object key, boolean found) {
+    if (found) {
+      if (!this.mightContain(key)) {
+        //Put by another node or before this filter existed
+        this.discovered.incrementAndGet();
+        this.record(key);
+      } else {
+        //Keep a key that is still in the cache from being dropped with the previous generation
+        this.set(this.current, FrequencySketch.spread(key.hashCode()));
+      }
+    } else if (this.mightContain(key)) {
+      this.falsePositives.incrementAndGet();
+    }
+  }
+
+  /**
+   * @param key The cache key
+   * @return true if the key was recorded during the last one to two rotation periods, or is a false positive
+   */
+  public boolean mightContain(Object key) {
+    this.rotateIfDue();
+    final int hash = FrequencySketch.spread(key.hashCode());
+    return isSet(this.current, hash) || isSet(this.previous, hash);
+  }
+
+  /**
+   * Record that the cache may hold a value for a key
+   *
+   * @param key The cache key
+   */
+  public void record(Object key) {
+    this.rotateIfDue();
+    this.recorded.incrementAndGet();
+    this.set(this.current, FrequencySketch.spread(key.hashCode()));
+  }
+
+  /**
+   * Forget all recorded keys, used when the whole cache is cleared
+   */
+  public void clear() {
+    this.previous = new AtomicLongArray(this.previous.length());
+    this.current = new AtomicLongArray(this.current.length());
+    this.rotatedAt.set(System.currentTimeMillis());
+  }
+
+  private void set(AtomicLongArray bits, int hash) {
+    final int step = secondHash(hash);
+    for (int i = 0; i < PROBES; i++) {
+      final int index = (hash + i * step) & this.bitMask;
+      final long mask = 1L << index;
+      while (true) {
+        final long word = bits.get(index >>> 6);
+        if ((word & mask) != 0 || bits.compareAndSet(index >>> 6, word, word | mask)) {
+          break;
+        }
+      }
+    }
+  }
+
+  private void rotateIfDue() {
+    final long rotated = this.rotatedAt.get();
+    final long now = System.currentTimeMillis();
+    if (now - rotated >= this.rotationMillis && this.rotatedAt.compareAndSet(rotated, now)) {
+      //Publish the current generation as the previous one before replacing it so readers always see it in one of them
+      this.previous = this.current;
+      this.current = new AtomicLongArray(this.previous.length());
+    }
+  }
+
+  private boolean isSet(AtomicLongArray bits, int hash) {
+    final int step = secondHash(hash);
+    for (int i = 0; i < PROBES; i++) {
+      final int index = (hash + i * step) & this.bitMask;
+      if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int secondHash(int hash) {
+    //Odd, so the probes of one key never coincide
+    return FrequencySketch.spread(hash ^ 0x5bd1e995) | 1;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.ExceptionKeyFilterMXBean#getBits()
+   */
+  @Override
+  public int getBits() {
+    return this.bitMask + 1;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.ExceptionKeyFilterMXBean#getRotationMillis()
+   */
+  @Override
+  public long getRotationMillis() {
+    return this.rotationMillis;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.ExceptionKeyFilterMXBean#getLookupCount()
+   */
+  @Override
+  public long getLookupCount() {
+    return this.lookups.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.ExceptionKeyFilterMXBean#getSkippedCount()
+   */
+  @Override
+  public long getSkippedCount() {
+    return this.skipped.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.ExceptionKeyFilterMXBean#getFalsePositiveCount()
+   */
+  @Override
+  public long getFalsePositiveCount() {
+    return this.falsePositives.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.ExceptionKeyFilterMXBean#getDiscoveredCount()
+   */
+  @Override
+  public long getDiscoveredCount() {
+    return this.discovered.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.ExceptionKeyFilterMXBean#getRecordedCount()
+   */
+  @Override
+  public long getRecordedCount() {
+    return this.recorded.get();
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Management view of an {@link ExceptionKeyFilter}.
+ *
+ * @since 1.0
+ */
+public interface ExceptionKeyFilterMXBean {
+
+  /**
+   * @return Size of each generation of the filter in bits
+   */
+  int getBits();
+
+  /**
+   * @return Time after which the older generation of recorded keys is dropped
+   */
+  long getRotationMillis();
+
+  /**
+   * @return Number of lookups checked against the filter
+   */
+  long getLookupCount();
+
+  /**
+   * @return Number of lookups answered as absent without reading the cache
+   */
+  long getSkippedCount();
+
+  /**
+   * @return Number of lookups the filter let through that found nothing in the cache
+   */
+  long getFalsePositiveCount();
+
+  /**
+   * @return Number of keys found in the cache by a verification lookup although the filter did not know them
+   */
+  long getDiscoveredCount();
+
+  /**
+   * @return Number of keys recorded
+   */
+  long getRecordedCount();
+}
@@ -0,0 +1,215 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link Cache} that forwards all calls to another cache. Subclasses override the operations they decorate.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public abstract class ForwardingCache<K, V> implements Cache<K, V> {
+  private final Cache<K, V> delegate;
+
+  /**
+   * @param delegate The cache to forward calls to
+   */
+  protected ForwardingCache(Cache<K, V> delegate) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("The Cache can not be null");
+    }
+    this.delegate = delegate;
+  }
+
+  /**
+   * @return The cache calls are forwarded to
+   */
+  protected Cache<K, V> getDelegate() {
+    return this.delegate;
+  }
+
+  /**
+   * Follow the delegates of a chain of forwarding caches
+   *
+   * @param cache A cache, possibly decorated
+   * @return The cache at the bottom of the chain, the cache itself if it does not forward
+   */
+  public static Cache<?, ?> unwrapAll(Cache<?, ?> cache) {
+    Cache<?, ?> unwrapped = cache;
+    while (unwrapped instanceof ForwardingCache) {
+      unwrapped = ((ForwardingCache<?, ?>) unwrapped).getDelegate();
+    }
+    return unwrapped;
+  }
+
+  @Override
+  public V get(K key) {
+    return this.delegate.get(key);
+  }
+
+  @Override
+  public Map<K, V> getAll(Set<? extends K> keys) {
+    return this.delegate.getAll(keys);
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return this.delegate.containsKey(key);
+  }
+
+  @Override
+  public void loadAll(Set<? extends K> keys, boolean replaceExistingValues, CompletionListener completionListener) {
+    this.delegate.loadAll(keys, replaceExistingValues, completionListener);
+  }
+
+  @Override
+  public void put(K key, V value) {
+    this.delegate.put(key, value);
+  }
+
+  @Override
+  public V getAndPut(K key, V value) {
+    return this.delegate.getAndPut(key, value);
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    this.delegate.putAll(map);
+  }
+
+  @Override
+  public boolean putIfAbsent(K key, V value) {
+    return this.delegate.putIfAbsent(key, value);
+  }
+
+  @Override
+  public boolean remove(K key) {
+    return this.delegate.remove(key);
+  }
+
+  @Override
+  public boolean remove(K key, V oldValue) {
+    return this.delegate.remove(key, oldValue);
+  }
+
+  @Override
+  public V getAndRemove(K key) {
+    return this.delegate.getAndRemove(key);
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    return this.delegate.replace(key, oldValue, newValue);
+  }
+
+  @Override
+  public boolean replace(K key, V value) {
+    return this.delegate.replace(key, value);
+  }
+
+  @Override
+  public V getAndReplace(K key, V value) {
+    return this.delegate.getAndReplace(key, value);
+  }
+
+  @Override
+  public void removeAll(Set<? extends K> keys) {
+    this.delegate.removeAll(keys);
+  }
+
+  @Override
+  public void removeAll() {
+    this.delegate.removeAll();
+  }
+
+  @Override
+  public void clear() {
+    this.delegate.clear();
+  }
+
+  @Override
+  public <C extends Configuration<K, V>> C getConfiguration(Class<C> clazz) {
+    return this.delegate.getConfiguration(clazz);
+  }
+
+  @Override
+  public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) throws EntryProcessorException {
+    return this.delegate.invoke(key, entryProcessor, arguments);
+  }
+
+  @Override
+  public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, EntryProcessor<K, V, T> entryProcessor,
+                                                       Object... arguments) {
+    return this.delegate.invokeAll(keys, entryProcessor, arguments);
+  }
+
+  @Override
+  public String getName() {
+    return this.delegate.getName();
+  }
+
+  @Override
+  public CacheManager getCacheManager() {
+    return this.delegate.getCacheManager();
+  }
+
+  @Override
+  public void close() {
+    this.delegate.close();
+  }
+
+  @Override
+  public boolean isClosed() {
+    return this.delegate.isClosed();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> clazz) {
+    if (clazz.isAssignableFrom(this.getClass())) {
+      return clazz.cast(this);
+    }
+    return this.delegate.unwrap(clazz);
+  }
+
+  @Override
+  public void registerCacheEntryListener(CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
+    this.delegate.registerCacheEntryListener(cacheEntryListenerConfiguration);
+  }
+
+  @Override
+  public void deregisterCacheEntryListener(CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
+    this.delegate.deregisterCacheEntryListener(cacheEntryListenerConfiguration);
+  }
+
+  @Override
+  public Iterator<Entry<K, V>> iterator() {
+    return this.delegate.iterator();
+  }
+}
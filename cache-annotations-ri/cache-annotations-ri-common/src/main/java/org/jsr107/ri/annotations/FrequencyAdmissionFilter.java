@@ -0,0 +1,121 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TinyLFU style admission filter that keeps keys that are requested only once out of a cache.
+ * <p>
+ * Each miss of a {@link javax.cache.annotation.CacheResult} method counts its key in a {@link FrequencySketch}, and
+ * the computed value is only put into the cache once the key has been seen more than
+ * <code>admission.frequency.minCount</code> times recently. The filter is enabled per cache with
+ * <code>admission.frequency.enabled</code>, and <code>admission.frequency.capacity</code> sizes the sketch.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class FrequencyAdmissionFilter implements FrequencyAdmissionFilterMXBean {
+  private static final ConcurrentMap<String, FrequencyAdmissionFilter> FILTERS =
+      new ConcurrentHashMap<String, FrequencyAdmissionFilter>();
+
+  private final FrequencySketch sketch;
+  private final int minFrequency;
+  private final AtomicLong admitted = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * @param capacity     The number of distinct keys the filter should track accurately
+   * @param minFrequency Number of times a key must have been seen recently before its value is cached
+   */
+  public FrequencyAdmissionFilter(int capacity, int minFrequency) {
+    if (minFrequency < 0 || minFrequency >= 15) {
+      throw new IllegalArgumentException("minFrequency must be between 0 and 14");
+    }
+    this.sketch = new FrequencySketch(capacity);
+    this.minFrequency = minFrequency;
+  }
+
+  /**
+   * Get the shared filter for a cache, creating and registering it with JMX on first use
+   *
+   * @param cacheName The name of the cache
+   * @return The filter for the cache, null if frequency admission is not enabled for the cache
+   */
+  public static FrequencyAdmissionFilter forCache(String cacheName) {
+    FrequencyAdmissionFilter filter = FILTERS.get(cacheName);
+    if (filter != null) {
+      return filter;
+    }
+    if (!CacheAnnotationsConfig.getBoolean(cacheName, "admission.frequency.enabled", false)) {
+      return null;
+    }
+
+    filter = new FrequencyAdmissionFilter(
+        CacheAnnotationsConfig.getInt(cacheName, "admission.frequency.capacity", 10000),
+        CacheAnnotationsConfig.getInt(cacheName, "admission.frequency.minCount", 1));
+    final FrequencyAdmissionFilter existing = FILTERS.putIfAbsent(cacheName, filter);
+    if (existing != null) {
+      return existing;
+    }
+    CacheManagementSupport.register(filter, "CacheFrequencyAdmission", cacheName);
+    return filter;
+  }
+
+  /**
+   * Record a miss for a key and decide if the value computed for it should be cached
+   *
+   * @param key The cache key
+   * @return true if the value should be cached
+   */
+  public boolean admit(Object key) {
+    final int hash = FrequencySketch.spread(key.hashCode());
+    this.sketch.increment(hash);
+    if (this.sketch.frequency(hash) > this.minFrequency) {
+      this.admitted.incrementAndGet();
+      return true;
+    }
+    this.rejected.incrementAndGet();
+    return false;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.FrequencyAdmissionFilterMXBean#getMinFrequency()
+   */
+  @Override
+  public int getMinFrequency() {
+    return this.minFrequency;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.FrequencyAdmissionFilterMXBean#getAdmittedCount()
+   */
+  @Override
+  public long getAdmittedCount() {
+    return this.admitted.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.FrequencyAdmissionFilterMXBean#getRejectedCount()
+   */
+  @Override
+  public long getRejectedCount() {
+    return this.rejected.get();
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch estimating how often hashed items were seen recently.
+ * <p>
+ * Each item is counted in four 4-bit counters packed sixteen to a <code>long</code>, the estimate is the smallest
+ * of them. Counters saturate at 15. After a number of increments proportional to the size of the sketch all
+ * counters are halved, so old activity ages out. Increments and estimates are lock-free, memory use is fixed at
+ * 8 bytes per unit of capacity.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class FrequencySketch {
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+  private final AtomicLongArray table;
+  private final int tableMask;
+  private final int sampleSize;
+  private final AtomicInteger additions = new AtomicInteger();
+
+  /**
+   * @param capacity The number of distinct items the sketch should track accurately
+   */
+  public FrequencySketch(int capacity) {
+    int length = 16;
+    while (length < capacity && length < (1 << 30)) {
+      length <<= 1;
+    }
+    this.table = new AtomicLongArray(length);
+    this.tableMask = length - 1;
+    this.sampleSize = length >= (1 << 27) ? Integer.MAX_VALUE : length * 10;
+  }
+
+  /**
+   * @param hash The hash of the item
+   * @return The estimated number of times the item was seen recently, at most 15
+   */
+  public int frequency(int hash) {
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < SEEDS.length; i++) {
+      final long h = rehash(hash, i);
+      final int index = (int) (h >>> 32) & this.tableMask;
+      final int offset = ((int) h & 15) << 2;
+      frequency = Math.min(frequency, (int) ((this.table.get(index) >>> offset) & 15L));
+    }
+    return frequency;
+  }
+
+  /**
+   * Count an occurrence of an item, aging all counters when the sample period is reached
+   *
+   * @param hash The hash of the item
+   */
+  public void increment(int hash) {
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      final long h = rehash(hash, i);
+      added |= this.incrementAt((int) (h >>> 32) & this.tableMask, ((int) h & 15) << 2);
+    }
+
+    if (added && this.additions.incrementAndGet() == this.sampleSize) {
+      this.reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int offset) {
+    final long mask = 15L << offset;
+    while (true) {
+      final long word = this.table.get(index);
+      if ((word & mask) == mask) {
+        return false;
+      }
+      if (this.table.compareAndSet(index, word, word + (1L << offset))) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Halve all counters
+   */
+  protected void reset() {
+    for (int i = 0; i < this.table.length(); i++) {
+      while (true) {
+        final long word = this.table.get(i);
+        if (this.table.compareAndSet(i, word, (word >>> 1) & RESET_MASK)) {
+          break;
+        }
+      }
+    }
+    this.additions.addAndGet(-(this.sampleSize >>> 1));
+  }
+
+  private static long rehash(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return h;
+  }
+
+  /**
+   * Spread the bits of a hash code, use for {@link Object#hashCode()} values before passing them to the sketch
+   *
+   * @param hashCode The hash code
+   * @return The spread hash
+   */
+  public static int spread(int hashCode) {
+    int h = hashCode * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -39,5 +39,25 @@ public enum InterceptorType {
   /**
    * {@link javax.cache.annotation.CacheRemoveAll} advice
    */
-  CACHE_REMOVE_ALL;
+  CACHE_REMOVE_ALL,
+  /**
+   * {@link BulkCacheResult} advice
+   */
+  BULK_CACHE_RESULT,
+  /**
+   * {@link BulkCachePut} advice
+   */
+  BULK_CACHE_PUT,
+  /**
+   * {@link BulkCacheRemove} advice
+   */
+  BULK_CACHE_REMOVE,
+  /**
+   * {@link CacheInvoke} advice
+   */
+  CACHE_INVOKE,
+  /**
+   * {@link CacheRemoveByTag} advice
+   */
+  CACHE_REMOVE_BY_TAG;
 }
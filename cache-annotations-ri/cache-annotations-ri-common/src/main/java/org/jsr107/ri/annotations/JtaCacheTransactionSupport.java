@@ -0,0 +1,116 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.CacheException;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * {@link CacheTransactionSupport} bound to the JTA transaction of the current thread.
+ * <p>
+ * The buffered operations are stored as a resource of the transaction and flushed by an interposed
+ * {@link Synchronization} after the transaction committed. Operations of a transaction that is marked for
+ * rollback are buffered too and never applied.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class JtaCacheTransactionSupport implements CacheTransactionSupport {
+  /**
+   * JNDI name of the {@link TransactionSynchronizationRegistry} defined by Java EE
+   */
+  public static final String REGISTRY_JNDI_NAME = "java:comp/TransactionSynchronizationRegistry";
+
+  private static final Object RESOURCE_KEY = new Object();
+
+  private final TransactionSynchronizationRegistry registry;
+
+  /**
+   * Create a support that looks up the registry at {@link #REGISTRY_JNDI_NAME}
+   *
+   * @throws CacheException if the registry cannot be found
+   */
+  public JtaCacheTransactionSupport() {
+    this(lookupRegistry());
+  }
+
+  /**
+   * @param registry The registry of the transaction manager
+   */
+  public JtaCacheTransactionSupport(TransactionSynchronizationRegistry registry) {
+    if (registry == null) {
+      throw new IllegalArgumentException("registry cannot be null");
+    }
+    this.registry = registry;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheTransactionSupport#getDeferredCacheOperations()
+   */
+  @Override
+  public DeferredCacheOperations getDeferredCacheOperations() {
+    if (this.registry.getTransactionKey() == null) {
+      return null;
+    }
+    switch (this.registry.getTransactionStatus()) {
+      case Status.STATUS_ACTIVE:
+        break;
+      case Status.STATUS_MARKED_ROLLBACK:
+      case Status.STATUS_ROLLING_BACK:
+      case Status.STATUS_ROLLEDBACK:
+        //The work is going to be rolled back, buffer its operations without ever applying them
+        final DeferredCacheOperations existing = (DeferredCacheOperations) this.registry.getResource(RESOURCE_KEY);
+        return existing != null ? existing : new DeferredCacheOperations();
+      default:
+        return null;
+    }
+
+    DeferredCacheOperations operations = (DeferredCacheOperations) this.registry.getResource(RESOURCE_KEY);
+    if (operations == null) {
+      final DeferredCacheOperations newOperations = new DeferredCacheOperations();
+      this.registry.registerInterposedSynchronization(new Synchronization() {
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          if (status == Status.STATUS_COMMITTED) {
+            newOperations.flush();
+          } else {
+            newOperations.discard();
+          }
+        }
+      });
+      this.registry.putResource(RESOURCE_KEY, newOperations);
+      operations = newOperations;
+    }
+    return operations;
+  }
+
+  private static TransactionSynchronizationRegistry lookupRegistry() {
+    try {
+      return (TransactionSynchronizationRegistry) new InitialContext().lookup(REGISTRY_JNDI_NAME);
+    } catch (NamingException e) {
+      throw new CacheException("Unable to find the TransactionSynchronizationRegistry at " + REGISTRY_JNDI_NAME, e);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import java.util.Map;
+
+/**
+ * {@link ForwardingCache} for exception caches that only reads the cache for keys an {@link ExceptionKeyFilter}
+ * considers possibly present.
+ * <p>
+ * {@link #get(Object)} of a key the filter does not know returns null without reading the cache, the write
+ * operations record their keys in the filter and clearing the cache clears the filter. All other operations, entry
+ * processors and listeners work on the underlying cache and are not reflected in the filter.
+ * </p>
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public class KeyFilteredCache<K, V> extends ForwardingCache<K, V> {
+  private final ExceptionKeyFilter filter;
+
+  /**
+   * @param delegate The cache to read and write
+   * @param filter   The keys the cache may hold
+   */
+  public KeyFilteredCache(Cache<K, V> delegate, ExceptionKeyFilter filter) {
+    super(delegate);
+    if (filter == null) {
+      throw new IllegalArgumentException("filter cannot be null");
+    }
+    this.filter = filter;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#get(java.lang.Object)
+   */
+  @Override
+  public V get(K key) {
+    if (!this.filter.isLookupNeeded(key)) {
+      return null;
+    }
+    final V value = super.get(key);
+    this.filter.lookedUp(key, value != null);
+    return value;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#put(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public void put(K key, V value) {
+    //Record first so a concurrent lookup cannot skip a value that is already written
+    this.filter.record(key);
+    super.put(key, value);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAndPut(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public V getAndPut(K key, V value) {
+    this.filter.record(key);
+    return super.getAndPut(key, value);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#putAll(java.util.Map)
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    for (final K key : map.keySet()) {
+      this.filter.record(key);
+    }
+    super.putAll(map);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#putIfAbsent(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean putIfAbsent(K key, V value) {
+    this.filter.record(key);
+    return super.putIfAbsent(key, value);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#removeAll()
+   */
+  @Override
+  public void removeAll() {
+    super.removeAll();
+    this.filter.clear();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#clear()
+   */
+  @Override
+  public void clear() {
+    super.clear();
+    this.filter.clear();
+  }
+}
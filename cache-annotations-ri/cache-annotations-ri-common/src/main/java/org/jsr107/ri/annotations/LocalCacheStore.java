@@ -0,0 +1,54 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * In-process storage of the local tier of a {@link NearCache}.
+ * <p>
+ * A store may drop any entry at any time, for example to stay within its size bound, callers then fall back to the
+ * cache behind the tier. Implementations are shared by all operations on a cache and must be thread safe.
+ * </p>
+ *
+ * @since 1.0
+ */
+public interface LocalCacheStore {
+
+  /**
+   * @param key The key, never null
+   * @return The stored value, null if the key is not stored or has expired
+   */
+  Object get(Object key);
+
+  /**
+   * Store a value, replacing any value stored for the key
+   *
+   * @param key             The key, never null
+   * @param value           The value, never null
+   * @param expiresAtMillis Time at which the entry expires, 0 if it does not expire
+   */
+  void put(Object key, Object value, long expiresAtMillis);
+
+  /**
+   * @param key The key to drop, never null
+   */
+  void remove(Object key);
+
+  /**
+   * Drop all entries
+   */
+  void clear();
+}
@@ -0,0 +1,168 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.CacheException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the {@link LocalCacheStore}s of the near caches configured with {@link CacheAnnotationsConfig}.
+ * <p>
+ * A near cache is enabled per cache with <code>nearCache.enabled</code>. With <code>nearCache.store</code> set to
+ * <code>offheap</code>, the default, its store is an {@link OffHeapCacheStore} of <code>nearCache.maxBytes</code>
+ * bytes, with <code>heap</code> it is a {@link WindowTinyLfuCacheStore} of <code>nearCache.maxEntries</code> entries.
+ * The store is shared by all methods using the cache so that writes through one of them are seen by the others.
+ * Expired entries of heap stores are dropped every <code>nearCache.cleanUpIntervalMillis</code> by a shared
+ * background thread.
+ * </p>
+ * <p>
+ * A persistent tier behind the near cache is enabled with <code>nearCache.persistent.enabled</code>. Its store is a
+ * {@link MappedFileCacheStore} of <code>nearCache.persistent.maxBytes</code> bytes, in a file named after the cache
+ * in <code>nearCache.persistent.directory</code>, which must be set explicitly.
+ * </p>
+ *
+ * @since 1.0
+ */
+public final class LocalCacheStores {
+  private static final Logger LOGGER = Logger.getLogger(LocalCacheStores.class.getName());
+  private static final ConcurrentMap<String, LocalCacheStore> STORES = new ConcurrentHashMap<String, LocalCacheStore>();
+  private static final ConcurrentMap<String, LocalCacheStore> PERSISTENT_STORES =
+      new ConcurrentHashMap<String, LocalCacheStore>();
+
+  private LocalCacheStores() {
+  }
+
+  /**
+   * Get the shared local store for a cache, creating and registering it with JMX on first use
+   *
+   * @param cacheName The name of the cache
+   * @return The local store for the cache, null if no near cache is enabled for the cache
+   */
+  public static LocalCacheStore forCache(String cacheName) {
+    LocalCacheStore store = STORES.get(cacheName);
+    if (store != null) {
+      return store;
+    }
+    if (!CacheAnnotationsConfig.getBoolean(cacheName, "nearCache.enabled", false)) {
+      return null;
+    }
+
+    synchronized (STORES) {
+      //Stores allocate their memory up front, never create one that would be discarded
+      store = STORES.get(cacheName);
+      if (store == null) {
+        final String type = CacheAnnotationsConfig.getString(cacheName, "nearCache.store", "offheap");
+        if ("heap".equalsIgnoreCase(type)) {
+          final WindowTinyLfuCacheStore heapStore = new WindowTinyLfuCacheStore(
+              CacheAnnotationsConfig.getLong(cacheName, "nearCache.maxEntries", 10000L));
+          CacheManagementSupport.register(heapStore, "WindowTinyLfuCacheStore", cacheName);
+          final long cleanUpIntervalMillis =
+              CacheAnnotationsConfig.getLong(cacheName, "nearCache.cleanUpIntervalMillis", 1000L);
+          if (cleanUpIntervalMillis > 0) {
+            SchedulerHolder.SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+              @Override
+              public void run() {
+                heapStore.cleanUp();
+              }
+            }, cleanUpIntervalMillis, cleanUpIntervalMillis, TimeUnit.MILLISECONDS);
+          }
+          store = heapStore;
+        } else if ("offheap".equalsIgnoreCase(type)) {
+          final OffHeapCacheStore offHeapStore = new OffHeapCacheStore(
+              CacheAnnotationsConfig.getLong(cacheName, "nearCache.maxBytes", 67108864L), new CompactBinaryCodec());
+          CacheManagementSupport.register(offHeapStore, "OffHeapCacheStore", cacheName);
+          store = offHeapStore;
+        } else {
+          throw new CacheException("Unknown nearCache.store '" + type + "' for cache " + cacheName);
+        }
+        STORES.put(cacheName, store);
+      }
+      return store;
+    }
+  }
+
+  /**
+   * Get the shared persistent store for a cache, opening it and registering it with JMX on first use
+   *
+   * @param cacheName The name of the cache
+   * @return The persistent store for the cache, null if no persistent tier is enabled for the cache or its file
+   *         cannot be opened
+   */
+  public static LocalCacheStore persistentForCache(String cacheName) {
+    LocalCacheStore store = PERSISTENT_STORES.get(cacheName);
+    if (store != null) {
+      return store;
+    }
+    if (!CacheAnnotationsConfig.getBoolean(cacheName, "nearCache.persistent.enabled", false)) {
+      return null;
+    }
+
+    synchronized (PERSISTENT_STORES) {
+      //The file can only be opened once per process
+      store = PERSISTENT_STORES.get(cacheName);
+      if (store == null) {
+        //No default, a shared location such as the temporary directory would let other users plant the file
+        final String directoryName = CacheAnnotationsConfig.getString(cacheName, "nearCache.persistent.directory", null);
+        if (directoryName == null) {
+          throw new CacheException("nearCache.persistent.directory must be set for cache " + cacheName);
+        }
+        final File directory = new File(directoryName);
+        final File file = new File(directory, cacheName.replaceAll("[^A-Za-z0-9._-]", "_") + "-" +
+            Integer.toHexString(cacheName.hashCode()) + ".log");
+        final MappedFileCacheStore mappedStore;
+        try {
+          mappedStore = new MappedFileCacheStore(file,
+              CacheAnnotationsConfig.getLong(cacheName, "nearCache.persistent.maxBytes", 268435456L),
+              new CompactBinaryCodec());
+        } catch (IOException e) {
+          LOGGER.log(Level.WARNING, "Unable to open " + file + ", cache " + cacheName + " has no persistent tier", e);
+          return null;
+        }
+        CacheManagementSupport.register(mappedStore, "MappedFileCacheStore", cacheName);
+        store = mappedStore;
+        PERSISTENT_STORES.put(cacheName, store);
+      }
+      return store;
+    }
+  }
+
+  /**
+   * Lazily created thread that cleans up the near cache stores
+   */
+  private static final class SchedulerHolder {
+    private static final ScheduledExecutorService SCHEDULER = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        final Thread thread = new Thread(runnable, "jsr107-annotations-near-cache-clean-up");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    private SchedulerHolder() {
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * {@link CacheTransactionSupport} for applications without JTA, the application demarcates a unit of work on the
+ * current thread itself:
+ * <pre><code>
+ * LocalCacheTransactionSupport.begin();
+ * try {
+ *   ...
+ *   LocalCacheTransactionSupport.commit();
+ * } finally {
+ *   LocalCacheTransactionSupport.rollback();
+ * }
+ * </code></pre>
+ * <p>
+ * {@link #rollback()} does nothing once the unit of work committed, so it can always be called in a finally block.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class LocalCacheTransactionSupport implements CacheTransactionSupport {
+  private static final ThreadLocal<DeferredCacheOperations> CURRENT = new ThreadLocal<DeferredCacheOperations>();
+
+  /**
+   * Start buffering cache operations on the current thread
+   *
+   * @throws IllegalStateException if a unit of work is already active on the current thread
+   */
+  public static void begin() {
+    if (CURRENT.get() != null) {
+      throw new IllegalStateException("A unit of work is already active on " + Thread.currentThread().getName());
+    }
+    CURRENT.set(new DeferredCacheOperations());
+  }
+
+  /**
+   * Apply the cache operations buffered on the current thread and stop buffering
+   *
+   * @throws IllegalStateException if no unit of work is active on the current thread
+   */
+  public static void commit() {
+    final DeferredCacheOperations operations = CURRENT.get();
+    if (operations == null) {
+      throw new IllegalStateException("No unit of work is active on " + Thread.currentThread().getName());
+    }
+    CURRENT.remove();
+    operations.flush();
+  }
+
+  /**
+   * Drop the cache operations buffered on the current thread and stop buffering
+   */
+  public static void rollback() {
+    final DeferredCacheOperations operations = CURRENT.get();
+    if (operations != null) {
+      CURRENT.remove();
+      operations.discard();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheTransactionSupport#getDeferredCacheOperations()
+   */
+  @Override
+  public DeferredCacheOperations getDeferredCacheOperations() {
+    return CURRENT.get();
+  }
+}
@@ -0,0 +1,520 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.CacheException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * {@link LocalCacheStore} that appends its entries to a memory-mapped file, so a restarted process finds the
+ * entries of its previous run and does not start with a cold cache.
+ * <p>
+ * Keys and values are stored in the form produced by a {@link CacheValueCodec}. Every put and remove appends a
+ * record of length, CRC32, key hash, type, expiry time, key and value, and an open addressing index in memory maps
+ * keys to their latest record. A record is written back to front: its body, then an end marker after it, then its
+ * length, so a process that dies while appending leaves a log that ends before the torn record. When the file is
+ * full the live, unexpired records are copied to a new file, dropping the oldest ones until at most half the file
+ * is used, which is then forced to disk and atomically renamed over the log.
+ * </p>
+ * <p>
+ * Opening the store replays the log, stopping at the end marker or at the first record whose CRC does not match,
+ * and serves the surviving entries immediately, subject to their expiry times. The file is locked for the life of
+ * the process, a second process opening it fails. Writes reach the disk when the operating system flushes the
+ * mapping, so a crash of the machine rather than the process may lose the most recent entries.
+ * </p>
+ * <p>
+ * Values are decoded from the file at startup, with Java serialization for the types the codec does not know. The
+ * directory is therefore created readable and writable by the owner only, and a directory that is not owned by the
+ * user running the process or that others may write to is refused, so no other local user can plant records in it.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class MappedFileCacheStore implements LocalCacheStore, MappedFileCacheStoreMXBean {
+  private static final Logger LOGGER = Logger.getLogger(MappedFileCacheStore.class.getName());
+
+  private static final int MAGIC = 0x4a535231;
+  private static final int VERSION = 2;
+  private static final int FILE_HEADER = 16;
+  private static final int RECORD_HEADER = 25;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+
+  private final File file;
+  private final int capacity;
+  private final CacheValueCodec codec;
+  private final FileLock fileLock;
+  private MappedByteBuffer log;
+  private ByteBufferIndex index;
+  private int position;
+  private long liveBytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long compactions;
+
+  /**
+   * Open the store, replaying the entries already in the file
+   *
+   * @param file     The log file, created if it does not exist
+   * @param maxBytes Size of the log file
+   * @param codec    Encodes the keys and values
+   * @throws IOException if the file cannot be opened, locked or mapped
+   */
+  public MappedFileCacheStore(File file, long maxBytes, CacheValueCodec codec) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("file cannot be null");
+    }
+    if (codec == null) {
+      throw new IllegalArgumentException("codec cannot be null");
+    }
+    if (maxBytes < 4096 || maxBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("maxBytes must be between 4096 and " + Integer.MAX_VALUE);
+    }
+    this.file = file;
+    this.capacity = (int) maxBytes;
+    this.codec = codec;
+
+    checkDirectory(file.getAbsoluteFile().getParentFile().toPath());
+    final File lockFile = new File(file.getPath() + ".lock");
+    createFile(lockFile.toPath());
+    final FileChannel lockChannel = new RandomAccessFile(lockFile, "rw").getChannel();
+    this.fileLock = lockChannel.tryLock();
+    if (this.fileLock == null) {
+      lockChannel.close();
+      throw new IOException(file + " is in use by another process");
+    }
+
+    //A compaction that did not complete left the log untouched
+    Files.deleteIfExists(this.compactionFile().toPath());
+    this.log = map(file, this.capacity);
+    this.index = new ByteBufferIndex(this.log, 21, RECORD_HEADER);
+    this.recover();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#get(java.lang.Object)
+   */
+  @Override
+  public Object get(Object key) {
+    final byte[] keyBytes = this.codec.encode(key);
+    final byte[] valueBytes = this.read(hash(keyBytes), keyBytes, System.currentTimeMillis());
+    if (valueBytes == null) {
+      return null;
+    }
+    try {
+      return this.codec.decode(valueBytes);
+    } catch (CacheException e) {
+      //Most likely written by an earlier version of the application, drop it
+      LOGGER.log(Level.FINE, "Dropping undecodable entry from " + this.file, e);
+      this.remove(key);
+      return null;
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#put(java.lang.Object, java.lang.Object, long)
+   */
+  @Override
+  public void put(Object key, Object value, long expiresAtMillis) {
+    final byte[] keyBytes = this.codec.encode(key);
+    final byte[] valueBytes = this.codec.encode(value);
+    this.append(PUT, hash(keyBytes), keyBytes, valueBytes, expiresAtMillis);
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#remove(java.lang.Object)
+   */
+  @Override
+  public void remove(Object key) {
+    final byte[] keyBytes = this.codec.encode(key);
+    this.append(REMOVE, hash(keyBytes), keyBytes, null, 0);
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#clear()
+   */
+  @Override
+  public synchronized void clear() {
+    this.log.putInt(FILE_HEADER, 0);
+    this.position = FILE_HEADER;
+    this.index.clear();
+    this.liveBytes = 0;
+  }
+
+  private synchronized byte[] read(int hash, byte[] key, long now) {
+    final int slot = this.index.find(hash, key);
+    if (slot < 0) {
+      this.misses++;
+      return null;
+    }
+    final int offset = this.index.offsetAt(slot);
+    final long expiresAt = this.log.getLong(offset + 13);
+    if (expiresAt != 0 && expiresAt <= now) {
+      //A restart drops the expired record as well, no need to log its removal
+      this.liveBytes -= this.log.getInt(this.index.remove(slot));
+      this.misses++;
+      return null;
+    }
+
+    final byte[] value = new byte[this.log.getInt(offset) - RECORD_HEADER - key.length];
+    this.log.position(offset + RECORD_HEADER + key.length);
+    this.log.get(value);
+    this.hits++;
+    return value;
+  }
+
+  private synchronized void append(byte type, int hash, byte[] key, byte[] value, long expiresAt) {
+    final long length = (long) RECORD_HEADER + key.length + (value == null ? 0 : value.length);
+    if (type == PUT && length > (this.capacity - FILE_HEADER) / 4) {
+      //Too large to keep, make sure an older value is not served after a restart either
+      this.append(REMOVE, hash, key, null, 0);
+      return;
+    }
+
+    final int slot = this.index.find(hash, key);
+    if (type == REMOVE && slot < 0) {
+      //Nothing to remove, not even after a restart
+      return;
+    }
+    if (slot >= 0) {
+      this.liveBytes -= this.log.getInt(this.index.remove(slot));
+    }
+    if (length > (this.capacity - FILE_HEADER) / 4) {
+      //A key too large to keep was never stored
+      return;
+    }
+    if (this.position + length + 4 > this.capacity) {
+      this.compact();
+    }
+
+    final int offset = this.position;
+    this.log.putInt(offset + 8, hash);
+    this.log.put(offset + 12, type);
+    this.log.putLong(offset + 13, expiresAt);
+    this.log.putInt(offset + 21, key.length);
+    this.log.position(offset + RECORD_HEADER);
+    this.log.put(key);
+    if (value != null) {
+      this.log.put(value);
+    }
+    this.log.putInt(offset + 4, this.checksum(offset, (int) length));
+    //Mark the new end of the log before the record becomes part of it
+    this.log.putInt(offset + (int) length, 0);
+    this.log.putInt(offset, (int) length);
+    this.position = offset + (int) length;
+
+    if (type == PUT) {
+      this.index.insert(hash, offset);
+      this.liveBytes += length;
+    }
+  }
+
+  /**
+   * Rebuild the index from the log, must only be called while opening the store
+   */
+  private void recover() {
+    if (this.log.getInt(0) != MAGIC || this.log.getInt(4) != VERSION) {
+      this.log.putInt(0, MAGIC);
+      this.log.putInt(4, VERSION);
+      this.log.putLong(8, 0);
+      this.log.putInt(FILE_HEADER, 0);
+      this.position = FILE_HEADER;
+      return;
+    }
+
+    final long now = System.currentTimeMillis();
+    int offset = FILE_HEADER;
+    while (offset + 4 <= this.capacity) {
+      final int length = this.log.getInt(offset);
+      if (length == 0) {
+        break;
+      }
+      if (length < RECORD_HEADER || (long) offset + length + 4 > this.capacity ||
+          this.log.getInt(offset + 4) != this.checksum(offset, length)) {
+        LOGGER.warning("Truncating " + this.file + " at corrupt record at offset " + offset);
+        break;
+      }
+
+      final int hash = this.log.getInt(offset + 8);
+      final byte[] key = new byte[this.log.getInt(offset + 21)];
+      this.log.position(offset + RECORD_HEADER);
+      this.log.get(key);
+      final int slot = this.index.find(hash, key);
+      if (slot >= 0) {
+        this.liveBytes -= this.log.getInt(this.index.remove(slot));
+      }
+      final long expiresAt = this.log.getLong(offset + 13);
+      if (this.log.get(offset + 12) == PUT && (expiresAt == 0 || expiresAt > now)) {
+        this.index.insert(hash, offset);
+        this.liveBytes += length;
+      }
+      offset += length;
+    }
+    this.log.putInt(offset, 0);
+    this.position = offset;
+  }
+
+  /**
+   * Copy the live records to a new log, dropping the oldest ones until at most half of it is used
+   */
+  private void compact() {
+    final File compactionFile = this.compactionFile();
+    try {
+      final MappedByteBuffer compacted = map(compactionFile, this.capacity);
+      compacted.putInt(0, MAGIC);
+      compacted.putInt(4, VERSION);
+      compacted.putLong(8, 0);
+      final ByteBufferIndex compactedIndex = new ByteBufferIndex(compacted, 21, RECORD_HEADER);
+
+      final long now = System.currentTimeMillis();
+      long excessBytes = this.liveBytes - (this.capacity - FILE_HEADER) / 2;
+      int target = FILE_HEADER;
+      long compactedBytes = 0;
+      for (int offset = FILE_HEADER; offset < this.position; ) {
+        final int length = this.log.getInt(offset);
+        final int hash = this.log.getInt(offset + 8);
+        final long expiresAt = this.log.getLong(offset + 13);
+        if (this.index.findOffset(hash, offset) >= 0 && (expiresAt == 0 || expiresAt > now)) {
+          if (excessBytes > 0) {
+            excessBytes -= length;
+            this.evictions++;
+          } else {
+            final ByteBuffer record = this.log.duplicate();
+            record.limit(offset + length).position(offset);
+            compacted.position(target);
+            compacted.put(record);
+            compactedIndex.insert(hash, target);
+            target += length;
+            compactedBytes += length;
+          }
+        }
+        offset += length;
+      }
+      compacted.putInt(target, 0);
+      compacted.force();
+
+      Files.move(compactionFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      //Every access to the log holds the lock of the store, nothing can use the old mapping any more
+      unmap(this.log);
+      this.log = compacted;
+      this.index = compactedIndex;
+      this.position = target;
+      this.liveBytes = compactedBytes;
+      this.compactions++;
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Unable to compact " + this.file + ", discarding its entries", e);
+      this.clear();
+    }
+  }
+
+  private File compactionFile() {
+    return new File(this.file.getPath() + ".compact");
+  }
+
+  private int checksum(int offset, int length) {
+    final ByteBuffer record = this.log.duplicate();
+    record.limit(offset + length).position(offset + 8);
+    final CRC32 crc = new CRC32();
+    final byte[] chunk = new byte[Math.min(length, 8192)];
+    while (record.hasRemaining()) {
+      final int count = Math.min(chunk.length, record.remaining());
+      record.get(chunk, 0, count);
+      crc.update(chunk, 0, count);
+    }
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Create the directory of the log readable and writable by the owner only if it does not exist, and refuse it
+   * if it is not owned by the user running the process or if others may write to it
+   */
+  private static void checkDirectory(Path directory) throws IOException {
+    final boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+    if (!Files.isDirectory(directory)) {
+      if (posix) {
+        Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(
+            PosixFilePermissions.fromString("rwx------")));
+      } else {
+        Files.createDirectories(directory);
+      }
+    }
+
+    final UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+        .lookupPrincipalByName(System.getProperty("user.name"));
+    if (!user.equals(Files.getOwner(directory))) {
+      throw new IOException(directory + " is not owned by " + user.getName());
+    }
+    if (posix) {
+      final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+      if (permissions.contains(PosixFilePermission.GROUP_WRITE) ||
+          permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+        throw new IOException(directory + " is writable by other users");
+      }
+    }
+  }
+
+  /**
+   * Create a file readable and writable by the owner only if it does not exist
+   */
+  private static void createFile(Path path) throws IOException {
+    if (Files.exists(path)) {
+      return;
+    }
+    if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      Files.createFile(path);
+    }
+  }
+
+  /**
+   * Release a mapping right away instead of when it is garbage collected, which may take long enough for the
+   * process to hold two logs of address space and page cache
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      try {
+        //Java 9 and later
+        final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        final Field field = unsafeClass.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), buffer);
+      } catch (NoSuchMethodException e) {
+        //Java 7 and 8
+        final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        final Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+      }
+    } catch (Exception e) {
+      LOGGER.log(Level.FINE, "Unable to unmap the old log, it is released once garbage collected", e);
+    }
+  }
+
+  private static MappedByteBuffer map(File file, int capacity) throws IOException {
+    createFile(file.toPath());
+    final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      if (randomAccessFile.length() != capacity) {
+        randomAccessFile.setLength(capacity);
+      }
+      //The mapping stays valid after the file is closed
+      return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  private static int hash(byte[] keyBytes) {
+    return FrequencySketch.spread(Arrays.hashCode(keyBytes));
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getFile()
+   */
+  @Override
+  public String getFile() {
+    return this.file.getAbsolutePath();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getMaxBytes()
+   */
+  @Override
+  public long getMaxBytes() {
+    return this.capacity;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getLogBytes()
+   */
+  @Override
+  public synchronized long getLogBytes() {
+    return this.position;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getLiveBytes()
+   */
+  @Override
+  public synchronized long getLiveBytes() {
+    return this.liveBytes;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getEntryCount()
+   */
+  @Override
+  public synchronized long getEntryCount() {
+    return this.index.size();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getHitCount()
+   */
+  @Override
+  public synchronized long getHitCount() {
+    return this.hits;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getMissCount()
+   */
+  @Override
+  public synchronized long getMissCount() {
+    return this.misses;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getEvictionCount()
+   */
+  @Override
+  public synchronized long getEvictionCount() {
+    return this.evictions;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.MappedFileCacheStoreMXBean#getCompactionCount()
+   */
+  @Override
+  public synchronized long getCompactionCount() {
+    return this.compactions;
+  }
+}
@@ -0,0 +1,418 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link ForwardingCache} that keeps a local copy of the entries it reads and writes in a {@link LocalCacheStore}
+ * in front of the cache it forwards to.
+ * <p>
+ * Reads are answered from the local store when possible and copy what they find in the cache into it. Writes go
+ * to the cache first and then to the store, conditional writes, removes and entry processors drop the key from the
+ * store instead. Local entries expire after <code>timeToLiveMillis</code>, or at the logical expiry of a
+ * {@link CacheValueHolder} if that is earlier, which bounds how long changes made by other nodes go unseen.
+ * Iterators, listeners and loading work on the cache alone.
+ * </p>
+ * <p>
+ * Every local write or remove bumps an invalidation stamp of the key's stripe, shared by all near caches in front
+ * of the same store. A read that missed locally only copies the value it read from the cache into the store if the
+ * stamp did not change meanwhile, so a concurrent write or remove on this node can not be overwritten with the
+ * stale value. {@link CacheTagKey} generations are never kept locally, a tag invalidated on another node must be
+ * seen on the next read.
+ * </p>
+ * <p>
+ * A key or value the store cannot encode is simply not kept locally: the read is answered by the cache and the
+ * write to the cache stands, the local tier never turns a successful cache operation into a failure.
+ * </p>
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public class NearCache<K, V> extends ForwardingCache<K, V> {
+  private static final Logger LOGGER = Logger.getLogger(NearCache.class.getName());
+  private static final int STRIPES = 64;
+  private static final ConcurrentMap<LocalCacheStore, AtomicLongArray> STAMPS =
+      new ConcurrentHashMap<LocalCacheStore, AtomicLongArray>();
+
+  private final LocalCacheStore store;
+  private final long timeToLiveMillis;
+  private final AtomicLongArray stamps;
+
+  /**
+   * @param delegate         The cache behind the local tier
+   * @param store            The local tier
+   * @param timeToLiveMillis How long local entries live, 0 to keep them until they are dropped by the store
+   */
+  public NearCache(Cache<K, V> delegate, LocalCacheStore store, long timeToLiveMillis) {
+    super(delegate);
+    if (store == null) {
+      throw new IllegalArgumentException("store cannot be null");
+    }
+    this.store = store;
+    this.timeToLiveMillis = timeToLiveMillis;
+
+    final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+    final AtomicLongArray existing = STAMPS.putIfAbsent(store, stamps);
+    this.stamps = existing != null ? existing : stamps;
+  }
+
+  /**
+   * @return The local tier
+   */
+  public LocalCacheStore getStore() {
+    return this.store;
+  }
+
+  /**
+   * Copy an entry into the local store
+   *
+   * @param key   The key
+   * @param value The value, nothing is stored if it is null
+   */
+  protected void storeLocally(K key, V value) {
+    if (value == null || key instanceof CacheTagKey) {
+      return;
+    }
+    long expiresAt = this.timeToLiveMillis > 0 ? System.currentTimeMillis() + this.timeToLiveMillis : 0;
+    if (value instanceof CacheValueHolder) {
+      final long logicalExpiry = ((CacheValueHolder) value).getExpiresMillis();
+      if (logicalExpiry != 0 && (expiresAt == 0 || logicalExpiry < expiresAt)) {
+        expiresAt = logicalExpiry;
+      }
+    }
+    try {
+      this.store.put(key, value, expiresAt);
+    } catch (CacheException e) {
+      LOGGER.log(Level.FINE, "Not keeping an entry of " + this.getName() + " locally", e);
+      //The value this one replaces must not be served either
+      this.removeLocally(key);
+    }
+  }
+
+  /**
+   * Read an entry from the local store
+   *
+   * @param key The key
+   * @return The local value, null if there is none or the store cannot encode the key
+   */
+  protected Object getLocally(K key) {
+    try {
+      return this.store.get(key);
+    } catch (CacheException e) {
+      LOGGER.log(Level.FINE, "Reading " + this.getName() + " past the local store", e);
+      return null;
+    }
+  }
+
+  /**
+   * Drop an entry from the local store
+   *
+   * @param key The key
+   */
+  protected void removeLocally(K key) {
+    try {
+      this.store.remove(key);
+    } catch (CacheException e) {
+      //A key the store cannot encode was never stored
+      LOGGER.log(Level.FINE, "Not removing an entry of " + this.getName() + " locally", e);
+    }
+  }
+
+  /**
+   * Copy an entry read from the cache into the local store, unless the key was written or removed on this node
+   * since the stamp was taken
+   *
+   * @param key   The key
+   * @param value The value read from the cache
+   * @param stamp The stamp of the key taken before the cache was read
+   */
+  protected void loadLocally(K key, V value, long stamp) {
+    final int stripe = stripe(key);
+    if (value == null || this.stamps.get(stripe) != stamp) {
+      return;
+    }
+    this.storeLocally(key, value);
+    if (this.stamps.get(stripe) != stamp) {
+      //Raced with a write or remove that stored or dropped its own value first
+      this.removeLocally(key);
+    }
+  }
+
+  /**
+   * Store the value just written to the cache locally, after invalidating reads still in flight
+   *
+   * @param key   The key
+   * @param value The value written, null to drop the key
+   */
+  protected void written(K key, V value) {
+    this.stamps.incrementAndGet(stripe(key));
+    if (value == null) {
+      this.removeLocally(key);
+    } else {
+      this.storeLocally(key, value);
+    }
+  }
+
+  /**
+   * Invalidate reads still in flight for all keys and clear the local store
+   */
+  protected void writtenAll() {
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      this.stamps.incrementAndGet(stripe);
+    }
+    this.store.clear();
+  }
+
+  private static int stripe(Object key) {
+    final int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#get(java.lang.Object)
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    if (key instanceof CacheTagKey) {
+      return super.get(key);
+    }
+    V value = (V) this.getLocally(key);
+    if (value == null) {
+      final long stamp = this.stamps.get(stripe(key));
+      value = super.get(key);
+      this.loadLocally(key, value, stamp);
+    }
+    return value;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAll(java.util.Set)
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<K, V> getAll(Set<? extends K> keys) {
+    final Map<K, V> result = new LinkedHashMap<K, V>();
+    final Map<K, Long> missing = new LinkedHashMap<K, Long>();
+    for (final K key : keys) {
+      final V value = key instanceof CacheTagKey ? null : (V) this.getLocally(key);
+      if (value != null) {
+        result.put(key, value);
+      } else {
+        missing.put(key, this.stamps.get(stripe(key)));
+      }
+    }
+    if (!missing.isEmpty()) {
+      for (final Map.Entry<K, V> entry : super.getAll(missing.keySet()).entrySet()) {
+        this.loadLocally(entry.getKey(), entry.getValue(), missing.get(entry.getKey()));
+        result.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#containsKey(java.lang.Object)
+   */
+  @Override
+  public boolean containsKey(K key) {
+    return (!(key instanceof CacheTagKey) && this.getLocally(key) != null) || super.containsKey(key);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#put(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public void put(K key, V value) {
+    super.put(key, value);
+    this.written(key, value);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAndPut(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public V getAndPut(K key, V value) {
+    final V previous = super.getAndPut(key, value);
+    this.written(key, value);
+    return previous;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#putAll(java.util.Map)
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    super.putAll(map);
+    for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      this.written(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#putIfAbsent(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean putIfAbsent(K key, V value) {
+    this.removeLocally(key);
+    final boolean stored = super.putIfAbsent(key, value);
+    this.written(key, stored ? value : null);
+    return stored;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#remove(java.lang.Object)
+   */
+  @Override
+  public boolean remove(K key) {
+    this.removeLocally(key);
+    final boolean result = super.remove(key);
+    this.written(key, null);
+    return result;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#remove(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean remove(K key, V oldValue) {
+    this.removeLocally(key);
+    final boolean result = super.remove(key, oldValue);
+    this.written(key, null);
+    return result;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAndRemove(java.lang.Object)
+   */
+  @Override
+  public V getAndRemove(K key) {
+    this.removeLocally(key);
+    final V result = super.getAndRemove(key);
+    this.written(key, null);
+    return result;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#replace(java.lang.Object, java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    this.removeLocally(key);
+    final boolean result = super.replace(key, oldValue, newValue);
+    this.written(key, null);
+    return result;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#replace(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean replace(K key, V value) {
+    this.removeLocally(key);
+    final boolean result = super.replace(key, value);
+    this.written(key, null);
+    return result;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAndReplace(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public V getAndReplace(K key, V value) {
+    this.removeLocally(key);
+    final V result = super.getAndReplace(key, value);
+    this.written(key, null);
+    return result;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#removeAll(java.util.Set)
+   */
+  @Override
+  public void removeAll(Set<? extends K> keys) {
+    for (final K key : keys) {
+      this.removeLocally(key);
+    }
+    super.removeAll(keys);
+    for (final K key : keys) {
+      this.written(key, null);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#removeAll()
+   */
+  @Override
+  public void removeAll() {
+    this.store.clear();
+    super.removeAll();
+    this.writtenAll();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#clear()
+   */
+  @Override
+  public void clear() {
+    this.store.clear();
+    super.clear();
+    this.writtenAll();
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#invoke(java.lang.Object, javax.cache.processor.EntryProcessor, java.lang.Object[])
+   */
+  @Override
+  public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments)
+      throws EntryProcessorException {
+    this.removeLocally(key);
+    final T result = super.invoke(key, entryProcessor, arguments);
+    this.written(key, null);
+    return result;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#invokeAll(java.util.Set, javax.cache.processor.EntryProcessor, java.lang.Object[])
+   */
+  @Override
+  public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, EntryProcessor<K, V, T> entryProcessor,
+                                                       Object... arguments) {
+    for (final K key : keys) {
+      this.removeLocally(key);
+    }
+    final Map<K, EntryProcessorResult<T>> results = super.invokeAll(keys, entryProcessor, arguments);
+    for (final K key : keys) {
+      this.written(key, null);
+    }
+    return results;
+  }
+}
@@ -0,0 +1,350 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link LocalCacheStore} that keeps its entries outside of the Java heap, so a local tier of many gigabytes adds
+ * nothing to garbage collection pauses.
+ * <p>
+ * Keys and values are stored in the form produced by a {@link CacheValueCodec}, keys are matched by their encoded
+ * bytes. The store is split into segments, each owning a direct {@link ByteBuffer} slab written as a circular log:
+ * new entries are appended at the head and, once the slab is full, the oldest entries at the tail are overwritten,
+ * so memory use is bounded by bytes. Each segment finds its entries through an open addressing index of two
+ * <code>int</code> arrays, the hash and slab offset of every live entry, and is guarded by its own lock. Replaced
+ * and removed entries stay in the slab until the head overwrites them.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class OffHeapCacheStore implements LocalCacheStore, OffHeapCacheStoreMXBean {
+  /**
+   * Bytes of slab used by each entry in addition to its key and value: the entry length, key hash, key length and
+   * expiry time
+   */
+  public static final int ENTRY_OVERHEAD = 20;
+
+  private static final int MAX_SEGMENT_BYTES = 1 << 30;
+  private static final int WRAP = -1;
+  private static final int HITS = 0;
+  private static final int MISSES = 1;
+  private static final int EVICTIONS = 2;
+  private static final int EXPIRATIONS = 3;
+
+  private final CacheValueCodec codec;
+  private final Segment[] segments;
+  private final int segmentShift;
+  private final long maxBytes;
+
+  /**
+   * @param maxBytes Bytes of direct memory to allocate for entries
+   * @param codec    Encodes the keys and values
+   */
+  public OffHeapCacheStore(long maxBytes, CacheValueCodec codec) {
+    if (codec == null) {
+      throw new IllegalArgumentException("codec cannot be null");
+    }
+    int segmentCount = 16;
+    while (maxBytes / segmentCount > MAX_SEGMENT_BYTES && segmentCount < 256) {
+      segmentCount <<= 1;
+    }
+    if (maxBytes < segmentCount * 1024L || maxBytes / segmentCount > MAX_SEGMENT_BYTES) {
+      throw new IllegalArgumentException("maxBytes must be between " + segmentCount * 1024L + " and " +
+          256L * MAX_SEGMENT_BYTES);
+    }
+    this.codec = codec;
+    this.maxBytes = maxBytes;
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      this.segments[i] = new Segment((int) (maxBytes / segmentCount));
+    }
+    this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#get(java.lang.Object)
+   */
+  @Override
+  public Object get(Object key) {
+    final byte[] keyBytes = this.codec.encode(key);
+    final int hash = hash(keyBytes);
+    final byte[] valueBytes = this.segmentFor(hash).get(hash, keyBytes, System.currentTimeMillis());
+    return valueBytes == null ? null : this.codec.decode(valueBytes);
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#put(java.lang.Object, java.lang.Object, long)
+   */
+  @Override
+  public void put(Object key, Object value, long expiresAtMillis) {
+    final byte[] keyBytes = this.codec.encode(key);
+    final byte[] valueBytes = this.codec.encode(value);
+    final int hash = hash(keyBytes);
+    this.segmentFor(hash).put(hash, keyBytes, valueBytes, expiresAtMillis);
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#remove(java.lang.Object)
+   */
+  @Override
+  public void remove(Object key) {
+    final byte[] keyBytes = this.codec.encode(key);
+    final int hash = hash(keyBytes);
+    this.segmentFor(hash).remove(hash, keyBytes);
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#clear()
+   */
+  @Override
+  public void clear() {
+    for (final Segment segment : this.segments) {
+      segment.clear();
+    }
+  }
+
+  private Segment segmentFor(int hash) {
+    return this.segments[hash >>> this.segmentShift];
+  }
+
+  private static int hash(byte[] keyBytes) {
+    return FrequencySketch.spread(Arrays.hashCode(keyBytes));
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.OffHeapCacheStoreMXBean#getMaxBytes()
+   */
+  @Override
+  public long getMaxBytes() {
+    return this.maxBytes;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.OffHeapCacheStoreMXBean#getLiveBytes()
+   */
+  @Override
+  public long getLiveBytes() {
+    long total = 0;
+    for (final Segment segment : this.segments) {
+      total += segment.getLiveBytes();
+    }
+    return total;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.OffHeapCacheStoreMXBean#getEntryCount()
+   */
+  @Override
+  public long getEntryCount() {
+    long total = 0;
+    for (final Segment segment : this.segments) {
+      total += segment.getEntryCount();
+    }
+    return total;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.OffHeapCacheStoreMXBean#getHitCount()
+   */
+  @Override
+  public long getHitCount() {
+    long total = 0;
+    for (final Segment segment : this.segments) {
+      total += segment.getCounter(HITS);
+    }
+    return total;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.OffHeapCacheStoreMXBean#getMissCount()
+   */
+  @Override
+  public long getMissCount() {
+    long total = 0;
+    for (final Segment segment : this.segments) {
+      total += segment.getCounter(MISSES);
+    }
+    return total;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.OffHeapCacheStoreMXBean#getEvictionCount()
+   */
+  @Override
+  public long getEvictionCount() {
+    long total = 0;
+    for (final Segment segment : this.segments) {
+      total += segment.getCounter(EVICTIONS);
+    }
+    return total;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.OffHeapCacheStoreMXBean#getExpirationCount()
+   */
+  @Override
+  public long getExpirationCount() {
+    long total = 0;
+    for (final Segment segment : this.segments) {
+      total += segment.getCounter(EXPIRATIONS);
+    }
+    return total;
+  }
+
+  /**
+   * One slab with its index. Entries are laid out as length, hash, key length, expiry time, key bytes and value
+   * bytes. A length of {@link #WRAP}, or less than {@link #ENTRY_OVERHEAD} bytes left before the end of the slab,
+   * marks where the log continues at offset 0.
+   */
+  private static final class Segment {
+    private final ByteBuffer slab;
+    private final int capacity;
+    private final ByteBufferIndex index;
+    private int head;
+    private int tail;
+    private int logged;
+    private long liveBytes;
+    private final long[] counters = new long[4];
+
+    private Segment(int capacity) {
+      this.slab = ByteBuffer.allocateDirect(capacity);
+      this.capacity = capacity;
+      this.index = new ByteBufferIndex(this.slab, 8, ENTRY_OVERHEAD);
+    }
+
+    synchronized byte[] get(int hash, byte[] key, long now) {
+      final int slot = this.index.find(hash, key);
+      if (slot < 0) {
+        this.counters[MISSES]++;
+        return null;
+      }
+      final int offset = this.index.offsetAt(slot);
+      final long expiresAt = this.slab.getLong(offset + 12);
+      if (expiresAt != 0 && expiresAt <= now) {
+        this.removeSlot(slot);
+        this.counters[EXPIRATIONS]++;
+        this.counters[MISSES]++;
+        return null;
+      }
+
+      final byte[] value = new byte[this.slab.getInt(offset) - ENTRY_OVERHEAD - key.length];
+      this.slab.position(offset + ENTRY_OVERHEAD + key.length);
+      this.slab.get(value);
+      this.counters[HITS]++;
+      return value;
+    }
+
+    synchronized void put(int hash, byte[] key, byte[] value, long expiresAt) {
+      final int slot = this.index.find(hash, key);
+      if (slot >= 0) {
+        this.removeSlot(slot);
+      }
+      final long length = (long) ENTRY_OVERHEAD + key.length + value.length;
+      if (length > this.capacity) {
+        //Too large to ever fit, leave it to the cache behind the tier
+        return;
+      }
+
+      this.makeRoom((int) length);
+      final int offset = this.head;
+      this.slab.putInt(offset, (int) length);
+      this.slab.putInt(offset + 4, hash);
+      this.slab.putInt(offset + 8, key.length);
+      this.slab.putLong(offset + 12, expiresAt);
+      this.slab.position(offset + ENTRY_OVERHEAD);
+      this.slab.put(key);
+      this.slab.put(value);
+      this.head += (int) length;
+      this.logged++;
+      this.index.insert(hash, offset);
+      this.liveBytes += length;
+    }
+
+    synchronized void remove(int hash, byte[] key) {
+      final int slot = this.index.find(hash, key);
+      if (slot >= 0) {
+        this.removeSlot(slot);
+      }
+    }
+
+    synchronized void clear() {
+      this.index.clear();
+      this.head = 0;
+      this.tail = 0;
+      this.logged = 0;
+      this.liveBytes = 0;
+    }
+
+    synchronized long getLiveBytes() {
+      return this.liveBytes;
+    }
+
+    synchronized int getEntryCount() {
+      return this.index.size();
+    }
+
+    synchronized long getCounter(int counter) {
+      return this.counters[counter];
+    }
+
+    /**
+     * Overwrite the oldest logged entries until <code>length</code> bytes are free at the head
+     */
+    private void makeRoom(int length) {
+      if (this.head + length > this.capacity) {
+        //Drop everything logged after the head, then continue the log at the start of the slab
+        while (this.logged > 0 && this.tail >= this.head) {
+          this.evictTail();
+        }
+        if (this.capacity - this.head >= 4) {
+          this.slab.putInt(this.head, WRAP);
+        }
+        this.head = 0;
+        if (this.logged == 0) {
+          this.tail = 0;
+        }
+      }
+      while (this.logged > 0 && this.tail >= this.head && this.tail < this.head + length) {
+        this.evictTail();
+      }
+      if (this.logged == 0) {
+        this.tail = this.head;
+      }
+    }
+
+    private void evictTail() {
+      if (this.capacity - this.tail < ENTRY_OVERHEAD || this.slab.getInt(this.tail) == WRAP) {
+        this.tail = 0;
+      }
+      final int length = this.slab.getInt(this.tail);
+      final int slot = this.index.findOffset(this.slab.getInt(this.tail + 4), this.tail);
+      if (slot >= 0) {
+        //Still the live entry for its key, not a replaced or removed one
+        this.removeSlot(slot);
+        this.counters[EVICTIONS]++;
+      }
+      this.tail += length;
+      this.logged--;
+    }
+
+    private void removeSlot(int slot) {
+      this.liveBytes -= this.slab.getInt(this.index.remove(slot));
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Management view of an {@link OffHeapCacheStore}.
+ *
+ * @since 1.0
+ */
+public interface OffHeapCacheStoreMXBean {
+
+  /**
+   * @return Bytes of direct memory allocated for entries
+   */
+  long getMaxBytes();
+
+  /**
+   * @return Bytes used by live entries, including their overhead
+   */
+  long getLiveBytes();
+
+  /**
+   * @return Number of live entries
+   */
+  long getEntryCount();
+
+  /**
+   * @return Number of lookups that found a value
+   */
+  long getHitCount();
+
+  /**
+   * @return Number of lookups that found no value
+   */
+  long getMissCount();
+
+  /**
+   * @return Number of live entries overwritten to make room for new ones
+   */
+  long getEvictionCount();
+
+  /**
+   * @return Number of entries dropped because they expired
+   */
+  long getExpirationCount();
+}
@@ -0,0 +1,86 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Memo of cached values that is consulted before the shared cache for the duration of a single request.
+ * <p>
+ * Values are held per cache name and key. Writes and removes done through the annotations during the same
+ * request invalidate the affected memo entries, so a request always sees its own updates.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class RequestCacheMemo {
+  private final ConcurrentMap<String, ConcurrentMap<Object, Object>> caches =
+      new ConcurrentHashMap<String, ConcurrentMap<Object, Object>>();
+
+  /**
+   * @param cacheName The name of the cache
+   * @param key       The cache key
+   * @return The memoized value, null if there is none
+   */
+  public Object get(String cacheName, Object key) {
+    final ConcurrentMap<Object, Object> values = this.caches.get(cacheName);
+    return values == null ? null : values.get(key);
+  }
+
+  /**
+   * @param cacheName The name of the cache
+   * @param key       The cache key
+   * @param value     The value to memoize, must not be null
+   */
+  public void put(String cacheName, Object key, Object value) {
+    ConcurrentMap<Object, Object> values = this.caches.get(cacheName);
+    if (values == null) {
+      values = new ConcurrentHashMap<Object, Object>();
+      final ConcurrentMap<Object, Object> existing = this.caches.putIfAbsent(cacheName, values);
+      if (existing != null) {
+        values = existing;
+      }
+    }
+    values.put(key, value);
+  }
+
+  /**
+   * @param cacheName The name of the cache
+   * @param key       The cache key to invalidate
+   */
+  public void remove(String cacheName, Object key) {
+    final ConcurrentMap<Object, Object> values = this.caches.get(cacheName);
+    if (values != null) {
+      values.remove(key);
+    }
+  }
+
+  /**
+   * @param cacheName The name of the cache to invalidate
+   */
+  public void removeAll(String cacheName) {
+    this.caches.remove(cacheName);
+  }
+
+  /**
+   * Invalidate all memoized values
+   */
+  public void clear() {
+    this.caches.clear();
+  }
+}
@@ -0,0 +1,302 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.cache.processor.EntryProcessor;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Guards the data operations of a cache with a {@link CacheCircuitBreaker} and an optional operation deadline.
+ * <p>
+ * A failed, timed out or short-circuited read behaves like a cache miss and a failed put is skipped. The annotated
+ * method then simply runs uncached, so a slow or unavailable cache can not make the application slower than it
+ * would be without the cache. Removes and entry processors throw a {@link CacheException} instead, an invalidation
+ * that is silently dropped would let stale entries be served once the circuit closes.
+ * </p>
+ * <p>
+ * Operations with a deadline run on a shared pool of at most <code>resilience.threads</code> daemon threads,
+ * operations that find no free thread are short-circuited.
+ * </p>
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public class ResilientCache<K, V> extends ForwardingCache<K, V> {
+  private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final CacheCircuitBreaker circuitBreaker;
+
+  /**
+   * @param delegate       The guarded cache
+   * @param circuitBreaker The circuit breaker for the cache
+   */
+  public ResilientCache(Cache<K, V> delegate, CacheCircuitBreaker circuitBreaker) {
+    super(delegate);
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /**
+   * @return The circuit breaker guarding this cache
+   */
+  public CacheCircuitBreaker getCircuitBreaker() {
+    return this.circuitBreaker;
+  }
+
+  /**
+   * Execute a cache operation through the circuit breaker, falling back if it is skipped or fails. Only used
+   * for reads and puts, where the fallback makes the annotated method run uncached.
+   *
+   * @param operation The operation to execute
+   * @param fallback  The value to return if the operation is skipped or fails
+   * @return The result of the operation or the fallback
+   */
+  protected <T> T execute(Callable<T> operation, T fallback) {
+    if (!this.circuitBreaker.allowRequest()) {
+      return fallback;
+    }
+    try {
+      return this.attempt(operation);
+    } catch (CacheException e) {
+      logger.log(Level.FINE, e.getMessage(), e.getCause());
+      return fallback;
+    }
+  }
+
+  /**
+   * Execute a cache operation through the circuit breaker, throwing if it is skipped or fails. Used for removes
+   * and entry processors, silently skipping those would leave stale entries behind once the circuit closes.
+   *
+   * @param operation The operation to execute
+   * @return The result of the operation
+   * @throws CacheException If the operation was skipped or failed
+   */
+  protected <T> T executeRequired(Callable<T> operation) {
+    if (!this.circuitBreaker.allowRequest()) {
+      throw new CacheException("Circuit breaker of cache '" + this.circuitBreaker.getCacheName()
+          + "' is open, the operation was skipped");
+    }
+    return this.attempt(operation);
+  }
+
+  private <T> T attempt(Callable<T> operation) {
+    final String cacheName = this.circuitBreaker.getCacheName();
+    final long start = System.nanoTime();
+    try {
+      final T result;
+      final long timeoutMillis = this.circuitBreaker.getTimeoutMillis();
+      if (timeoutMillis > 0) {
+        result = this.executeWithDeadline(operation, timeoutMillis);
+      } else {
+        result = operation.call();
+      }
+      this.circuitBreaker.onSuccess(System.nanoTime() - start);
+      return result;
+    } catch (TimeoutException e) {
+      this.circuitBreaker.onTimeout();
+      throw new CacheException("Operation on cache '" + cacheName + "' timed out", e);
+    } catch (RejectedExecutionException e) {
+      this.circuitBreaker.onRejected();
+      throw new CacheException("Operation on cache '" + cacheName + "' was rejected", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.circuitBreaker.onRejected();
+      throw new CacheException("Operation on cache '" + cacheName + "' was interrupted", e);
+    } catch (Exception e) {
+      this.circuitBreaker.onFailure();
+      throw new CacheException("Operation on cache '" + cacheName + "' failed", e);
+    }
+  }
+
+  private <T> T executeWithDeadline(Callable<T> operation, long timeoutMillis) throws Exception {
+    final Future<T> future = ExecutorHolder.EXECUTOR.submit(operation);
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw e;
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public V get(final K key) {
+    return this.execute(new Callable<V>() {
+      @Override
+      public V call() {
+        return getDelegate().get(key);
+      }
+    }, null);
+  }
+
+  @Override
+  public Map<K, V> getAll(final Set<? extends K> keys) {
+    return this.execute(new Callable<Map<K, V>>() {
+      @Override
+      public Map<K, V> call() {
+        return getDelegate().getAll(keys);
+      }
+    }, Collections.<K, V>emptyMap());
+  }
+
+  @Override
+  public boolean containsKey(final K key) {
+    return this.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return getDelegate().containsKey(key);
+      }
+    }, Boolean.FALSE);
+  }
+
+  @Override
+  public void put(final K key, final V value) {
+    this.execute(new Callable<Void>() {
+      @Override
+      public Void call() {
+        getDelegate().put(key, value);
+        return null;
+      }
+    }, null);
+  }
+
+  @Override
+  public V getAndPut(final K key, final V value) {
+    return this.execute(new Callable<V>() {
+      @Override
+      public V call() {
+        return getDelegate().getAndPut(key, value);
+      }
+    }, null);
+  }
+
+  @Override
+  public void putAll(final Map<? extends K, ? extends V> map) {
+    this.execute(new Callable<Void>() {
+      @Override
+      public Void call() {
+        getDelegate().putAll(map);
+        return null;
+      }
+    }, null);
+  }
+
+  @Override
+  public boolean putIfAbsent(final K key, final V value) {
+    return this.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return getDelegate().putIfAbsent(key, value);
+      }
+    }, Boolean.FALSE);
+  }
+
+  @Override
+  public boolean remove(final K key) {
+    return this.executeRequired(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return getDelegate().remove(key);
+      }
+    });
+  }
+
+  @Override
+  public V getAndRemove(final K key) {
+    return this.executeRequired(new Callable<V>() {
+      @Override
+      public V call() {
+        return getDelegate().getAndRemove(key);
+      }
+    });
+  }
+
+  @Override
+  public void removeAll(final Set<? extends K> keys) {
+    this.executeRequired(new Callable<Void>() {
+      @Override
+      public Void call() {
+        getDelegate().removeAll(keys);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public void removeAll() {
+    this.executeRequired(new Callable<Void>() {
+      @Override
+      public Void call() {
+        getDelegate().removeAll();
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public <T> T invoke(final K key, final EntryProcessor<K, V, T> entryProcessor, final Object... arguments) {
+    return this.executeRequired(new Callable<T>() {
+      @Override
+      public T call() {
+        return getDelegate().invoke(key, entryProcessor, arguments);
+      }
+    });
+  }
+
+  /**
+   * Lazily created pool used to run operations that have a deadline
+   */
+  private static final class ExecutorHolder {
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0,
+        Math.max(1, CacheAnnotationsConfig.getInt("resilience.threads", 64)),
+        60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "jsr107-annotations-cache-op-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+
+    private ExecutorHolder() {
+    }
+  }
+}
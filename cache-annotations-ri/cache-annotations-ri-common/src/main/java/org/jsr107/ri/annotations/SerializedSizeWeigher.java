@@ -0,0 +1,68 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * {@link CacheValueWeigher} that measures the Java serialized size of a value, which is what serializing remote
+ * caches send. The bytes are counted as they are written and never buffered.
+ *
+ * @since 1.0
+ */
+public class SerializedSizeWeigher implements CacheValueWeigher {
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.CacheValueWeigher#weigh(java.lang.Object)
+   */
+  @Override
+  public long weigh(Object value) {
+    if (!(value instanceof Serializable)) {
+      return -1;
+    }
+    final CountingOutputStream counter = new CountingOutputStream();
+    try {
+      final ObjectOutputStream out = new ObjectOutputStream(counter);
+      out.writeObject(value);
+      out.flush();
+      return counter.count;
+    } catch (IOException e) {
+      //Something in the object graph cannot be serialized
+      return -1;
+    }
+  }
+
+  /**
+   * Stream that only counts the bytes written to it
+   */
+  private static final class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+      this.count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      this.count += len;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link ForwardingCache} that checks the values written with {@link #put(Object, Object)},
+ * {@link #putAll(Map)}, {@link #getAndPut(Object, Object)} and {@link #putIfAbsent(Object, Object)} against a
+ * {@link CacheSizeGuard}.
+ * <p>
+ * A rejected value replaces the entry all the same, so the entry is removed instead of being left with the value
+ * the write was meant to replace.
+ * </p>
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @since 1.0
+ */
+public class SizeGuardedCache<K, V> extends ForwardingCache<K, V> {
+  private final CacheSizeGuard sizeGuard;
+
+  /**
+   * @param delegate  The guarded cache
+   * @param sizeGuard Decides which values are small enough to write
+   */
+  public SizeGuardedCache(Cache<K, V> delegate, CacheSizeGuard sizeGuard) {
+    super(delegate);
+    if (sizeGuard == null) {
+      throw new IllegalArgumentException("sizeGuard cannot be null");
+    }
+    this.sizeGuard = sizeGuard;
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#put(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public void put(K key, V value) {
+    if (this.sizeGuard.admit(key, value)) {
+      super.put(key, value);
+    } else {
+      super.remove(key);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#getAndPut(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public V getAndPut(K key, V value) {
+    if (this.sizeGuard.admit(key, value)) {
+      return super.getAndPut(key, value);
+    }
+    return super.getAndRemove(key);
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#putAll(java.util.Map)
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    final Map<K, V> admitted = new LinkedHashMap<K, V>();
+    final Set<K> rejected = new LinkedHashSet<K>();
+    for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      if (this.sizeGuard.admit(entry.getKey(), entry.getValue())) {
+        admitted.put(entry.getKey(), entry.getValue());
+      } else {
+        rejected.add(entry.getKey());
+      }
+    }
+    if (!rejected.isEmpty()) {
+      super.removeAll(rejected);
+    }
+    if (!admitted.isEmpty()) {
+      super.putAll(admitted);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see javax.cache.Cache#putIfAbsent(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public boolean putIfAbsent(K key, V value) {
+    return this.sizeGuard.admit(key, value) && super.putIfAbsent(key, value);
+  }
+}
@@ -0,0 +1,46 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheResolver;
+
+/**
+ * {@link CacheResolver} that wraps the caches resolved by another resolver in a {@link SizeGuardedCache}.
+ *
+ * @since 1.0
+ */
+public class SizeGuardedCacheResolver extends AbstractDecoratingCacheResolver {
+  private final CacheSizeGuard sizeGuard;
+
+  /**
+   * @param delegate  The resolver to wrap
+   * @param sizeGuard Decides which values are small enough to write to the resolved caches
+   */
+  public SizeGuardedCacheResolver(CacheResolver delegate, CacheSizeGuard sizeGuard) {
+    super(delegate);
+    this.sizeGuard = sizeGuard;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.AbstractDecoratingCacheResolver#wrap(javax.cache.Cache)
+   */
+  @Override
+  protected <K, V> ForwardingCache<K, V> wrap(Cache<K, V> cache) {
+    return new SizeGuardedCache<K, V>(cache, this.sizeGuard);
+  }
+}
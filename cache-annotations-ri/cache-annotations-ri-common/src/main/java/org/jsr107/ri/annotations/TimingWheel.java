@@ -0,0 +1,195 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+/**
+ * Hierarchical timing wheel that finds the expired entries of a local store in amortized constant time.
+ * <p>
+ * Timers are kept in doubly linked buckets spread over five wheels, whose buckets span about a second, a minute,
+ * an hour and a day and a half, and whose last single bucket holds everything further out. Scheduling and descheduling a timer are
+ * constant time. {@link #advance(long, Expirer)} visits only the buckets whose time span has passed, expires the
+ * due timers in them and moves the others down to the finer wheel they now belong to, so each timer is touched a
+ * bounded number of times however long it lives.
+ * </p>
+ * <p>
+ * The wheel is not thread safe, callers must guard every method with the same lock.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class TimingWheel {
+  private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+  //Each wheel covers one bucket of the next, the last bucket holds all timers more than 6 days out
+  private static final long[] SPANS = {1L << 10, 1L << 16, 1L << 22, 1L << 27, 1L << 29};
+  private static final int[] SHIFTS = {10, 16, 22, 27, 29};
+
+  private final Timer[][] wheels;
+  private long time;
+
+  /**
+   * @param nowMillis The current time
+   */
+  public TimingWheel(long nowMillis) {
+    this.wheels = new Timer[BUCKETS.length][];
+    for (int i = 0; i < BUCKETS.length; i++) {
+      this.wheels[i] = new Timer[BUCKETS[i]];
+      for (int j = 0; j < BUCKETS[i]; j++) {
+        this.wheels[i][j] = new Sentinel();
+      }
+    }
+    this.time = nowMillis;
+  }
+
+  /**
+   * Schedule a timer for its expiry time, moving it if it was already scheduled
+   *
+   * @param timer The timer, its expiry time must not be 0
+   */
+  public void schedule(Timer timer) {
+    if (timer.next != null) {
+      this.deschedule(timer);
+    }
+    final Timer sentinel = this.findBucket(timer.getExpiresAtMillis());
+    timer.previous = sentinel.previous;
+    timer.next = sentinel;
+    sentinel.previous.next = timer;
+    sentinel.previous = timer;
+  }
+
+  /**
+   * Remove a timer from the wheel, does nothing if it is not scheduled
+   *
+   * @param timer The timer
+   */
+  public void deschedule(Timer timer) {
+    if (timer.next != null) {
+      timer.previous.next = timer.next;
+      timer.next.previous = timer.previous;
+      timer.previous = null;
+      timer.next = null;
+    }
+  }
+
+  /**
+   * Advance the wheel to the current time and expire the timers that are due
+   *
+   * @param nowMillis The current time
+   * @param expirer   Called for each due timer after it was descheduled
+   */
+  public void advance(long nowMillis, Expirer expirer) {
+    final long previousTime = this.time;
+    if (nowMillis <= previousTime) {
+      return;
+    }
+    this.time = nowMillis;
+    for (int i = 0; i < SHIFTS.length; i++) {
+      final long previousTicks = previousTime >>> SHIFTS[i];
+      final long delta = (nowMillis >>> SHIFTS[i]) - previousTicks;
+      if (delta <= 0) {
+        //Coarser wheels cannot have turned either
+        break;
+      }
+      this.expire(i, previousTicks, delta, expirer);
+    }
+  }
+
+  private void expire(int level, long previousTicks, long delta, Expirer expirer) {
+    final Timer[] buckets = this.wheels[level];
+    final int mask = buckets.length - 1;
+    final int start;
+    final int end;
+    if (delta >= buckets.length) {
+      start = 0;
+      end = buckets.length;
+    } else {
+      start = (int) (previousTicks & mask);
+      end = start + (int) delta + 1;
+    }
+
+    for (int i = start; i < end; i++) {
+      final Timer sentinel = buckets[i & mask];
+      Timer timer = sentinel.next;
+      //Detach the bucket first, timers that are not due yet are scheduled again, possibly into this bucket
+      sentinel.previous = sentinel;
+      sentinel.next = sentinel;
+      while (timer != sentinel) {
+        final Timer next = timer.next;
+        timer.previous = null;
+        timer.next = null;
+        if (timer.getExpiresAtMillis() <= this.time) {
+          expirer.expire(timer);
+        } else {
+          this.schedule(timer);
+        }
+        timer = next;
+      }
+    }
+  }
+
+  private Timer findBucket(long expiresAtMillis) {
+    //Timers that are already due go to the current bucket, which is visited on the next tick
+    final long when = Math.max(expiresAtMillis, this.time);
+    final long duration = when - this.time;
+    final int last = BUCKETS.length - 1;
+    for (int i = 0; i < last; i++) {
+      if (duration < SPANS[i + 1]) {
+        final long ticks = when >>> SHIFTS[i];
+        return this.wheels[i][(int) (ticks & (BUCKETS[i] - 1))];
+      }
+    }
+    return this.wheels[last][0];
+  }
+
+  /**
+   * An entry that can be scheduled in a {@link TimingWheel}, linked into at most one wheel at a time
+   */
+  public abstract static class Timer {
+    private Timer previous;
+    private Timer next;
+
+    /**
+     * @return The time at which the timer expires
+     */
+    public abstract long getExpiresAtMillis();
+  }
+
+  /**
+   * Receives the timers a {@link TimingWheel} expires
+   */
+  public interface Expirer {
+
+    /**
+     * @param timer The expired timer, already removed from the wheel
+     */
+    void expire(Timer timer);
+  }
+
+  /**
+   * Head of a bucket's circular list
+   */
+  private static final class Sentinel extends Timer {
+    private Sentinel() {
+      ((Timer) this).previous = this;
+      ((Timer) this).next = this;
+    }
+
+    @Override
+    public long getExpiresAtMillis() {
+      return Long.MAX_VALUE;
+    }
+  }
+}
@@ -0,0 +1,450 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link LocalCacheStore} on the Java heap bounded by entry count and evicting with the Window TinyLFU policy, so a
+ * scan of keys that are read only once cannot flush the entries that are read often.
+ * <p>
+ * New entries go to an LRU admission window of 1% of the capacity. An entry leaving the window competes with the
+ * least recently used entry of the probation segment of the main space: the one a {@link FrequencySketch} has seen
+ * less often is evicted. Entries read again while in probation move to the protected segment, which holds up to 80%
+ * of the main space and demotes its least recently used entries back to probation.
+ * </p>
+ * <p>
+ * Lookups never take a lock. They count the key in the sketch, which is lock-free, and record the entry in one of
+ * several lossy ring buffers, striped by thread. A full buffer is drained by whichever thread wins a
+ * {@link ReentrantLock#tryLock()} on the eviction lock, reordering the segments in one batch, while records that do
+ * not fit are dropped. Writes update the map and then apply their change to the segments under the eviction lock.
+ * Values are stored by reference, callers must not modify the values they put or get.
+ * </p>
+ * <p>
+ * Entries with an expiry time are scheduled in a {@link TimingWheel}, advanced whenever the eviction lock is taken
+ * and by {@link #cleanUp()}, so expired entries are dropped without being read or scanned for.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class WindowTinyLfuCacheStore implements LocalCacheStore, WindowTinyLfuCacheStoreMXBean {
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  private static final int NEW = -1;
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int RETIRED = 3;
+
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<Object, Node>();
+  private final FrequencySketch sketch;
+  private final long maximumSize;
+  private final long windowMaximum;
+  private final long protectedMaximum;
+  private final ReadBuffer[] readBuffers;
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  //The segments, only accessed while holding the eviction lock
+  private final AccessOrder[] segments = {new AccessOrder(), new AccessOrder(), new AccessOrder()};
+  private final TimingWheel timingWheel = new TimingWheel(System.currentTimeMillis());
+  private final TimingWheel.Expirer expirer = new TimingWheel.Expirer() {
+    @Override
+    public void expire(TimingWheel.Timer timer) {
+      final Node node = (Node) timer;
+      unlink(node);
+      if (data.remove(node.key, node)) {
+        expirations.incrementAndGet();
+      }
+    }
+  };
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong expirations = new AtomicLong();
+
+  /**
+   * @param maximumSize Number of entries to keep
+   */
+  public WindowTinyLfuCacheStore(long maximumSize) {
+    if (maximumSize < 2) {
+      throw new IllegalArgumentException("maximumSize must be at least 2");
+    }
+    this.maximumSize = maximumSize;
+    this.windowMaximum = Math.max(1, maximumSize / 100);
+    this.protectedMaximum = (maximumSize - this.windowMaximum) * 4 / 5;
+    this.sketch = new FrequencySketch((int) Math.min(maximumSize, 1 << 30));
+
+    int stripes = 1;
+    while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 64) {
+      stripes <<= 1;
+    }
+    this.readBuffers = new ReadBuffer[stripes];
+    for (int i = 0; i < stripes; i++) {
+      this.readBuffers[i] = new ReadBuffer();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#get(java.lang.Object)
+   */
+  @Override
+  public Object get(Object key) {
+    this.sketch.increment(FrequencySketch.spread(key.hashCode()));
+    final Node node = this.data.get(key);
+    if (node == null) {
+      this.misses.incrementAndGet();
+      return null;
+    }
+    if (node.isExpired(System.currentTimeMillis())) {
+      this.misses.incrementAndGet();
+      //The timing wheel drops the entry, only advance it when that does not block the read
+      if (this.evictionLock.tryLock()) {
+        try {
+          this.maintain();
+        } finally {
+          this.evictionLock.unlock();
+        }
+      }
+      return null;
+    }
+
+    this.hits.incrementAndGet();
+    final ReadBuffer buffer = this.readBuffers[FrequencySketch.spread((int) Thread.currentThread().getId()) &
+        (this.readBuffers.length - 1)];
+    if (!buffer.offer(node) && this.evictionLock.tryLock()) {
+      try {
+        this.maintain();
+      } finally {
+        this.evictionLock.unlock();
+      }
+    }
+    return node.value;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#put(java.lang.Object, java.lang.Object, long)
+   */
+  @Override
+  public void put(Object key, Object value, long expiresAtMillis) {
+    final Node node = new Node(key, value, expiresAtMillis);
+    final Node previous = this.data.put(key, node);
+    this.evictionLock.lock();
+    try {
+      this.maintain();
+      if (previous != null) {
+        this.unlink(previous);
+      }
+      if (node.segment == NEW) {
+        //Not already replaced or removed by a concurrent write
+        this.segments[WINDOW].addLast(node);
+        node.segment = WINDOW;
+        if (expiresAtMillis != 0) {
+          this.timingWheel.schedule(node);
+        }
+        this.evict();
+      }
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#remove(java.lang.Object)
+   */
+  @Override
+  public void remove(Object key) {
+    final Node node = this.data.remove(key);
+    if (node != null) {
+      this.retire(node);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.LocalCacheStore#clear()
+   */
+  @Override
+  public void clear() {
+    this.evictionLock.lock();
+    try {
+      this.drainReadBuffers();
+      for (final Node node : this.data.values()) {
+        if (this.data.remove(node.key, node)) {
+          this.unlink(node);
+        }
+      }
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Apply the recorded reads and drop the expired entries, done by reads and writes as a side effect and
+   * periodically by the near cache's clean up thread so entries that are never read again are released as well
+   */
+  public void cleanUp() {
+    this.evictionLock.lock();
+    try {
+      this.maintain();
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Must hold the eviction lock
+   */
+  private void maintain() {
+    this.drainReadBuffers();
+    this.timingWheel.advance(System.currentTimeMillis(), this.expirer);
+  }
+
+  private void retire(Node node) {
+    this.evictionLock.lock();
+    try {
+      this.unlink(node);
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Remove a node from its segment, if it is still in one
+   */
+  private void unlink(Node node) {
+    if (node.segment >= WINDOW && node.segment < RETIRED) {
+      this.segments[node.segment].remove(node);
+    }
+    this.timingWheel.deschedule(node);
+    node.segment = RETIRED;
+  }
+
+  /**
+   * Apply the recorded reads to the segments, must hold the eviction lock
+   */
+  private void drainReadBuffers() {
+    for (final ReadBuffer buffer : this.readBuffers) {
+      for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+        final Node node = buffer.nodes.getAndSet(i, null);
+        if (node != null) {
+          this.onAccess(node);
+        }
+      }
+    }
+  }
+
+  private void onAccess(Node node) {
+    switch (node.segment) {
+      case WINDOW:
+      case PROTECTED:
+        this.segments[node.segment].moveToLast(node);
+        break;
+      case PROBATION:
+        //Read again while on probation, promote and make room by demoting the coldest protected entries
+        this.segments[PROBATION].remove(node);
+        this.segments[PROTECTED].addLast(node);
+        node.segment = PROTECTED;
+        while (this.segments[PROTECTED].size > this.protectedMaximum) {
+          final Node demoted = this.segments[PROTECTED].first;
+          this.segments[PROTECTED].remove(demoted);
+          this.segments[PROBATION].addLast(demoted);
+          demoted.segment = PROBATION;
+        }
+        break;
+      default:
+        //Not linked yet, or removed before its read was applied
+        break;
+    }
+  }
+
+  /**
+   * Move entries out of the admission window and evict until the store is within its bounds, must hold the
+   * eviction lock
+   */
+  private void evict() {
+    while (this.segments[WINDOW].size > this.windowMaximum) {
+      final Node candidate = this.segments[WINDOW].first;
+      this.segments[WINDOW].remove(candidate);
+      if (this.segments[PROBATION].size + this.segments[PROTECTED].size < this.maximumSize - this.windowMaximum) {
+        //The main space has room, admit without competition
+        this.segments[PROBATION].addLast(candidate);
+        candidate.segment = PROBATION;
+        continue;
+      }
+
+      final AccessOrder victims = this.segments[PROBATION].size > 0 ? this.segments[PROBATION] : this.segments[PROTECTED];
+      final Node victim = victims.first;
+      if (this.sketch.frequency(FrequencySketch.spread(candidate.key.hashCode())) >
+          this.sketch.frequency(FrequencySketch.spread(victim.key.hashCode()))) {
+        victims.remove(victim);
+        this.evictNode(victim);
+        this.segments[PROBATION].addLast(candidate);
+        candidate.segment = PROBATION;
+      } else {
+        this.evictNode(candidate);
+      }
+    }
+  }
+
+  private void evictNode(Node node) {
+    this.timingWheel.deschedule(node);
+    node.segment = RETIRED;
+    if (this.data.remove(node.key, node)) {
+      this.evictions.incrementAndGet();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.WindowTinyLfuCacheStoreMXBean#getMaximumSize()
+   */
+  @Override
+  public long getMaximumSize() {
+    return this.maximumSize;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.WindowTinyLfuCacheStoreMXBean#getEntryCount()
+   */
+  @Override
+  public long getEntryCount() {
+    return this.data.size();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.WindowTinyLfuCacheStoreMXBean#getHitCount()
+   */
+  @Override
+  public long getHitCount() {
+    return this.hits.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.WindowTinyLfuCacheStoreMXBean#getMissCount()
+   */
+  @Override
+  public long getMissCount() {
+    return this.misses.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.WindowTinyLfuCacheStoreMXBean#getEvictionCount()
+   */
+  @Override
+  public long getEvictionCount() {
+    return this.evictions.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.jsr107.ri.annotations.WindowTinyLfuCacheStoreMXBean#getExpirationCount()
+   */
+  @Override
+  public long getExpirationCount() {
+    return this.expirations.get();
+  }
+
+  /**
+   * An entry, linked into the segment it belongs to and, if it expires, scheduled in the timing wheel
+   */
+  private static final class Node extends TimingWheel.Timer {
+    private final Object key;
+    private final Object value;
+    private final long expiresAtMillis;
+    //Segment and links, only accessed while holding the eviction lock
+    private int segment = NEW;
+    private Node previous;
+    private Node next;
+
+    private Node(Object key, Object value, long expiresAtMillis) {
+      this.key = key;
+      this.value = value;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    @Override
+    public long getExpiresAtMillis() {
+      return this.expiresAtMillis;
+    }
+
+    private boolean isExpired(long nowMillis) {
+      return this.expiresAtMillis != 0 && this.expiresAtMillis <= nowMillis;
+    }
+  }
+
+  /**
+   * Doubly linked list of nodes from least to most recently used
+   */
+  private static final class AccessOrder {
+    private Node first;
+    private Node last;
+    private long size;
+
+    private void addLast(Node node) {
+      node.previous = this.last;
+      node.next = null;
+      if (this.last == null) {
+        this.first = node;
+      } else {
+        this.last.next = node;
+      }
+      this.last = node;
+      this.size++;
+    }
+
+    private void remove(Node node) {
+      if (node.previous == null) {
+        this.first = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (node.next == null) {
+        this.last = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      this.size--;
+    }
+
+    private void moveToLast(Node node) {
+      if (this.last != node) {
+        this.remove(node);
+        this.addLast(node);
+      }
+    }
+  }
+
+  /**
+   * Lossy ring of recently read nodes, written without locks
+   */
+  private static final class ReadBuffer {
+    private final AtomicReferenceArray<Node> nodes = new AtomicReferenceArray<Node>(READ_BUFFER_SIZE);
+    private final AtomicInteger writes = new AtomicInteger();
+
+    /**
+     * @return false if the buffer should be drained, the node may not have been recorded
+     */
+    private boolean offer(Node node) {
+      final int index = this.writes.getAndIncrement() & READ_BUFFER_MASK;
+      return this.nodes.compareAndSet(index, null, node) && index != READ_BUFFER_MASK;
+    }
+  }
+}
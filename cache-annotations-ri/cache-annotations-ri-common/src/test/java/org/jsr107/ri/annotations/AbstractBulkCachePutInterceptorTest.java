@@ -0,0 +1,146 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.CacheValue;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AbstractBulkCachePutInterceptor}
+ */
+public class AbstractBulkCachePutInterceptorTest {
+  private final Map<Object, Object> entries = new HashMap<Object, Object>();
+  private final Cache<Object, Object> cache = InMemoryCache.create("users", this.entries);
+  private final AbstractBulkCachePutInterceptor<Object[]> interceptor = new AbstractBulkCachePutInterceptor<Object[]>() {
+    @Override
+    protected Object proceed(Object[] invocation) {
+      return null;
+    }
+  };
+
+  @BulkCachePut(cacheName = "users")
+  public void saveUsers(@CacheValue Map<String, String> users) {
+  }
+
+  @Test
+  public void nullValuesRemoveTheirEntries() throws Exception {
+    this.entries.put(key("a"), "stale");
+    this.entries.put(key("b"), "stale");
+
+    final Map<String, String> users = new LinkedHashMap<String, String>();
+    users.put("a", "alice");
+    users.put("b", null);
+    this.cacheValues(CachePutPolicy.DEFAULT, users);
+
+    assertEquals("alice", this.entries.get(key("a")));
+    assertFalse(this.entries.containsKey(key("b")));
+  }
+
+  @Test
+  public void excludedValuesRemoveTheirEntries() throws Exception {
+    this.entries.put(key("a"), "stale");
+    final CacheConditionFilter conditionFilter = new CacheConditionFilter(null, new CachePredicate() {
+      @Override
+      public boolean test(CacheInvocationParameter[] parameters, Object value) {
+        return "bob".equals(value);
+      }
+    });
+
+    final Map<String, String> users = new LinkedHashMap<String, String>();
+    users.put("a", "bob");
+    users.put("b", "carol");
+    this.cacheValues(new CachePutPolicy(null, null, conditionFilter, null), users);
+
+    assertFalse(this.entries.containsKey(key("a")));
+    assertEquals("carol", this.entries.get(key("b")));
+  }
+
+  @Test
+  public void valuesAreStoredWithTheirTimeToLive() throws Exception {
+    final CacheTimeToLiveExtractor timeToLiveExtractor = new CacheTimeToLiveExtractor() {
+      @Override
+      public long getTimeToLiveMillis(Object value) {
+        return 60000L;
+      }
+    };
+
+    final long before = System.currentTimeMillis();
+    this.cacheValues(new CachePutPolicy(null, null, null, timeToLiveExtractor), Collections.singletonMap("a", "alice"));
+
+    final Object cached = this.entries.get(key("a"));
+    assertTrue(cached instanceof CacheValueHolder);
+    final CacheValueHolder holder = (CacheValueHolder) cached;
+    assertEquals("alice", holder.getValue());
+    assertTrue(holder.getExpiresMillis() >= before + 60000L);
+  }
+
+  private void cacheValues(CachePutPolicy policy, Map<String, String> users) throws Exception {
+    final Method method = this.getClass().getMethod("saveUsers", Map.class);
+    final BulkCachePut annotation = method.getAnnotation(BulkCachePut.class);
+    final CacheMethodDetails<BulkCachePut> cacheMethodDetails = new CacheMethodDetailsImpl<BulkCachePut>(method,
+        Collections.<Annotation>singleton(annotation), annotation, "users");
+    final CacheParameterDetails valueParameter = new CacheParameterDetails(Map.class,
+        Collections.<Annotation>emptySet(), 0);
+    final BulkCachePutMethodDetails methodDetails = new BulkCachePutMethodDetails(cacheMethodDetails,
+        new FixedCacheResolver(this.cache), new DefaultCacheKeyGenerator(),
+        Collections.singletonList(valueParameter), Collections.<CacheParameterDetails>emptyList(),
+        valueParameter, policy);
+
+    final AbstractInternalCacheKeyInvocationContext<Object[], BulkCachePut> context =
+        new AbstractInternalCacheKeyInvocationContext<Object[], BulkCachePut>(methodDetails, new Object[]{users}) {
+          @Override
+          protected Object[] getParameters(Object[] invocation) {
+            return invocation;
+          }
+        };
+    this.interceptor.cacheValues(context, methodDetails);
+  }
+
+  private static DefaultGeneratedCacheKey key(String element) {
+    return new DefaultGeneratedCacheKey(new Object[]{element});
+  }
+
+  private static final class FixedCacheResolver implements CacheResolver {
+    private final Cache<Object, Object> cache;
+
+    private FixedCacheResolver(Cache<Object, Object> cache) {
+      this.cache = cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> Cache<K, V> resolveCache(CacheInvocationContext<? extends Annotation> cacheInvocationContext) {
+      return (Cache<K, V>) this.cache;
+    }
+  }
+}
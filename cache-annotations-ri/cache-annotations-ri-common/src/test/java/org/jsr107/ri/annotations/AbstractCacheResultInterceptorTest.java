@@ -0,0 +1,164 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.CacheResult;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AbstractCacheResultInterceptor}
+ */
+public class AbstractCacheResultInterceptorTest {
+  private final Map<Object, Object> entries = new HashMap<Object, Object>();
+  private final Cache<Object, Object> cache = InMemoryCache.create("results", this.entries);
+  private final DefaultGeneratedCacheKey key = new DefaultGeneratedCacheKey(new Object[]{"id"});
+  private volatile Object computed;
+
+  private final AbstractCacheResultInterceptor<Object[]> interceptor = new AbstractCacheResultInterceptor<Object[]>() {
+    @Override
+    protected Object proceed(Object[] invocation) {
+      return computed;
+    }
+  };
+
+  @CacheResult(cacheName = "results")
+  public String find(String id) {
+    return id;
+  }
+
+  @Test
+  public void refreshStoresTheRecomputedValue() throws Throwable {
+    this.entries.put(this.key, new CacheValueHolder("old", 0L, 1L, 0L, 0L, null));
+    this.computed = "new";
+    this.refresh();
+
+    assertEquals("new", ((CacheValueHolder) this.entries.get(this.key)).getValue());
+  }
+
+  @Test
+  public void refreshWithAnExcludedValueDropsTheEntry() throws Throwable {
+    this.entries.put(this.key, new CacheValueHolder("old", 0L, 1L, 0L, 0L, null));
+    this.computed = "excluded";
+    this.refresh();
+
+    assertFalse(this.entries.containsKey(this.key));
+  }
+
+  @Test
+  public void refreshWithANullValueDropsTheEntry() throws Throwable {
+    this.entries.put(this.key, new CacheValueHolder("old", 0L, 1L, 0L, 0L, null));
+    this.computed = null;
+    this.refresh();
+
+    assertFalse(this.entries.containsKey(this.key));
+  }
+
+  /**
+   * Run the intercepted method the way a background refresh of the entry does
+   */
+  private void refresh() throws Throwable {
+    final Method method = this.getClass().getMethod("find", String.class);
+    final CacheResult annotation = method.getAnnotation(CacheResult.class);
+    final CacheMethodDetails<CacheResult> cacheMethodDetails = new CacheMethodDetailsImpl<CacheResult>(method,
+        Collections.<Annotation>singleton(annotation), annotation, "results");
+    final CacheParameterDetails idParameter = new CacheParameterDetails(String.class,
+        Collections.<Annotation>emptySet(), 0);
+    final CacheConditionFilter conditionFilter = new CacheConditionFilter(null, new CachePredicate() {
+      @Override
+      public boolean test(CacheInvocationParameter[] parameters, Object value) {
+        return "excluded".equals(value);
+      }
+    });
+    final CacheResultMethodDetails methodDetails = new CacheResultMethodDetails(cacheMethodDetails,
+        new FixedCacheResolver(this.cache), null, new DefaultCacheKeyGenerator(),
+        Collections.singletonList(idParameter), Collections.singletonList(idParameter),
+        new CacheResultPolicy(1000L, null, null, null, null, null, conditionFilter, null));
+    final AbstractInternalCacheKeyInvocationContext<Object[], CacheResult> context =
+        new AbstractInternalCacheKeyInvocationContext<Object[], CacheResult>(methodDetails, new Object[]{"id"}) {
+          @Override
+          protected Object[] getParameters(Object[] invocation) {
+            return invocation;
+          }
+        };
+    final CacheContextSource<Object[]> contextSource = new CacheContextSource<Object[]>() {
+      @Override
+      public InternalCacheKeyInvocationContext<? extends Annotation> getCacheKeyInvocationContext(Object[] invocation) {
+        return context;
+      }
+
+      @Override
+      public InternalCacheInvocationContext<? extends Annotation> getCacheInvocationContext(Object[] invocation) {
+        return context;
+      }
+
+      @Override
+      public StaticCacheInvocationContext<? extends Annotation> getMethodDetails(Method method, Class<?> targetClass) {
+        return methodDetails;
+      }
+    };
+
+    final CountDownLatch done = new CountDownLatch(1);
+    final Throwable[] failure = new Throwable[1];
+    assertTrue(CacheRefresher.getInstance().refresh("results", this.key, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          interceptor.cacheResult(contextSource, new Object[]{"id"});
+        } catch (Throwable t) {
+          failure[0] = t;
+        } finally {
+          done.countDown();
+        }
+      }
+    }));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+  }
+
+  private static final class FixedCacheResolver implements CacheResolver {
+    private final Cache<Object, Object> cache;
+
+    private FixedCacheResolver(Cache<Object, Object> cache) {
+      this.cache = cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> Cache<K, V> resolveCache(CacheInvocationContext<? extends Annotation> cacheInvocationContext) {
+      return (Cache<K, V>) this.cache;
+    }
+  }
+}
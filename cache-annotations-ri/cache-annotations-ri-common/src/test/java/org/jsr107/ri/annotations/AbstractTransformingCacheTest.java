@@ -0,0 +1,69 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AbstractTransformingCache}, through {@link CodecCache}
+ */
+public class AbstractTransformingCacheTest {
+  private final Map<Object, Object> entries = new HashMap<Object, Object>();
+  private final Cache<Object, Object> cache =
+      new CodecCache<Object, Object>(InMemoryCache.create("cache", this.entries), new CompactBinaryCodec());
+
+  @Test
+  public void writesStoreTheEncodedFormAndReadsDecodeIt() {
+    this.cache.put("a", "alice");
+    this.cache.putAll(Collections.singletonMap("b", 2L));
+    assertTrue(this.cache.putIfAbsent("c", "carol"));
+
+    assertTrue(this.entries.get("a") instanceof EncodedCacheValue);
+    assertTrue(this.entries.get("b") instanceof EncodedCacheValue);
+    assertEquals("alice", this.cache.get("a"));
+    assertEquals(2L, this.cache.get("b"));
+    assertEquals("carol", this.cache.getAll(Collections.singleton("c")).get("c"));
+  }
+
+  @Test
+  public void valuesStoredBeforeTheTransformationAreReturnedAsTheyAre() {
+    this.entries.put("a", "plain");
+    assertEquals("plain", this.cache.get("a"));
+    assertNull(this.cache.get("missing"));
+  }
+
+  @Test
+  public void exceptionsAreRebuiltFromTheirDescriptors() {
+    final Cache<Object, Object> exceptionCache =
+        new CompactExceptionCache<Object, Object>(InMemoryCache.create("exceptions", this.entries), false);
+    exceptionCache.put("a", new IllegalStateException("broken"));
+
+    assertTrue(this.entries.get("a") instanceof CachedExceptionDescriptor);
+    final Object rebuilt = exceptionCache.get("a");
+    assertTrue(rebuilt instanceof IllegalStateException);
+    assertEquals("broken", ((IllegalStateException) rebuilt).getMessage());
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ByteBufferIndex}
+ */
+public class ByteBufferIndexTest {
+  //Each entry is the key length followed by a four byte key
+  private static final int ENTRY_BYTES = 8;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(4096 * ENTRY_BYTES);
+  private final ByteBufferIndex index = new ByteBufferIndex(this.buffer, 0, 4);
+
+  @Test
+  public void removeShiftsBackCollidingSlots() {
+    //Home slot 1 for the first three keys, the fourth probes past them from home slot 2
+    final int[] hashes = {1, 65, 129, 2};
+    for (int i = 0; i < hashes.length; i++) {
+      this.index.insert(hashes[i], this.write(i, i));
+    }
+
+    this.index.remove(this.index.find(1, key(0)));
+    assertEquals(-1, this.index.find(1, key(0)));
+    for (int i = 1; i < hashes.length; i++) {
+      assertEquals(i * ENTRY_BYTES, this.index.offsetAt(this.index.find(hashes[i], key(i))));
+    }
+    assertEquals(3, this.index.size());
+  }
+
+  @Test
+  public void removeShiftsBackAcrossTheEndOfTheTable() {
+    //Home slot 63, the last of the initial table, so the collisions wrap to slots 0 and 1
+    final int[] hashes = {63, 127, 191, 0};
+    for (int i = 0; i < hashes.length; i++) {
+      this.index.insert(hashes[i], this.write(i, i));
+    }
+
+    this.index.remove(this.index.find(63, key(0)));
+    for (int i = 1; i < hashes.length; i++) {
+      assertEquals(i * ENTRY_BYTES, this.index.offsetAt(this.index.find(hashes[i], key(i))));
+    }
+
+    this.index.remove(this.index.find(127, key(1)));
+    assertEquals(2 * ENTRY_BYTES, this.index.offsetAt(this.index.find(191, key(2))));
+    assertEquals(3 * ENTRY_BYTES, this.index.offsetAt(this.index.find(0, key(3))));
+    assertEquals(2, this.index.size());
+  }
+
+  @Test
+  public void randomInsertsAndRemovesMatchAMap() {
+    final Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+    final Random random = new Random(7);
+    for (int i = 0; i < 100000; i++) {
+      final int key = random.nextInt(2000);
+      //Few distinct hashes so removals have long probe sequences to repair
+      final int hash = key % 97;
+      final int slot = this.index.find(hash, key(key));
+      if (random.nextBoolean()) {
+        if (slot < 0) {
+          this.index.insert(hash, this.write(key, key));
+          expected.put(key, key * ENTRY_BYTES);
+        }
+      } else if (slot >= 0) {
+        assertEquals(key * ENTRY_BYTES, this.index.remove(slot));
+        expected.remove(key);
+      }
+    }
+
+    assertEquals(expected.size(), this.index.size());
+    for (int key = 0; key < 2000; key++) {
+      final int slot = this.index.find(key % 97, key(key));
+      assertEquals(expected.containsKey(key), slot >= 0);
+      if (slot >= 0) {
+        assertEquals((int) expected.get(key), this.index.offsetAt(slot));
+        assertEquals(slot, this.index.findOffset(key % 97, key * ENTRY_BYTES));
+      }
+    }
+    assertTrue(expected.size() > 0);
+  }
+
+  private int write(int entry, int key) {
+    final int offset = entry * ENTRY_BYTES;
+    this.buffer.putInt(offset, 4);
+    this.buffer.putInt(offset + 4, key);
+    return offset;
+  }
+
+  private static byte[] key(int key) {
+    return ByteBuffer.allocate(4).putInt(key).array();
+  }
+}
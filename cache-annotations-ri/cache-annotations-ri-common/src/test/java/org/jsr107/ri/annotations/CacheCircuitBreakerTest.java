@@ -0,0 +1,170 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CacheCircuitBreaker} and the fallbacks of {@link ResilientCache}
+ */
+public class CacheCircuitBreakerTest {
+
+  @Test
+  public void opensAfterConsecutiveFailuresAndSkipsOperations() {
+    final CacheCircuitBreaker breaker = new CacheCircuitBreaker("cache", 0, 0, 2, 60000);
+    assertTrue(breaker.allowRequest());
+    breaker.onFailure();
+    breaker.onSuccess(0);
+    breaker.onFailure();
+    assertEquals("CLOSED", breaker.getState());
+
+    breaker.onFailure();
+    assertEquals("OPEN", breaker.getState());
+    assertFalse(breaker.allowRequest());
+    assertEquals(1, breaker.getOpenCount());
+    assertEquals(1, breaker.getShortCircuitCount());
+  }
+
+  @Test
+  public void probeClosesTheCircuitWhenItSucceeds() {
+    final CacheCircuitBreaker breaker = openBreaker();
+    assertTrue(breaker.allowRequest());
+    assertEquals("HALF_OPEN", breaker.getState());
+    assertFalse(breaker.allowRequest());
+
+    breaker.onSuccess(0);
+    assertEquals("CLOSED", breaker.getState());
+    assertTrue(breaker.allowRequest());
+  }
+
+  @Test
+  public void probeReopensTheCircuitWhenItFails() {
+    final CacheCircuitBreaker breaker = openBreaker();
+    assertTrue(breaker.allowRequest());
+    breaker.onFailure();
+    assertEquals("OPEN", breaker.getState());
+    assertEquals(2, breaker.getOpenCount());
+  }
+
+  @Test
+  public void rejectedProbeLetsTheNextOperationProbe() {
+    final CacheCircuitBreaker breaker = openBreaker();
+    assertTrue(breaker.allowRequest());
+    breaker.onRejected();
+    assertEquals("OPEN", breaker.getState());
+    assertTrue(breaker.allowRequest());
+    assertEquals("HALF_OPEN", breaker.getState());
+  }
+
+  @Test
+  public void onlyOneConcurrentOperationProbes() throws Exception {
+    for (int round = 0; round < 50; round++) {
+      final CacheCircuitBreaker breaker = openBreaker();
+      final CountDownLatch start = new CountDownLatch(1);
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < 8; i++) {
+          results.add(executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+              start.await();
+              return breaker.allowRequest();
+            }
+          }));
+        }
+        start.countDown();
+        int allowed = 0;
+        for (final Future<Boolean> result : results) {
+          if (result.get()) {
+            allowed++;
+          }
+        }
+        assertEquals(1, allowed);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  @Test
+  public void slowCallsCountAsFailures() {
+    final CacheCircuitBreaker breaker = new CacheCircuitBreaker("cache", 0, 10, 2, 60000);
+    breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(5));
+    breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+    assertEquals("CLOSED", breaker.getState());
+    breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+
+    assertEquals("OPEN", breaker.getState());
+    assertEquals(2, breaker.getSlowCallCount());
+    assertEquals(1, breaker.getSuccessCount());
+  }
+
+  @Test
+  public void readsPastTheDeadlineFallBackToAMiss() {
+    final CacheCircuitBreaker breaker = new CacheCircuitBreaker("cache", 50, 0, 1, 60000);
+    final Cache<Object, Object> slowCache = new ForwardingCache<Object, Object>(
+        InMemoryCache.create("cache", new HashMap<Object, Object>())) {
+      @Override
+      public Object get(Object key) {
+        try {
+          Thread.sleep(5000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return "late";
+      }
+    };
+    final ResilientCache<Object, Object> cache = new ResilientCache<Object, Object>(slowCache, breaker);
+
+    final long start = System.nanoTime();
+    assertNull(cache.get("key"));
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+    assertEquals(1, breaker.getTimeoutCount());
+    assertEquals("OPEN", breaker.getState());
+
+    //Skipped while open, without waiting for the deadline
+    assertNull(cache.get("key"));
+    assertEquals(1, breaker.getShortCircuitCount());
+  }
+
+  /**
+   * @return A breaker that is open and lets a probe through right away
+   */
+  private static CacheCircuitBreaker openBreaker() {
+    final CacheCircuitBreaker breaker = new CacheCircuitBreaker("cache", 0, 0, 1, 0);
+    breaker.onFailure();
+    assertEquals("OPEN", breaker.getState());
+    return breaker;
+  }
+}
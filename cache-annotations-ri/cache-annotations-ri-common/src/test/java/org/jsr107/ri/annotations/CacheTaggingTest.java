@@ -0,0 +1,69 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationParameter;
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CacheTagging}
+ */
+public class CacheTaggingTest {
+  private final Map<Object, Object> entries = new HashMap<Object, Object>();
+  private final Cache<Object, Object> cache = InMemoryCache.create("cache", this.entries);
+  private final CacheTagging tagging = new CacheTagging(new String[]{"tenant"}, new int[]{0});
+  private final CacheInvocationParameter[] parameters = {
+      new CacheInvocationParameterImpl(new CacheParameterDetails(String.class, Collections.<Annotation>emptySet(), 0),
+          "acme")};
+
+  @Test
+  public void generationsAreStableUntilInvalidated() {
+    final long[] generations = this.tagging.getGenerations(this.cache, this.parameters);
+    assertArrayEquals(generations, this.tagging.getGenerations(this.cache, this.parameters));
+
+    this.cache.putAll(this.tagging.createNextGenerations(this.parameters));
+    assertFalse(isCurrent(generations, this.tagging.getGenerations(this.cache, this.parameters)));
+  }
+
+  @Test
+  public void missingGenerationNeverRevivesOlderEntries() {
+    final long[] written = this.tagging.getGenerations(this.cache, this.parameters);
+    this.cache.putAll(this.tagging.createNextGenerations(this.parameters));
+
+    //The generation entry is evicted or expires like any other entry
+    this.entries.remove(new CacheTagKey("tenant", "acme"));
+    final long[] recreated = this.tagging.getGenerations(this.cache, this.parameters);
+    assertFalse(isCurrent(written, recreated));
+    assertNotEquals(0L, recreated[0]);
+    assertTrue(this.entries.containsKey(new CacheTagKey("tenant", "acme")));
+  }
+
+  private static boolean isCurrent(long[] stamp, long[] generations) {
+    return CacheTagging.isCurrent(new CacheValueHolder("value", 0L, 0L, 0L, 0L, stamp), generations);
+  }
+}
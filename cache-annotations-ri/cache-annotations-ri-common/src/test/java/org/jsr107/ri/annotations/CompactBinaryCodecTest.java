@@ -0,0 +1,171 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.CacheException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CompactBinaryCodec}
+ */
+public class CompactBinaryCodecTest {
+  private final CompactBinaryCodec codec = new CompactBinaryCodec();
+
+  @Test
+  public void scalarsRoundTrip() {
+    assertNull(this.roundTrip(null));
+    for (final Object value : new Object[]{"", "plain", "\u00e9t\u00e9 \u2603", 0, -1, Integer.MIN_VALUE,
+        Integer.MAX_VALUE, 0L, Long.MIN_VALUE, Long.MAX_VALUE, true, false, 1.5d, Double.NaN, -0.25f,
+        (short) -7, (byte) 3, 'x'}) {
+      final Object decoded = this.roundTrip(value);
+      assertEquals(value, decoded);
+      assertSame(value.getClass(), decoded.getClass());
+    }
+    assertArrayEquals(new byte[]{1, -2, 3}, (byte[]) this.roundTrip(new byte[]{1, -2, 3}));
+  }
+
+  @Test
+  public void collectionsRoundTripWithTheirType() {
+    final ArrayList<Object> list = new ArrayList<Object>(Arrays.<Object>asList("a", 1, null, 2L));
+    final HashSet<Object> hashSet = new HashSet<Object>(Arrays.<Object>asList("a", "b"));
+    final LinkedHashSet<Object> linkedHashSet = new LinkedHashSet<Object>(Arrays.<Object>asList("z", "a", "m"));
+    final HashMap<Object, Object> hashMap = new HashMap<Object, Object>();
+    hashMap.put("a", list);
+    hashMap.put(1, null);
+    final LinkedHashMap<Object, Object> linkedHashMap = new LinkedHashMap<Object, Object>();
+    linkedHashMap.put("z", 1);
+    linkedHashMap.put("a", hashSet);
+
+    for (final Object value : new Object[]{list, hashSet, linkedHashSet, hashMap, linkedHashMap}) {
+      final Object decoded = this.roundTrip(value);
+      assertEquals(value, decoded);
+      assertSame(value.getClass(), decoded.getClass());
+    }
+    assertEquals(new ArrayList<Object>(linkedHashSet),
+        new ArrayList<Object>((LinkedHashSet<?>) this.roundTrip(linkedHashSet)));
+    assertEquals(new ArrayList<Object>(linkedHashMap.keySet()),
+        new ArrayList<Object>(((LinkedHashMap<?, ?>) this.roundTrip(linkedHashMap)).keySet()));
+  }
+
+  @Test
+  public void valueHoldersRoundTrip() {
+    final CacheValueHolder plain = new CacheValueHolder("value", 1000L, 2000L, 3000L, 400L, null);
+    final CacheValueHolder decodedPlain = (CacheValueHolder) this.roundTrip(plain);
+    assertHolderEquals(plain, decodedPlain);
+    assertNull(decodedPlain.getTagGenerations());
+
+    final CacheValueHolder tagged =
+        new CacheValueHolder(new ArrayList<Object>(Arrays.asList(1, 2)), 1L, 0L, 0L, 0L, new long[]{-5L, 0L, 7L});
+    assertHolderEquals(tagged, (CacheValueHolder) this.roundTrip(tagged));
+
+    final CacheValueHolder noTags = new CacheValueHolder("value", 1L, 0L, 0L, 0L, new long[0]);
+    assertArrayEquals(new long[0], ((CacheValueHolder) this.roundTrip(noTags)).getTagGenerations());
+  }
+
+  @Test
+  public void otherTypesFallBackToSerializationEvenWhenNested() {
+    final TreeMap<String, Integer> treeMap = new TreeMap<String, Integer>();
+    treeMap.put("b", 2);
+    treeMap.put("a", 1);
+    final List<Object> list = new ArrayList<Object>(Arrays.<Object>asList(new Date(1234L), treeMap,
+        new BigDecimal("1.50"), "after"));
+
+    final Object decoded = this.roundTrip(list);
+    assertEquals(list, decoded);
+    assertSame(TreeMap.class, ((List<?>) decoded).get(1).getClass());
+    assertEquals("after", ((List<?>) decoded).get(3));
+  }
+
+  @Test
+  public void generatedKeysAreEncodedWithoutJavaSerialization() {
+    final DefaultGeneratedCacheKey key = new DefaultGeneratedCacheKey(new Object[]{"user", 42L, null});
+    final byte[] encoded = this.codec.encode(key);
+
+    assertTrue(encoded.length < 16);
+    assertEquals(key, this.codec.decode(encoded));
+  }
+
+  @Test
+  public void truncatedInputIsRejected() {
+    final Map<Object, Object> value = new LinkedHashMap<Object, Object>();
+    value.put("key", "a longer value");
+    value.put("list", new ArrayList<Object>(Arrays.<Object>asList(1L, new Date(1L))));
+    final byte[] encoded = this.codec.encode(value);
+    for (int length = 0; length < encoded.length; length++) {
+      assertRejected(Arrays.copyOf(encoded, length));
+    }
+  }
+
+  @Test
+  public void corruptInputIsRejected() {
+    //Unknown tag
+    assertRejected(new byte[]{(byte) 200});
+    //Length above Integer.MAX_VALUE
+    assertRejected(new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+    //Variable length number longer than 64 bits
+    assertRejected(new byte[]{2, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+    //Serialized payload that is not a Java serialization stream
+    assertRejected(new byte[]{18, 2, 1, 2});
+  }
+
+  @Test(expected = CacheException.class)
+  public void valuesThatCannotBeSerializedAreRejected() {
+    this.codec.encode(new Object());
+  }
+
+  private Object roundTrip(Object value) {
+    return this.codec.decode(this.codec.encode(value));
+  }
+
+  private void assertRejected(byte[] data) {
+    try {
+      this.codec.decode(data);
+      fail("Decoded " + Arrays.toString(data));
+    } catch (CacheException e) {
+      //expected
+    }
+  }
+
+  private static void assertHolderEquals(CacheValueHolder expected, CacheValueHolder actual) {
+    assertEquals(expected.getValue(), actual.getValue());
+    assertEquals(expected.getCreatedMillis(), actual.getCreatedMillis());
+    assertEquals(expected.getRefreshAtMillis(), actual.getRefreshAtMillis());
+    assertEquals(expected.getExpiresMillis(), actual.getExpiresMillis());
+    assertEquals(expected.getComputeNanos(), actual.getComputeNanos());
+    assertArrayEquals(expected.getTagGenerations(), actual.getTagGenerations());
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.CacheException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CompressingCacheValueCodec}
+ */
+public class CompressingCacheValueCodecTest {
+  private static final int PLAIN = 0;
+  private static final int DEFLATED = 1;
+
+  private final CompactBinaryCodec delegate = new CompactBinaryCodec();
+  private final CompressingCacheValueCodec codec =
+      new CompressingCacheValueCodec(this.delegate, 64, Deflater.DEFAULT_COMPRESSION);
+
+  @Test
+  public void valuesBelowTheThresholdAreStoredPlain() {
+    final String value = "short";
+    final byte[] encoded = this.codec.encode(value);
+
+    assertEquals(PLAIN, encoded[0]);
+    assertArrayEquals(this.delegate.encode(value), Arrays.copyOfRange(encoded, 1, encoded.length));
+    assertEquals(value, this.codec.decode(encoded));
+  }
+
+  @Test
+  public void compressibleValuesAreDeflated() {
+    final String value = repeat("compressible ", 100);
+    final byte[] encoded = this.codec.encode(value);
+
+    assertEquals(DEFLATED, encoded[0]);
+    assertTrue(encoded.length < this.delegate.encode(value).length);
+    assertEquals(value, this.codec.decode(encoded));
+  }
+
+  @Test
+  public void valuesThatDoNotShrinkAreStoredPlain() {
+    final byte[] value = new byte[4096];
+    new Random(1).nextBytes(value);
+    final byte[] encoded = this.codec.encode(value);
+
+    assertEquals(PLAIN, encoded[0]);
+    assertEquals(this.delegate.encode(value).length + 1, encoded.length);
+    assertArrayEquals(value, (byte[]) this.codec.decode(encoded));
+  }
+
+  @Test
+  public void truncatedInputIsRejected() {
+    final byte[] encoded = this.codec.encode(repeat("compressible ", 100));
+    assertEquals(DEFLATED, encoded[0]);
+    for (int length = 0; length < encoded.length; length++) {
+      assertRejected(Arrays.copyOf(encoded, length));
+    }
+  }
+
+  @Test
+  public void corruptInputIsRejected() {
+    assertRejected(new byte[]{7, 1, 2, 3});
+    assertRejected(new byte[]{DEFLATED, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+    assertRejected(new byte[]{PLAIN, (byte) 200});
+  }
+
+  private void assertRejected(byte[] data) {
+    try {
+      this.codec.decode(data);
+      fail("Decoded " + Arrays.toString(data));
+    } catch (CacheException e) {
+      //expected
+    }
+  }
+
+  private static String repeat(String text, int times) {
+    final StringBuilder builder = new StringBuilder(text.length() * times);
+    for (int i = 0; i < times; i++) {
+      builder.append(text);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,162 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link DeferredCacheOperations}
+ */
+public class DeferredCacheOperationsTest {
+  private final List<String> calls = new ArrayList<String>();
+
+  @Test
+  public void keepsOnlyTheLastOperationPerKey() {
+    final Cache<Object, Object> cache = this.recordingCache("cache");
+    final DeferredCacheOperations operations = new DeferredCacheOperations();
+    operations.put(cache, "a", 1);
+    operations.put(cache, "a", 2);
+    operations.put(cache, "b", 1);
+    operations.remove(cache, "b");
+    operations.remove(cache, "c");
+    operations.put(cache, "c", 3);
+    operations.flush();
+
+    assertEquals(Arrays.asList("cache.removeAll([b])", "cache.putAll({a=2, c=3})"), this.calls);
+    assertTrue(operations.isEmpty());
+  }
+
+  @Test
+  public void coalescesAcrossWrappersOfTheSameCache() {
+    //Every annotated method resolves its own wrapper of the cache
+    final Cache<Object, Object> first = this.recordingCache("cache");
+    final Cache<Object, Object> second = this.recordingCache("cache");
+    final DeferredCacheOperations operations = new DeferredCacheOperations();
+    operations.put(first, "a", 1);
+    operations.remove(second, "a");
+    operations.putAll(second, Collections.singletonMap("b", 2));
+    operations.flush();
+
+    assertEquals(Arrays.asList("cache.removeAll([a])", "cache.putAll({b=2})"), this.calls);
+  }
+
+  @Test
+  public void removeAllDiscardsEarlierOperations() {
+    final Cache<Object, Object> cache = this.recordingCache("cache");
+    final Cache<Object, Object> other = this.recordingCache("other");
+    final DeferredCacheOperations operations = new DeferredCacheOperations();
+    operations.put(cache, "a", 1);
+    operations.removeAll(cache, new LinkedHashSet<Object>(Arrays.asList("b", "c")));
+    operations.put(other, "x", 1);
+    operations.removeAll(cache);
+    operations.put(cache, "d", 4);
+    operations.flush();
+
+    assertEquals(Arrays.asList("cache.removeAll()", "cache.putAll({d=4})", "other.putAll({x=1})"), this.calls);
+  }
+
+  @Test
+  public void exposesPendingOperationsPerKey() {
+    final Cache<Object, Object> cache = this.recordingCache("cache");
+    final DeferredCacheOperations operations = new DeferredCacheOperations();
+    operations.put(cache, "a", 1);
+    operations.remove(cache, "b");
+
+    assertTrue(operations.isPending("cache", "a"));
+    assertEquals(1, operations.getPendingValue("cache", "a"));
+    assertTrue(operations.isPending("cache", "b"));
+    assertNull(operations.getPendingValue("cache", "b"));
+    assertFalse(operations.isPending("cache", "c"));
+    assertFalse(operations.isPending("other", "a"));
+
+    operations.removeAll(cache);
+    assertTrue(operations.isPending("cache", "c"));
+    assertNull(operations.getPendingValue("cache", "a"));
+  }
+
+  @Test
+  public void discardDropsEverything() {
+    final Cache<Object, Object> cache = this.recordingCache("cache");
+    final DeferredCacheOperations operations = new DeferredCacheOperations();
+    operations.put(cache, "a", 1);
+    operations.removeAll(cache);
+    operations.discard();
+    operations.flush();
+
+    assertTrue(operations.isEmpty());
+    assertTrue(this.calls.isEmpty());
+  }
+
+  @Test
+  public void failureOnOneCacheStillFlushesTheOthers() {
+    final Cache<Object, Object> failing = this.recordingCache("failing");
+    final Cache<Object, Object> cache = this.recordingCache("cache");
+    final DeferredCacheOperations operations = new DeferredCacheOperations();
+    operations.remove(failing, "fail");
+    operations.put(cache, "a", 1);
+    operations.flush();
+
+    assertEquals(Arrays.asList("failing.removeAll([fail])", "cache.putAll({a=1})"), this.calls);
+  }
+
+  /**
+   * A cache that records the bulk operations applied to it, a removal of the key "fail" throws
+   */
+  @SuppressWarnings("unchecked")
+  private Cache<Object, Object> recordingCache(final String name) {
+    return (Cache<Object, Object>) Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class<?>[]{Cache.class},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("getName")) {
+              return name;
+            }
+            final String argument;
+            if (args == null) {
+              argument = "";
+            } else if (args[0] instanceof Map) {
+              argument = new LinkedHashMap<Object, Object>((Map<?, ?>) args[0]).toString();
+            } else {
+              argument = new ArrayList<Object>((Set<?>) args[0]).toString();
+            }
+            calls.add(name + "." + method.getName() + "(" + argument + ")");
+            if (argument.contains("fail")) {
+              throw new IllegalStateException("Failed");
+            }
+            return null;
+          }
+        });
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link FrequencySketch}
+ */
+public class FrequencySketchTest {
+
+  @Test
+  public void countsIncrementsUpToFifteen() {
+    final FrequencySketch sketch = new FrequencySketch(1024);
+    final int hash = FrequencySketch.spread("key".hashCode());
+    assertEquals(0, sketch.frequency(hash));
+    for (int i = 1; i <= 20; i++) {
+      sketch.increment(hash);
+      assertEquals(Math.min(i, 15), sketch.frequency(hash));
+    }
+  }
+
+  @Test
+  public void resetHalvesCounters() {
+    final FrequencySketch sketch = new FrequencySketch(1024);
+    final int hash = FrequencySketch.spread(42);
+    for (int i = 0; i < 10; i++) {
+      sketch.increment(hash);
+    }
+    sketch.reset();
+    assertEquals(5, sketch.frequency(hash));
+  }
+
+  @Test
+  public void agesOutOldActivity() {
+    final FrequencySketch sketch = new FrequencySketch(64);
+    final int hot = FrequencySketch.spread(-1);
+    for (int i = 0; i < 15; i++) {
+      sketch.increment(hot);
+    }
+    //The sample period is ten increments per counter word, other keys push it past several resets
+    for (int i = 0; i < 64 * 10 * 4; i++) {
+      sketch.increment(FrequencySketch.spread(i));
+    }
+    assertTrue(sketch.frequency(hot) < 15);
+  }
+
+  @Test
+  public void rarelyOverestimatesUnseenKeys() {
+    final int capacity = 10000;
+    final FrequencySketch sketch = new FrequencySketch(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sketch.increment(FrequencySketch.spread(i));
+    }
+    int overestimated = 0;
+    for (int i = capacity; i < 2 * capacity; i++) {
+      if (sketch.frequency(FrequencySketch.spread(i)) > 0) {
+        overestimated++;
+      }
+    }
+    assertTrue("Overestimated " + overestimated + " unseen keys", overestimated < capacity / 10);
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import javax.cache.Cache;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Map backed {@link Cache} for tests, supporting the single entry and bulk reads, writes and removes
+ */
+final class InMemoryCache {
+  private InMemoryCache() {
+  }
+
+  /**
+   * @param name    The name of the cache
+   * @param entries The map holding the entries of the cache
+   * @return A cache reading and writing the map
+   */
+  @SuppressWarnings("unchecked")
+  static Cache<Object, Object> create(final String name, final Map<Object, Object> entries) {
+    return (Cache<Object, Object>) Proxy.newProxyInstance(InMemoryCache.class.getClassLoader(),
+        new Class<?>[]{Cache.class}, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            final String methodName = method.getName();
+            if (methodName.equals("getName")) {
+              return name;
+            } else if (methodName.equals("get")) {
+              return entries.get(args[0]);
+            } else if (methodName.equals("getAll")) {
+              final Map<Object, Object> found = new LinkedHashMap<Object, Object>();
+              for (final Object key : (Set<?>) args[0]) {
+                if (entries.containsKey(key)) {
+                  found.put(key, entries.get(key));
+                }
+              }
+              return found;
+            } else if (methodName.equals("containsKey")) {
+              return entries.containsKey(args[0]);
+            } else if (methodName.equals("put")) {
+              entries.put(args[0], args[1]);
+              return null;
+            } else if (methodName.equals("putAll")) {
+              entries.putAll((Map<?, ?>) args[0]);
+              return null;
+            } else if (methodName.equals("putIfAbsent")) {
+              if (entries.containsKey(args[0])) {
+                return false;
+              }
+              entries.put(args[0], args[1]);
+              return true;
+            } else if (methodName.equals("remove") && args.length == 1) {
+              return entries.remove(args[0]) != null;
+            } else if (methodName.equals("removeAll")) {
+              if (args == null) {
+                entries.clear();
+              } else {
+                entries.keySet().removeAll((Set<?>) args[0]);
+              }
+              return null;
+            }
+            throw new UnsupportedOperationException(methodName);
+          }
+        });
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link JtaCacheTransactionSupport}
+ */
+public class JtaCacheTransactionSupportTest {
+  private final Map<Object, Object> resources = new HashMap<Object, Object>();
+  private final Map<Object, Object> entries = new HashMap<Object, Object>();
+  private final Cache<Object, Object> cache = InMemoryCache.create("cache", this.entries);
+  private Object transactionKey = new Object();
+  private int status = Status.STATUS_ACTIVE;
+  private Synchronization synchronization;
+
+  private final JtaCacheTransactionSupport support = new JtaCacheTransactionSupport(
+      (TransactionSynchronizationRegistry) Proxy.newProxyInstance(this.getClass().getClassLoader(),
+          new Class<?>[]{TransactionSynchronizationRegistry.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+              final String name = method.getName();
+              if (name.equals("getTransactionKey")) {
+                return transactionKey;
+              } else if (name.equals("getTransactionStatus")) {
+                return status;
+              } else if (name.equals("getResource")) {
+                return resources.get(args[0]);
+              } else if (name.equals("putResource")) {
+                resources.put(args[0], args[1]);
+                return null;
+              } else if (name.equals("registerInterposedSynchronization")) {
+                synchronization = (Synchronization) args[0];
+                return null;
+              }
+              throw new UnsupportedOperationException(name);
+            }
+          }));
+
+  @Test
+  public void noTransactionAppliesImmediately() {
+    this.transactionKey = null;
+    assertNull(this.support.getDeferredCacheOperations());
+  }
+
+  @Test
+  public void activeTransactionFlushesOnCommit() {
+    final DeferredCacheOperations operations = this.support.getDeferredCacheOperations();
+    assertSame(operations, this.support.getDeferredCacheOperations());
+    operations.put(this.cache, "key", "value");
+    assertTrue(this.entries.isEmpty());
+
+    this.synchronization.afterCompletion(Status.STATUS_COMMITTED);
+    assertEquals("value", this.entries.get("key"));
+  }
+
+  @Test
+  public void activeTransactionDiscardsOnRollback() {
+    this.support.getDeferredCacheOperations().put(this.cache, "key", "value");
+    this.synchronization.afterCompletion(Status.STATUS_ROLLEDBACK);
+    assertTrue(this.entries.isEmpty());
+  }
+
+  @Test
+  public void rollbackOnlyTransactionNeverApplies() {
+    final DeferredCacheOperations buffered = this.support.getDeferredCacheOperations();
+    buffered.remove(this.cache, "kept");
+    this.entries.put("kept", "value");
+
+    this.status = Status.STATUS_MARKED_ROLLBACK;
+    assertSame(buffered, this.support.getDeferredCacheOperations());
+    this.synchronization.afterCompletion(Status.STATUS_ROLLEDBACK);
+    assertEquals("value", this.entries.get("kept"));
+  }
+
+  @Test
+  public void rollbackOnlyTransactionWithoutBufferDropsOperations() {
+    this.status = Status.STATUS_MARKED_ROLLBACK;
+    final DeferredCacheOperations operations = this.support.getDeferredCacheOperations();
+    assertNotNull(operations);
+    operations.put(this.cache, "key", "value");
+    assertNull(this.synchronization);
+    assertTrue(this.entries.isEmpty());
+  }
+}
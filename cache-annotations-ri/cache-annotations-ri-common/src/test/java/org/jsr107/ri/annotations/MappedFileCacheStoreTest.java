@@ -0,0 +1,165 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link MappedFileCacheStore}
+ */
+public class MappedFileCacheStoreTest {
+  private static final long MAX_BYTES = 1 << 20;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void recoversTheEntriesOfTheLog() throws IOException {
+    final File file = new File(this.folder.getRoot(), "store.log");
+    final MappedFileCacheStore store = new MappedFileCacheStore(file, MAX_BYTES, new CompactBinaryCodec());
+    store.put("kept", "value", 0);
+    store.put("replaced", "old", 0);
+    store.put("replaced", "new", 0);
+    store.put("removed", "value", 0);
+    store.remove("removed");
+    store.put("expired", "value", System.currentTimeMillis() - 1);
+
+    //The file stays locked by the first store, reopen a copy as a restarted process would
+    final MappedFileCacheStore reopened = this.reopenCopy(file);
+    assertEquals("value", reopened.get("kept"));
+    assertEquals("new", reopened.get("replaced"));
+    assertNull(reopened.get("removed"));
+    assertNull(reopened.get("expired"));
+    assertEquals(2, reopened.getEntryCount());
+  }
+
+  @Test
+  public void truncatesTheLogAtACorruptRecord() throws IOException {
+    final File file = new File(this.folder.getRoot(), "store.log");
+    final MappedFileCacheStore store = new MappedFileCacheStore(file, MAX_BYTES, new CompactBinaryCodec());
+    for (int i = 0; i < 100; i++) {
+      store.put(i, "value-" + i, 0);
+    }
+
+    final File copy = new File(this.folder.getRoot(), "copy.log");
+    Files.copy(file.toPath(), copy.toPath());
+    final RandomAccessFile corrupted = new RandomAccessFile(copy, "rw");
+    try {
+      //Inside one of the later records
+      final long position = store.getLogBytes() * 3 / 4;
+      corrupted.seek(position);
+      final int b = corrupted.read();
+      corrupted.seek(position);
+      corrupted.write(b ^ 0x5a);
+    } finally {
+      corrupted.close();
+    }
+
+    final MappedFileCacheStore reopened = new MappedFileCacheStore(copy, MAX_BYTES, new CompactBinaryCodec());
+    assertTrue(reopened.getEntryCount() > 0 && reopened.getEntryCount() < 100);
+    assertEquals("value-0", reopened.get(0));
+    assertNull(reopened.get(99));
+    //Appends continue after the last intact record
+    reopened.put(99, "again", 0);
+    assertEquals("again", reopened.get(99));
+  }
+
+  @Test
+  public void compactsWhenFullAndKeepsTheNewestEntries() throws IOException {
+    final File file = new File(this.folder.getRoot(), "store.log");
+    final MappedFileCacheStore store = new MappedFileCacheStore(file, 1 << 16, new CompactBinaryCodec());
+    for (int i = 0; i < 20000; i++) {
+      store.put(i, "value-" + i, 0);
+      assertEquals("value-" + i, store.get(i));
+    }
+    assertTrue(store.getCompactionCount() > 0);
+    assertTrue(store.getEvictionCount() > 0);
+    assertTrue(store.getLogBytes() <= 1 << 16);
+    assertNull(store.get(0));
+    assertEquals("value-19999", store.get(19999));
+
+    final MappedFileCacheStore reopened = this.reopenCopy(file);
+    assertEquals(store.getEntryCount(), reopened.getEntryCount());
+    assertEquals("value-19999", reopened.get(19999));
+  }
+
+  @Test
+  public void randomWorkloadSurvivesCompactionAndRecovery() throws IOException {
+    final File file = new File(this.folder.getRoot(), "store.log");
+    final MappedFileCacheStore store = new MappedFileCacheStore(file, MAX_BYTES, new CompactBinaryCodec());
+    final Map<Integer, String> expected = new HashMap<Integer, String>();
+    final Random random = new Random(2);
+    for (int i = 0; i < 100000; i++) {
+      final int key = random.nextInt(2000);
+      final int operation = random.nextInt(10);
+      if (operation < 5) {
+        final String value = "v" + key + "-" + i;
+        store.put(key, value, 0);
+        expected.put(key, value);
+      } else if (operation < 6) {
+        store.remove(key);
+        expected.remove(key);
+      } else {
+        final Object value = store.get(key);
+        if (value != null) {
+          assertEquals(expected.get(key), value);
+        }
+      }
+    }
+    assertTrue(store.getCompactionCount() > 0);
+
+    final MappedFileCacheStore reopened = this.reopenCopy(file);
+    for (int key = 0; key < 2000; key++) {
+      assertEquals(store.get(key), reopened.get(key));
+    }
+  }
+
+  @Test
+  public void refusesADirectoryOthersMayWrite() throws IOException {
+    final File directory = this.folder.newFolder("shared");
+    if (!directory.setWritable(true, false)) {
+      return;
+    }
+    try {
+      new MappedFileCacheStore(new File(directory, "store.log"), MAX_BYTES, new CompactBinaryCodec());
+      fail("Opened a store in a world writable directory");
+    } catch (IOException e) {
+      //Expected
+    }
+  }
+
+  private MappedFileCacheStore reopenCopy(File file) throws IOException {
+    final File copy = new File(this.folder.getRoot(), "copy-" + System.nanoTime() + ".log");
+    Files.copy(file.toPath(), copy.toPath());
+    return new MappedFileCacheStore(copy, file.length(), new CompactBinaryCodec());
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link NearCache}
+ */
+public class NearCacheTest {
+  private final Map<Object, Object> entries = new HashMap<Object, Object>();
+  private final OffHeapCacheStore store = new OffHeapCacheStore(16 * 1024, new CompactBinaryCodec());
+  private final Cache<Object, Object> cache =
+      new NearCache<Object, Object>(InMemoryCache.create("cache", this.entries), this.store, 0);
+
+  @Test
+  public void readsAreCopiedIntoTheStore() {
+    final DefaultGeneratedCacheKey key = new DefaultGeneratedCacheKey(new Object[]{"a", 1});
+    this.entries.put(key, "value");
+
+    assertEquals("value", this.cache.get(key));
+    this.entries.remove(key);
+    assertEquals("value", this.cache.get(key));
+  }
+
+  @Test
+  public void keysTheStoreCannotEncodeBypassIt() {
+    final DefaultGeneratedCacheKey key = new DefaultGeneratedCacheKey(new Object[]{new Object()});
+    final Object value = "value";
+
+    this.cache.put(key, value);
+    assertSame(value, this.entries.get(key));
+    assertSame(value, this.cache.get(key));
+    this.cache.remove(key);
+    assertNull(this.cache.get(key));
+  }
+
+  @Test
+  public void valuesTheStoreCannotEncodeDropTheLocalEntry() {
+    final DefaultGeneratedCacheKey key = new DefaultGeneratedCacheKey(new Object[]{"a"});
+    this.cache.put(key, "old");
+    assertEquals("old", this.store.get(key));
+
+    final Object value = new Object();
+    this.cache.put(key, value);
+    assertSame(value, this.entries.get(key));
+    assertNull(this.store.get(key));
+    assertSame(value, this.cache.get(key));
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link OffHeapCacheStore}
+ */
+public class OffHeapCacheStoreTest {
+  //16 segments of the smallest size, so the log of every segment wraps after a few entries
+  private static final long MAX_BYTES = 16 * 1024;
+
+  @Test
+  public void logWrapsAroundAndKeepsTheLatestEntries() {
+    final OffHeapCacheStore store = new OffHeapCacheStore(MAX_BYTES, new CompactBinaryCodec());
+    for (int i = 0; i < 20000; i++) {
+      final String value = "value-" + i + "-" + padding(i % 150);
+      store.put(i, value, 0);
+      assertEquals(value, store.get(i));
+      assertTrue(store.getLiveBytes() <= MAX_BYTES);
+    }
+    assertTrue(store.getEvictionCount() > 0);
+    assertTrue(store.getEntryCount() > 0);
+    assertNull(store.get(0));
+  }
+
+  @Test
+  public void randomWorkloadNeverReturnsStaleValues() {
+    final OffHeapCacheStore store = new OffHeapCacheStore(MAX_BYTES * 4, new CompactBinaryCodec());
+    final Map<Integer, String> expected = new HashMap<Integer, String>();
+    final Random random = new Random(1);
+    long hits = 0;
+    for (int i = 0; i < 300000; i++) {
+      final int key = random.nextInt(3000);
+      final int operation = random.nextInt(10);
+      if (operation < 5) {
+        final String value = "v" + key + "-" + i + padding(random.nextInt(200));
+        store.put(key, value, 0);
+        expected.put(key, value);
+      } else if (operation < 6) {
+        store.remove(key);
+        expected.remove(key);
+      } else {
+        final Object value = store.get(key);
+        if (value != null) {
+          hits++;
+          assertEquals(expected.get(key), value);
+        }
+      }
+    }
+    assertTrue(hits > 0);
+    assertTrue(store.getEvictionCount() > 0);
+  }
+
+  @Test
+  public void replacedEntriesAreNotEvictedAsLive() {
+    final OffHeapCacheStore store = new OffHeapCacheStore(MAX_BYTES, new CompactBinaryCodec());
+    //Rewriting a single key wraps its segment many times over its own dead records
+    for (int i = 0; i < 10000; i++) {
+      store.put("key", "value-" + i, 0);
+    }
+    assertEquals("value-9999", store.get("key"));
+    assertEquals(1, store.getEntryCount());
+    assertEquals(0, store.getEvictionCount());
+  }
+
+  @Test
+  public void expiredEntryIsAMiss() {
+    final OffHeapCacheStore store = new OffHeapCacheStore(MAX_BYTES, new CompactBinaryCodec());
+    store.put("key", "value", System.currentTimeMillis() - 1);
+    assertNull(store.get("key"));
+    assertEquals(1, store.getExpirationCount());
+    assertEquals(0, store.getEntryCount());
+  }
+
+  private static String padding(int length) {
+    final StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append('x');
+    }
+    return builder.toString();
+  }
+}
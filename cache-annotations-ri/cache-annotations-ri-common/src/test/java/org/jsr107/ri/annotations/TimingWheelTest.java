@@ -0,0 +1,138 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link TimingWheel}
+ */
+public class TimingWheelTest {
+  private static final long START = 1700000000000L;
+  private static final long TICK_MILLIS = 1024;
+  private static final int MAX_STEP_MILLIS = 5000;
+
+  private long now = START;
+  private final List<TestTimer> expired = new ArrayList<TestTimer>();
+  private final TimingWheel.Expirer expirer = new TimingWheel.Expirer() {
+    @Override
+    public void expire(TimingWheel.Timer timer) {
+      ((TestTimer) timer).firedAt = now;
+      expired.add((TestTimer) timer);
+    }
+  };
+
+  @Test
+  public void timerCascadesDownToTheFinestWheel() {
+    final TimingWheel wheel = new TimingWheel(this.now);
+    //Starts out in the hour wheel and has to move through the minute and second wheels
+    final TestTimer timer = new TestTimer(START + 2 * 3600 * 1000L + 12345);
+    wheel.schedule(timer);
+
+    while (this.now < timer.expiresAt - 1) {
+      this.now += 1000;
+      wheel.advance(Math.min(this.now, timer.expiresAt - 1), this.expirer);
+    }
+    assertTrue(this.expired.isEmpty());
+
+    //Due timers fire when the wheel ticks past the second they are due in
+    this.now = timer.expiresAt + TICK_MILLIS;
+    wheel.advance(this.now, this.expirer);
+    assertEquals(1, this.expired.size());
+  }
+
+  @Test
+  public void largeJumpExpiresEverythingDue() {
+    final TimingWheel wheel = new TimingWheel(this.now);
+    final TestTimer soon = new TestTimer(START + 500);
+    final TestTimer day = new TestTimer(START + 24 * 3600 * 1000L);
+    final TestTimer week = new TestTimer(START + 8 * 24 * 3600 * 1000L);
+    wheel.schedule(soon);
+    wheel.schedule(day);
+    wheel.schedule(week);
+
+    this.now = START + 2 * 24 * 3600 * 1000L;
+    wheel.advance(this.now, this.expirer);
+    assertEquals(2, this.expired.size());
+    assertTrue(this.expired.contains(soon) && this.expired.contains(day));
+
+    this.now = START + 9 * 24 * 3600 * 1000L;
+    wheel.advance(this.now, this.expirer);
+    assertEquals(3, this.expired.size());
+  }
+
+  @Test
+  public void descheduledTimerNeverFires() {
+    final TimingWheel wheel = new TimingWheel(this.now);
+    final TestTimer timer = new TestTimer(START + 5000);
+    wheel.schedule(timer);
+    wheel.deschedule(timer);
+    this.now = START + 10000;
+    wheel.advance(this.now, this.expirer);
+    assertTrue(this.expired.isEmpty());
+  }
+
+  @Test
+  public void randomTimersFireOnceAndNeverEarly() {
+    final TimingWheel wheel = new TimingWheel(this.now);
+    final Random random = new Random(5);
+    final List<TestTimer> timers = new ArrayList<TestTimer>();
+    for (int i = 0; i < 50000; i++) {
+      final long delay = random.nextInt(4) == 0 ?
+          (long) (random.nextDouble() * 10L * 24 * 3600 * 1000) : random.nextInt(120000);
+      final TestTimer timer = new TestTimer(this.now + delay - 500);
+      timers.add(timer);
+      wheel.schedule(timer);
+      if (i % 7 == 0) {
+        this.now += random.nextInt(3000);
+        wheel.advance(this.now, this.expirer);
+      }
+    }
+    final long end = this.now + 11L * 24 * 3600 * 1000;
+    while (this.now < end) {
+      this.now += 1 + random.nextInt(MAX_STEP_MILLIS);
+      wheel.advance(this.now, this.expirer);
+    }
+
+    assertEquals(timers.size(), this.expired.size());
+    for (final TestTimer timer : timers) {
+      assertTrue(timer.firedAt >= timer.expiresAt);
+      assertTrue(timer.firedAt - timer.expiresAt <= TICK_MILLIS + MAX_STEP_MILLIS);
+    }
+  }
+
+  private static final class TestTimer extends TimingWheel.Timer {
+    private final long expiresAt;
+    private long firedAt = -1;
+
+    private TestTimer(long expiresAt) {
+      this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public long getExpiresAtMillis() {
+      return this.expiresAt;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.annotations;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link WindowTinyLfuCacheStore}
+ */
+public class WindowTinyLfuCacheStoreTest {
+  private static final int CAPACITY = 1000;
+
+  /**
+   * Replays a trace of skewed reads mixed with a one-off scan against the store and an LRU of the same size, the
+   * harness behind the hit ratios quoted for the heap near cache
+   */
+  @Test
+  public void hitRatioBeatsLruOnSkewedTraceWithScan() {
+    final WindowTinyLfuCacheStore store = new WindowTinyLfuCacheStore(CAPACITY);
+    final Map<Integer, Integer> lru = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+        return this.size() > CAPACITY;
+      }
+    };
+
+    final Random random = new Random(3);
+    final int requests = 2000000;
+    int scanKey = 1000000;
+    long storeHits = 0;
+    long lruHits = 0;
+    for (int i = 0; i < requests; i++) {
+      //30% of the requests scan keys that are never requested again, the others are normally distributed
+      final int key = random.nextInt(100) < 30 ? scanKey++ : (int) Math.abs(random.nextGaussian() * 600);
+
+      final Object value = store.get(key);
+      if (value != null) {
+        assertEquals(key, value);
+        storeHits++;
+      } else {
+        store.put(key, key, 0);
+      }
+      if (lru.get(key) != null) {
+        lruHits++;
+      } else {
+        lru.put(key, key);
+      }
+    }
+
+    final double storeHitRatio = (double) storeHits / requests;
+    final double lruHitRatio = (double) lruHits / requests;
+    assertTrue("Window TinyLFU " + storeHitRatio + " vs LRU " + lruHitRatio, storeHitRatio > lruHitRatio + 0.15);
+    assertTrue(store.getEntryCount() <= CAPACITY);
+  }
+
+  @Test
+  public void expiredEntryIsAMiss() throws InterruptedException {
+    final WindowTinyLfuCacheStore store = new WindowTinyLfuCacheStore(CAPACITY);
+    store.put("key", "value", System.currentTimeMillis() + 20);
+    assertEquals("value", store.get("key"));
+    Thread.sleep(50);
+    assertNull(store.get("key"));
+    assertEquals(1, store.getHitCount());
+    assertEquals(1, store.getMissCount());
+  }
+
+  @Test
+  public void concurrentReadsAndWritesStayConsistent() throws InterruptedException {
+    final WindowTinyLfuCacheStore store = new WindowTinyLfuCacheStore(CAPACITY);
+    final Throwable[] failure = new Throwable[1];
+    final Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int seed = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            final Random random = new Random(seed);
+            for (int i = 0; i < 200000; i++) {
+              final int key = random.nextInt(5000);
+              final int operation = random.nextInt(10);
+              if (operation < 6) {
+                final Object value = store.get(key);
+                if (value != null) {
+                  assertEquals(key, value);
+                }
+              } else if (operation < 9) {
+                store.put(key, key, 0);
+              } else {
+                store.remove(key);
+              }
+            }
+          } catch (Throwable e) {
+            synchronized (failure) {
+              failure[0] = e;
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    synchronized (failure) {
+      if (failure[0] != null) {
+        throw new AssertionError(failure[0]);
+      }
+    }
+    store.cleanUp();
+    assertTrue(store.getEntryCount() <= CAPACITY);
+  }
+}